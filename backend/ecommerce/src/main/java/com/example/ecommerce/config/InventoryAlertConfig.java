@@ -0,0 +1,105 @@
+package com.example.ecommerce.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Configuration
+@ConfigurationProperties(prefix = "inventory.alerts")
+public class InventoryAlertConfig {
+
+    private int defaultThreshold = 5; // Used when neither the product nor its category sets one
+    private Map<String, Integer> categoryThresholds = new HashMap<>();
+    private int queueCapacity = 1000;
+    private boolean emailEnabled = true;
+    private List<String> emailTo = new ArrayList<>(); // Empty sends to every admin
+    private int maxFeedConnections = 20;
+    private long feedTimeoutMs = 1800000;
+    private long heartbeatIntervalMs = 15000;
+    private int senderThreads = 2;
+    private int senderQueueCapacity = 1000;
+
+    public int getDefaultThreshold() {
+        return defaultThreshold;
+    }
+
+    public void setDefaultThreshold(int defaultThreshold) {
+        this.defaultThreshold = defaultThreshold;
+    }
+
+    public Map<String, Integer> getCategoryThresholds() {
+        return categoryThresholds;
+    }
+
+    public void setCategoryThresholds(Map<String, Integer> categoryThresholds) {
+        this.categoryThresholds = categoryThresholds;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public boolean isEmailEnabled() {
+        return emailEnabled;
+    }
+
+    public void setEmailEnabled(boolean emailEnabled) {
+        this.emailEnabled = emailEnabled;
+    }
+
+    public List<String> getEmailTo() {
+        return emailTo;
+    }
+
+    public void setEmailTo(List<String> emailTo) {
+        this.emailTo = emailTo;
+    }
+
+    public int getMaxFeedConnections() {
+        return maxFeedConnections;
+    }
+
+    public void setMaxFeedConnections(int maxFeedConnections) {
+        this.maxFeedConnections = maxFeedConnections;
+    }
+
+    public long getFeedTimeoutMs() {
+        return feedTimeoutMs;
+    }
+
+    public void setFeedTimeoutMs(long feedTimeoutMs) {
+        this.feedTimeoutMs = feedTimeoutMs;
+    }
+
+    public long getHeartbeatIntervalMs() {
+        return heartbeatIntervalMs;
+    }
+
+    public void setHeartbeatIntervalMs(long heartbeatIntervalMs) {
+        this.heartbeatIntervalMs = heartbeatIntervalMs;
+    }
+
+    public int getSenderThreads() {
+        return senderThreads;
+    }
+
+    public void setSenderThreads(int senderThreads) {
+        this.senderThreads = senderThreads;
+    }
+
+    public int getSenderQueueCapacity() {
+        return senderQueueCapacity;
+    }
+
+    public void setSenderQueueCapacity(int senderQueueCapacity) {
+        this.senderQueueCapacity = senderQueueCapacity;
+    }
+}
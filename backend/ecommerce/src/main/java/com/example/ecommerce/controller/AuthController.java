@@ -7,7 +7,9 @@ import com.example.ecommerce.dto.ResetPasswordRequest;
 import com.example.ecommerce.dto.UpdateProfileRequest;
 import com.example.ecommerce.model.User;
 import com.example.ecommerce.service.AuthService;
+import com.example.ecommerce.service.GuestCartStore;
 import jakarta.validation.Valid;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
@@ -21,9 +23,11 @@ import java.util.Map;
 public class AuthController {
 
     private final AuthService authService;
+    private final GuestCartStore guestCartStore;
 
-    public AuthController(AuthService authService) {
+    public AuthController(AuthService authService, GuestCartStore guestCartStore) {
         this.authService = authService;
+        this.guestCartStore = guestCartStore;
     }
 
     @GetMapping("/health")
@@ -37,8 +41,21 @@ public class AuthController {
     }
 
     @PostMapping("/login")
-    public ResponseEntity<Map<String, String>> login(@Valid @RequestBody LoginRequest request) {
-        return authService.login(request);
+    public ResponseEntity<Map<String, String>> login(
+            @Valid @RequestBody LoginRequest request,
+            @CookieValue(name = GuestCartStore.COOKIE_NAME, required = false) String guestCartCookie
+    ) {
+        String guestCartId = guestCartStore.verify(guestCartCookie);
+        ResponseEntity<Map<String, String>> response = authService.login(request);
+        // A guest cart that failed to merge keeps its cookie, so the next login merges it
+        if (guestCartId == null || !response.getStatusCode().is2xxSuccessful()
+                || !authService.mergeGuestCart(request.getEmail(), guestCartId)) {
+            return response;
+        }
+        // The guest cart now lives in the user's cart
+        return ResponseEntity.status(response.getStatusCode())
+                .header(HttpHeaders.SET_COOKIE, guestCartStore.expiredCookie().toString())
+                .body(response.getBody());
     }
 
     @GetMapping("/verify")
@@ -1,40 +1,62 @@
 package com.example.ecommerce.controller;
 
+import com.example.ecommerce.dto.CartOperation;
 import com.example.ecommerce.model.Cart;
 import com.example.ecommerce.model.User;
 import com.example.ecommerce.repository.UserRepository;
+import com.example.ecommerce.security.AuthenticatedUser;
 import com.example.ecommerce.service.CartService;
+import com.example.ecommerce.service.CartSweeperService;
+import com.example.ecommerce.service.GuestCartStore;
+import com.example.ecommerce.service.PriceSnapshot;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
 import java.util.Map;
 
 @RestController
 @RequestMapping("/api/cart")
 public class CartController {
     private final CartService cartService;
+    private final GuestCartStore guestCartStore;
+    private final CartSweeperService cartSweeperService;
+    private final PriceSnapshot priceSnapshot;
     private final UserRepository userRepository;
 
-    public CartController(CartService cartService, UserRepository userRepository) {
+    public CartController(CartService cartService, GuestCartStore guestCartStore,
+                          CartSweeperService cartSweeperService, PriceSnapshot priceSnapshot,
+                          UserRepository userRepository) {
         this.cartService = cartService;
+        this.guestCartStore = guestCartStore;
+        this.cartSweeperService = cartSweeperService;
+        this.priceSnapshot = priceSnapshot;
         this.userRepository = userRepository;
     }
 
+    // The user was already loaded to authenticate the request; a cart read needs no second query
     private User getCurrentUser(Authentication authentication) {
+        if (authentication.getPrincipal() instanceof AuthenticatedUser principal) {
+            return principal.getAccount();
+        }
         return userRepository.findByEmail(authentication.getName());
     }
 
+    // The ETag can be sent back as If-Match so a change made from a stale view is refused with 412
     @GetMapping
     public ResponseEntity<Cart> getCart(Authentication authentication) {
         User user = getCurrentUser(authentication);
         Cart cart = cartService.getOrCreateCart(user);
-        return ResponseEntity.ok(cart);
+        return withETag(cart);
     }
 
     @PostMapping("/add")
     public ResponseEntity<Cart> addToCart(
             Authentication authentication,
+            @RequestHeader(value = "If-Match", required = false) String ifMatch,
             @RequestBody Map<String, Object> payload
     ) {
         User user = getCurrentUser(authentication);
@@ -44,37 +66,121 @@ public class CartController {
         Double price = Double.parseDouble(payload.get("price").toString());
         Integer quantity = Integer.parseInt(payload.get("quantity").toString());
 
-        Cart updatedCart = cartService.addToCart(user, productId, productName, productImage, price, quantity);
-        return ResponseEntity.ok(updatedCart);
+        Cart updatedCart = cartService.addToCart(user, productId, productName, productImage, price, quantity, ifMatch);
+        return withETag(updatedCart);
     }
 
     @PutMapping("/update-quantity")
     public ResponseEntity<Cart> updateQuantity(
             Authentication authentication,
+            @RequestHeader(value = "If-Match", required = false) String ifMatch,
             @RequestBody Map<String, Object> payload
     ) {
         User user = getCurrentUser(authentication);
         Long productId = Long.parseLong(payload.get("productId").toString());
         Integer quantity = Integer.parseInt(payload.get("quantity").toString());
 
-        Cart updatedCart = cartService.updateCartItemQuantity(user, productId, quantity);
-        return ResponseEntity.ok(updatedCart);
+        Cart updatedCart = cartService.updateCartItemQuantity(user, productId, quantity, ifMatch);
+        return withETag(updatedCart);
     }
 
     @DeleteMapping("/remove/{productId}")
     public ResponseEntity<Cart> removeFromCart(
             Authentication authentication,
+            @RequestHeader(value = "If-Match", required = false) String ifMatch,
             @PathVariable Long productId
     ) {
         User user = getCurrentUser(authentication);
-        Cart updatedCart = cartService.removeFromCart(user, productId);
-        return ResponseEntity.ok(updatedCart);
+        Cart updatedCart = cartService.removeFromCart(user, productId, ifMatch);
+        return withETag(updatedCart);
+    }
+
+    // Applies a whole cart sync in one request: all operations succeed or none do
+    @PostMapping("/batch")
+    public ResponseEntity<Cart> applyBatch(
+            Authentication authentication,
+            @RequestHeader(value = "If-Match", required = false) String ifMatch,
+            @RequestBody List<CartOperation> operations
+    ) {
+        User user = getCurrentUser(authentication);
+        Cart updatedCart = cartService.applyBatch(user, operations, ifMatch);
+        return withETag(updatedCart);
     }
 
     @PostMapping("/clear")
-    public ResponseEntity<Void> clearCart(Authentication authentication) {
+    public ResponseEntity<Void> clearCart(
+            Authentication authentication,
+            @RequestHeader(value = "If-Match", required = false) String ifMatch
+    ) {
         User user = getCurrentUser(authentication);
-        cartService.clearCart(user);
+        cartService.clearCart(user, ifMatch);
         return ResponseEntity.ok().build();
     }
-} 
\ No newline at end of file
+
+    private ResponseEntity<Cart> withETag(Cart cart) {
+        return ResponseEntity.ok().eTag(CartService.etag(cart)).body(cart);
+    }
+
+    // Guest carts: no login needed, the cart is identified by a signed cookie
+
+    @GetMapping("/guest")
+    public ResponseEntity<Cart> getGuestCart(
+            @CookieValue(name = GuestCartStore.COOKIE_NAME, required = false) String cookie
+    ) {
+        return ResponseEntity.ok(cartService.getGuestCart(guestCartStore.verify(cookie)));
+    }
+
+    @PostMapping("/guest/batch")
+    public ResponseEntity<Cart> applyGuestBatch(
+            @CookieValue(name = GuestCartStore.COOKIE_NAME, required = false) String cookie,
+            @RequestBody List<CartOperation> operations
+    ) {
+        // A missing or forged cookie starts a new cart rather than failing
+        String guestId = guestCartStore.verify(cookie);
+        if (guestId == null) {
+            cookie = guestCartStore.newCookieValue();
+            guestId = guestCartStore.verify(cookie);
+        }
+        Cart updatedCart = cartService.applyGuestBatch(guestId, operations);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.SET_COOKIE, guestCartStore.cookie(cookie).toString())
+                .body(updatedCart);
+    }
+
+    @PostMapping("/guest/clear")
+    public ResponseEntity<Void> clearGuestCart(
+            @CookieValue(name = GuestCartStore.COOKIE_NAME, required = false) String cookie
+    ) {
+        String guestId = guestCartStore.verify(cookie);
+        if (guestId != null) {
+            cartService.clearGuestCart(guestId);
+        }
+        return ResponseEntity.ok()
+                .header(HttpHeaders.SET_COOKIE, guestCartStore.expiredCookie().toString())
+                .build();
+    }
+
+    @GetMapping("/admin/guest-stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getGuestCartStats() {
+        return ResponseEntity.ok(guestCartStore.getStats());
+    }
+
+    @GetMapping("/admin/store/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getCartStoreStats() {
+        return ResponseEntity.ok(cartService.getStoreStats());
+    }
+
+    @GetMapping("/admin/sweeper/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getCartSweeperStats() {
+        return ResponseEntity.ok(cartSweeperService.getStats());
+    }
+
+    @GetMapping("/admin/price-snapshot/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getPriceSnapshotStats() {
+        return ResponseEntity.ok(priceSnapshot.getStats());
+    }
+}
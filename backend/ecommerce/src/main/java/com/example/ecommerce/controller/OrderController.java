@@ -57,6 +57,13 @@ public class OrderController {
         return ResponseEntity.ok(updatedOrder);
     }
 
+    // Body is a list of order numbers; stock of all cancelled orders is restored in one update
+    @PostMapping("/admin/cancel")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> cancelOrdersByAdmin(@RequestBody List<String> orderNumbers) {
+        return ResponseEntity.ok(orderService.cancelOrdersByAdmin(orderNumbers));
+    }
+
     @PostMapping("/{orderNumber}/cancel")
     public ResponseEntity<Order> cancelOrder(@PathVariable String orderNumber) {
         Order cancelledOrder = orderService.cancelOrder(orderNumber);
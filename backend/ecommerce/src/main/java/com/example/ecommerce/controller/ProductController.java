@@ -1,84 +1,168 @@
 package com.example.ecommerce.controller;
 
+import com.example.ecommerce.dto.ProductBulkUpdateItem;
 import com.example.ecommerce.model.Product;
+import com.example.ecommerce.service.ProductBulkUpdateService;
+import com.example.ecommerce.service.ProductCatalogVersion;
+import com.example.ecommerce.service.ProductExportService;
+import com.example.ecommerce.service.ProductFacetIndex;
+import com.example.ecommerce.service.ProductImportService;
 import com.example.ecommerce.service.ProductService;
+import com.example.ecommerce.service.ProductSuggestIndex;
+import com.example.ecommerce.service.StockBucketService;
+import com.example.ecommerce.service.StockReservationService;
+import com.example.ecommerce.service.StockStreamBroadcaster;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.springframework.security.access.prepost.PreAuthorize;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.HashMap;
 
 @RestController
 @RequestMapping("/api/products")
 public class ProductController {
     private final ProductService productService;
+    private final ProductExportService productExportService;
+    private final ProductFacetIndex productFacetIndex;
+    private final ProductCatalogVersion catalogVersion;
+    private final ProductSuggestIndex productSuggestIndex;
+    private final ProductImportService productImportService;
+    private final ProductBulkUpdateService productBulkUpdateService;
+    private final StockReservationService stockReservationService;
+    private final StockBucketService stockBucketService;
+    private final StockStreamBroadcaster stockStreamBroadcaster;
 
     @Autowired
-    public ProductController(ProductService productService) {
+    public ProductController(ProductService productService, ProductExportService productExportService,
+                             ProductFacetIndex productFacetIndex, ProductCatalogVersion catalogVersion,
+                             ProductSuggestIndex productSuggestIndex, ProductImportService productImportService,
+                             ProductBulkUpdateService productBulkUpdateService,
+                             StockReservationService stockReservationService,
+                             StockBucketService stockBucketService,
+                             StockStreamBroadcaster stockStreamBroadcaster) {
         this.productService = productService;
+        this.productExportService = productExportService;
+        this.productFacetIndex = productFacetIndex;
+        this.catalogVersion = catalogVersion;
+        this.productSuggestIndex = productSuggestIndex;
+        this.productImportService = productImportService;
+        this.productBulkUpdateService = productBulkUpdateService;
+        this.stockReservationService = stockReservationService;
+        this.stockBucketService = stockBucketService;
+        this.stockStreamBroadcaster = stockStreamBroadcaster;
     }
 
     @GetMapping
-    public ResponseEntity<Page<Product>> getAllProducts(
+    public ResponseEntity<?> getAllProducts(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "12") int size,
             @RequestParam(required = false) BigDecimal minPrice,
             @RequestParam(required = false) BigDecimal maxPrice,
             @RequestParam(required = false) String query,
             @RequestParam(defaultValue = "name") String sortBy,
-            @RequestParam(defaultValue = "asc") String sortOrder) {
+            @RequestParam(defaultValue = "asc") String sortOrder,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false") boolean includeCount,
+            @RequestParam(defaultValue = "false") boolean facets,
+            WebRequest request) {
+        if (catalogNotModified(request)) {
+            return null;
+        }
+        // Presence of "cursor" (empty for the first page) switches to keyset pagination
+        if (cursor != null) {
+            rejectQueryWithCursor(query);
+            return ResponseEntity.ok(withFacets(productService.getProductsAfterCursor(null, minPrice, maxPrice, cursor, sortBy, sortOrder, size, includeCount), null, facets));
+        }
+
         Pageable pageable = PageRequest.of(page, size, sortOrder.equalsIgnoreCase("asc") ? 
             org.springframework.data.domain.Sort.by(sortBy).ascending() : 
             org.springframework.data.domain.Sort.by(sortBy).descending());
         
         if (query != null && !query.trim().isEmpty()) {
             Page<Product> products = productService.searchProducts(query, pageable);
-            return ResponseEntity.ok(products);
+            return ResponseEntity.ok(withFacets(products, null, facets));
         } else if (minPrice != null && maxPrice != null) {
             Page<Product> products = productService.getProductsByPriceRange(minPrice, maxPrice, pageable);
-            return ResponseEntity.ok(products);
+            return ResponseEntity.ok(withFacets(products, null, facets));
         } else {
             Page<Product> products = productService.getAllProductsPaginated(pageable);
-            return ResponseEntity.ok(products);
+            return ResponseEntity.ok(withFacets(products, null, facets));
         }
     }
 
     @GetMapping("/all")
-    public List<Product> getAllProductsUnpaginated() {
-        return productService.getAllProducts();
+    public ResponseEntity<List<Product>> getAllProductsUnpaginated(WebRequest request) {
+        if (catalogNotModified(request)) {
+            return null;
+        }
+        return ResponseEntity.ok(productService.getAllProducts());
+    }
+
+    // Streaming variant: ?format=ndjson (application/x-ndjson) or ?format=json (chunked array)
+    @GetMapping(value = "/all", params = "format")
+    public void streamAllProducts(@RequestParam String format, HttpServletResponse response) throws IOException {
+        streamProducts(null, format, response);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Product> getProductById(@PathVariable Long id) {
-        return productService.getProductById(id)
-                .map(ResponseEntity::ok)
-                .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<Product> getProductById(@PathVariable Long id, WebRequest request) {
+        Optional<Product> product = productService.getProductById(id);
+        if (product.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (productNotModified("product", product.get(), request)) {
+            return null;
+        }
+        return ResponseEntity.ok(product.get());
     }
 
     @GetMapping("/{id}/stock")
-    public ResponseEntity<Map<String, Object>> getProductStock(@PathVariable Long id) {
+    public ResponseEntity<Map<String, Object>> getProductStock(@PathVariable Long id, WebRequest request) {
         Optional<Product> product = productService.getProductById(id);
         if (product.isPresent()) {
+            // Stock and holds can change without touching the product row, so they are the validator
+            int stock = productService.getProductStock(id);
+            int held = stockReservationService.getHeldQuantity(id);
+            if (request.checkNotModified("\"stock-" + id + "-" + stock + "-" + held + "\"")) {
+                return null;
+            }
+            int availableToSell = Math.max(stock - held, 0);
             Map<String, Object> response = new HashMap<>();
             response.put("productId", id);
             response.put("productName", product.get().getName());
-            response.put("stock", product.get().getStock());
-            response.put("available", product.get().getStock() > 0);
+            response.put("stock", stock);
+            response.put("availableToSell", availableToSell);
+            response.put("available", availableToSell > 0);
             return ResponseEntity.ok(response);
         }
         return ResponseEntity.notFound().build();
     }
 
+    // Live alternative to polling /{id}/stock: one "stock" event per flush interval with the changed products
+    @GetMapping(value = "/stream/stock", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamStock(@RequestParam Set<Long> ids) {
+        return stockStreamBroadcaster.subscribe(ids);
+    }
+
     @GetMapping("/category/{category}")
-    public ResponseEntity<Page<Product>> getProductsByCategory(
+    public ResponseEntity<?> getProductsByCategory(
             @PathVariable String category,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "12") int size,
@@ -86,32 +170,85 @@ public class ProductController {
             @RequestParam(required = false) BigDecimal maxPrice,
             @RequestParam(required = false) String query,
             @RequestParam(defaultValue = "name") String sortBy,
-            @RequestParam(defaultValue = "asc") String sortOrder) {
+            @RequestParam(defaultValue = "asc") String sortOrder,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false") boolean includeCount,
+            @RequestParam(defaultValue = "false") boolean facets,
+            WebRequest request) {
+        if (catalogNotModified(request)) {
+            return null;
+        }
+        if (cursor != null) {
+            rejectQueryWithCursor(query);
+            return ResponseEntity.ok(withFacets(productService.getProductsAfterCursor(category, minPrice, maxPrice, cursor, sortBy, sortOrder, size, includeCount), category, facets));
+        }
+
         Pageable pageable = PageRequest.of(page, size, sortOrder.equalsIgnoreCase("asc") ? 
             org.springframework.data.domain.Sort.by(sortBy).ascending() : 
             org.springframework.data.domain.Sort.by(sortBy).descending());
         
         if (query != null && !query.trim().isEmpty()) {
             Page<Product> products = productService.searchProductsByCategory(query, category, pageable);
-            return ResponseEntity.ok(products);
+            return ResponseEntity.ok(withFacets(products, category, facets));
         } else if (minPrice != null && maxPrice != null) {
             Page<Product> products = productService.getProductsByCategoryAndPriceRange(category, minPrice, maxPrice, pageable);
-            return ResponseEntity.ok(products);
+            return ResponseEntity.ok(withFacets(products, category, facets));
         } else {
             Page<Product> products = productService.getProductsByCategoryPaginated(category, pageable);
-            return ResponseEntity.ok(products);
+            return ResponseEntity.ok(withFacets(products, category, facets));
         }
     }
 
     @GetMapping("/category/{category}/all")
-    public List<Product> getProductsByCategoryUnpaginated(@PathVariable String category) {
-        return productService.getProductsByCategory(category);
+    public ResponseEntity<List<Product>> getProductsByCategoryUnpaginated(@PathVariable String category, WebRequest request) {
+        if (catalogNotModified(request)) {
+            return null;
+        }
+        return ResponseEntity.ok(productService.getProductsByCategory(category));
+    }
+
+    @GetMapping(value = "/category/{category}/all", params = "format")
+    public void streamProductsByCategory(@PathVariable String category, @RequestParam String format,
+                                         HttpServletResponse response) throws IOException {
+        streamProducts(category, format, response);
+    }
+
+    @GetMapping("/facets")
+    public ResponseEntity<Map<String, Object>> getFacets(@RequestParam(required = false) String category, WebRequest request) {
+        if (catalogNotModified(request)) {
+            return null;
+        }
+        return ResponseEntity.ok(productFacetIndex.getFacets(category));
+    }
+
+    @GetMapping("/suggest")
+    public List<Map<String, Object>> suggest(@RequestParam String prefix,
+                                             @RequestParam(defaultValue = "10") int limit) {
+        return productSuggestIndex.suggest(prefix, limit);
     }
 
     @GetMapping("/categories")
-    public ResponseEntity<List<String>> getAllCategories() {
-        List<String> categories = productService.getAllCategories();
-        return ResponseEntity.ok(categories);
+    public ResponseEntity<List<String>> getAllCategories(WebRequest request) {
+        ProductFacetIndex.CategorySnapshot categories = productService.getCategorySnapshot();
+        if (categories.getEtag() == null) {
+            return ResponseEntity.ok(categories.getNames());
+        }
+        if (request.checkNotModified(categories.getEtag())) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(categories.getEtag()).body(categories.getNames());
+    }
+
+    @GetMapping("/categories/counts")
+    public ResponseEntity<List<Map<String, Object>>> getCategoryCounts(WebRequest request) {
+        ProductFacetIndex.CategoryCounts counts = productService.getCategoryCounts();
+        if (counts.getEtag() == null) {
+            return ResponseEntity.ok(counts.getCounts());
+        }
+        if (request.checkNotModified(counts.getEtag())) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(counts.getEtag()).body(counts.getCounts());
     }
 
     @PostMapping
@@ -144,6 +281,64 @@ public class ProductController {
         return ResponseEntity.ok(productService.getAllProducts());
     }
 
+    @GetMapping(value = "/admin/all", params = "format")
+    @PreAuthorize("hasRole('ADMIN')")
+    public void streamAllProductsForAdmin(@RequestParam String format, HttpServletResponse response) throws IOException {
+        streamProducts(null, format, response);
+    }
+
+    @GetMapping("/admin/cache/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
+        return ResponseEntity.ok(productService.getCacheStats());
+    }
+
+    // Body is the raw CSV or NDJSON file; one progress line per batch is streamed back
+    @PostMapping("/admin/import")
+    @PreAuthorize("hasRole('ADMIN')")
+    public void importProducts(@RequestParam(defaultValue = "csv") String format, HttpServletRequest request,
+                               HttpServletResponse response) throws IOException {
+        ProductImportService.Format importFormat = ProductImportService.Format.from(format);
+        if (importFormat == null) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Unsupported format: " + format);
+            return;
+        }
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+        productImportService.importProducts(request.getInputStream(), importFormat, response.getOutputStream());
+    }
+
+    @PostMapping("/admin/bulk-update")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> bulkUpdateProducts(@RequestBody List<ProductBulkUpdateItem> updates) {
+        return ResponseEntity.ok(productBulkUpdateService.applyUpdates(updates));
+    }
+
+    // Splits a hot product's stock over several rows so concurrent checkouts lock different ones
+    @PutMapping("/admin/{id}/stock-buckets")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> enableStockBuckets(@PathVariable Long id, @RequestParam int buckets) {
+        return ResponseEntity.ok(stockBucketService.enable(id, buckets));
+    }
+
+    @DeleteMapping("/admin/{id}/stock-buckets")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> disableStockBuckets(@PathVariable Long id) {
+        return ResponseEntity.ok(stockBucketService.disable(id));
+    }
+
+    @GetMapping("/admin/stock-buckets/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getStockBucketStats() {
+        return ResponseEntity.ok(stockBucketService.getStats());
+    }
+
+    @GetMapping("/admin/stream/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getStockStreamStats() {
+        return ResponseEntity.ok(stockStreamBroadcaster.getStats());
+    }
+
     @PostMapping("/admin/add")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<?> addProduct(@RequestBody Product product) {
@@ -172,6 +367,47 @@ public class ProductController {
         }
     }
 
+    // Search results are ranked, not ordered by a key, so they cannot be paged by cursor
+    private static void rejectQueryWithCursor(String query) {
+        if (query != null && !query.trim().isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cursor pagination cannot be combined with query; use page");
+        }
+    }
+
+    // Sets the ETag and answers If-None-Match before anything is serialized. No Last-Modified:
+    // a deletion does not move the newest updated_at, so If-Modified-Since could not see it
+    private boolean catalogNotModified(WebRequest request) {
+        return request.checkNotModified(catalogVersion.etagFor(request));
+    }
+
+    private boolean productNotModified(String representation, Product product, WebRequest request) {
+        long lastModified = product.getUpdatedAt() != null ? product.getUpdatedAt().getTime() : 0L;
+        String etag = "\"" + representation + "-" + product.getId() + "-" + lastModified + "\"";
+        return request.checkNotModified(etag, lastModified);
+    }
+
+    // With ?facets=true listings are wrapped as { "products": ..., "facets": ... }
+    private Object withFacets(Object products, String category, boolean facets) {
+        if (!facets) {
+            return products;
+        }
+        Map<String, Object> body = new HashMap<>();
+        body.put("products", products);
+        body.put("facets", productFacetIndex.getFacets(category));
+        return body;
+    }
+
+    private void streamProducts(String category, String format, HttpServletResponse response) throws IOException {
+        ProductExportService.Format exportFormat = ProductExportService.Format.from(format);
+        if (exportFormat == null) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Unsupported format: " + format);
+            return;
+        }
+        response.setContentType(exportFormat.getContentType());
+        response.setCharacterEncoding("UTF-8");
+        productExportService.export(category, response.getOutputStream(), exportFormat);
+    }
+
     /**
      * Get all products, sorted by newest first (createdAt descending).
      */
@@ -0,0 +1,44 @@
+package com.example.ecommerce.controller;
+
+import com.example.ecommerce.dto.StockAlert;
+import com.example.ecommerce.service.StockAlertDispatcher;
+import com.example.ecommerce.service.StockAlertService;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/products/admin/stock-alerts")
+@PreAuthorize("hasRole('ADMIN')")
+public class StockAlertController {
+
+    private final StockAlertService stockAlertService;
+    private final StockAlertDispatcher stockAlertDispatcher;
+
+    public StockAlertController(StockAlertService stockAlertService, StockAlertDispatcher stockAlertDispatcher) {
+        this.stockAlertService = stockAlertService;
+        this.stockAlertDispatcher = stockAlertDispatcher;
+    }
+
+    // Products currently at or below their low-stock threshold
+    @GetMapping
+    public ResponseEntity<List<StockAlert>> getActiveAlerts() {
+        return ResponseEntity.ok(stockAlertService.getActiveAlerts());
+    }
+
+    // Active alerts first, then a "stock-alert" event whenever a product gets low or runs out
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamAlerts() {
+        return stockAlertService.subscribe();
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> getStats() {
+        return ResponseEntity.ok(stockAlertDispatcher.getStats());
+    }
+}
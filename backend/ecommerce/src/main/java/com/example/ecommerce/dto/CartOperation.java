@@ -0,0 +1,63 @@
+package com.example.ecommerce.dto;
+
+public class CartOperation {
+    public enum Type {
+        ADD, UPDATE, REMOVE
+    }
+
+    private Type type;
+    private Long productId;
+    private String productName; // ADD only
+    private String productImage; // ADD only
+    private Double price; // ADD only
+    private Integer quantity; // added quantity for ADD, new quantity for UPDATE
+
+    // Getters and Setters
+    public Type getType() {
+        return type;
+    }
+
+    public void setType(Type type) {
+        this.type = type;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Long productId) {
+        this.productId = productId;
+    }
+
+    public String getProductName() {
+        return productName;
+    }
+
+    public void setProductName(String productName) {
+        this.productName = productName;
+    }
+
+    public String getProductImage() {
+        return productImage;
+    }
+
+    public void setProductImage(String productImage) {
+        this.productImage = productImage;
+    }
+
+    public Double getPrice() {
+        return price;
+    }
+
+    public void setPrice(Double price) {
+        this.price = price;
+    }
+
+    public Integer getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(Integer quantity) {
+        this.quantity = quantity;
+    }
+}
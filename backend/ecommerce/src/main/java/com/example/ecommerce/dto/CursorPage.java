@@ -0,0 +1,50 @@
+package com.example.ecommerce.dto;
+
+import java.util.List;
+
+public class CursorPage<T> {
+    private final List<T> content;
+    private final int size;
+    private final String sortBy;
+    private final String sortOrder;
+    private final String nextCursor;
+    private final Long totalElements; // Only filled in when the caller asks for a count
+
+    public CursorPage(List<T> content, int size, String sortBy, String sortOrder, String nextCursor, Long totalElements) {
+        this.content = content;
+        this.size = size;
+        this.sortBy = sortBy;
+        this.sortOrder = sortOrder;
+        this.nextCursor = nextCursor;
+        this.totalElements = totalElements;
+    }
+
+    // Getters
+    public List<T> getContent() {
+        return content;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public String getSortBy() {
+        return sortBy;
+    }
+
+    public String getSortOrder() {
+        return sortOrder;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean isHasNext() {
+        return nextCursor != null;
+    }
+
+    public Long getTotalElements() {
+        return totalElements;
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.ecommerce.dto;
+
+import java.math.BigDecimal;
+
+public class ProductBulkUpdateItem {
+    private Long id;
+    private BigDecimal price; // null keeps the current price
+    private Integer stock; // null keeps the current stock
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public BigDecimal getPrice() {
+        return price;
+    }
+
+    public void setPrice(BigDecimal price) {
+        this.price = price;
+    }
+
+    public Integer getStock() {
+        return stock;
+    }
+
+    public void setStock(Integer stock) {
+        this.stock = stock;
+    }
+}
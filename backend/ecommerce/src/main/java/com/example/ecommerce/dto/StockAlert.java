@@ -0,0 +1,59 @@
+package com.example.ecommerce.dto;
+
+import java.time.LocalDateTime;
+
+public class StockAlert {
+
+    public enum Level {
+        LOW_STOCK,
+        OUT_OF_STOCK
+    }
+
+    private final Long productId;
+    private final String productName;
+    private final String category;
+    private final Level level;
+    private final int stock;
+    private final int threshold;
+    private final LocalDateTime createdAt;
+
+    public StockAlert(Long productId, String productName, String category, Level level, int stock, int threshold,
+                      LocalDateTime createdAt) {
+        this.productId = productId;
+        this.productName = productName;
+        this.category = category;
+        this.level = level;
+        this.stock = stock;
+        this.threshold = threshold;
+        this.createdAt = createdAt;
+    }
+
+    // Getters
+    public Long getProductId() {
+        return productId;
+    }
+
+    public String getProductName() {
+        return productName;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public Level getLevel() {
+        return level;
+    }
+
+    public int getStock() {
+        return stock;
+    }
+
+    public int getThreshold() {
+        return threshold;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.ecommerce.event;
+
+import com.example.ecommerce.model.Product;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Published by ProductService whenever the catalog changes, so in-memory views
+ * (search index, caches, ...) can follow without re-reading the products table.
+ */
+public class ProductChangeEvent {
+
+    public enum Type {
+        SAVED,
+        DELETED,
+        STOCK_CHANGED,
+        BULK_UPDATED,
+        RELOADED
+    }
+
+    private final Type type;
+    private final Long productId;
+    private final Product product;
+    private final Integer stock;
+    private final List<Product> products;
+
+    private ProductChangeEvent(Type type, Long productId, Product product, Integer stock, List<Product> products) {
+        this.type = type;
+        this.productId = productId;
+        this.product = product;
+        this.stock = stock;
+        this.products = products;
+    }
+
+    public static ProductChangeEvent saved(Product product) {
+        return new ProductChangeEvent(Type.SAVED, product.getId(), product, product.getStock(), Collections.emptyList());
+    }
+
+    public static ProductChangeEvent deleted(Long productId) {
+        return new ProductChangeEvent(Type.DELETED, productId, null, null, Collections.emptyList());
+    }
+
+    public static ProductChangeEvent stockChanged(Long productId, Integer stock) {
+        return new ProductChangeEvent(Type.STOCK_CHANGED, productId, null, stock, Collections.emptyList());
+    }
+
+    // One event for a whole bulk write, carrying the products as they are after it
+    public static ProductChangeEvent bulkUpdated(List<Product> products) {
+        return new ProductChangeEvent(Type.BULK_UPDATED, null, null, null, Collections.unmodifiableList(products));
+    }
+
+    /**
+     * The whole catalog from one projection scan, shared by every view that rebuilds
+     * on it. The products are detached and carry no image or updated_at.
+     */
+    public static ProductChangeEvent reloaded(List<Product> products) {
+        return new ProductChangeEvent(Type.RELOADED, null, null, null, Collections.unmodifiableList(products));
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public Product getProduct() {
+        return product;
+    }
+
+    public Integer getStock() {
+        return stock;
+    }
+
+    public List<Product> getProducts() {
+        return products;
+    }
+}
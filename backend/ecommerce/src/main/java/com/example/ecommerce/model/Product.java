@@ -28,13 +28,32 @@ public class Product {
     @Column(nullable = false)
     private Integer stock;
 
+    // Null falls back to the category or default threshold of the stock alerts
+    @Column(name = "low_stock_threshold")
+    private Integer lowStockThreshold;
+
+    // Written only by StockBucketService through JDBC; 0 means the stock column is the only stock row
+    @Column(name = "stock_buckets", nullable = false, insertable = false, updatable = false,
+            columnDefinition = "INT DEFAULT 0")
+    private Integer stockBuckets;
+
     @Column(nullable = false, updatable = false)
     @Temporal(TemporalType.TIMESTAMP)
     private java.util.Date createdAt;
 
+    @Column(name = "updated_at", nullable = false)
+    @Temporal(TemporalType.TIMESTAMP)
+    private java.util.Date updatedAt;
+
     @PrePersist
     protected void onCreate() {
         this.createdAt = new java.util.Date();
+        this.updatedAt = this.createdAt;
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        this.updatedAt = new java.util.Date();
     }
 
     // Getters and Setters
@@ -94,6 +113,18 @@ public class Product {
         this.stock = stock;
     }
 
+    public Integer getLowStockThreshold() {
+        return lowStockThreshold;
+    }
+
+    public void setLowStockThreshold(Integer lowStockThreshold) {
+        this.lowStockThreshold = lowStockThreshold;
+    }
+
+    public Integer getStockBuckets() {
+        return stockBuckets;
+    }
+
     public java.util.Date getCreatedAt() {
         return createdAt;
     }
@@ -101,4 +132,12 @@ public class Product {
     public void setCreatedAt(java.util.Date createdAt) {
         this.createdAt = createdAt;
     }
+
+    public java.util.Date getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(java.util.Date updatedAt) {
+        this.updatedAt = updatedAt;
+    }
 } 
\ No newline at end of file
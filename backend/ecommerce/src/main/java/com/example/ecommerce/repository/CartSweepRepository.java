@@ -0,0 +1,105 @@
+package com.example.ecommerce.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * JDBC access used by the stale cart sweeper. Both scans are keyset scans that
+ * resume after the last row seen, so a sweep never re-reads what it has passed.
+ */
+@Repository
+public class CartSweepRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    public CartSweepRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /** Carts that a newer cart of the same user has replaced, in id order after {@code afterId}. */
+    public List<StaleCart> findSuperseded(long afterId, int limit) {
+        return jdbcTemplate.query(
+                "SELECT c.id, c.user_id, c.updated_at FROM carts c WHERE c.id > ? " +
+                "AND EXISTS (SELECT 1 FROM carts n WHERE n.user_id = c.user_id AND n.id > c.id) " +
+                "ORDER BY c.id LIMIT ?",
+                (rs, rowNum) -> new StaleCart(rs.getLong("id"), rs.getLong("user_id"),
+                        rs.getTimestamp("updated_at").toLocalDateTime()),
+                afterId, limit);
+    }
+
+    /** Carts last changed before the cutoff, in (updated_at, id) order after the given position. */
+    public List<StaleCart> findUpdatedBefore(LocalDateTime cutoff, LocalDateTime afterUpdatedAt, long afterId, int limit) {
+        return jdbcTemplate.query(
+                "SELECT id, user_id, updated_at FROM carts WHERE updated_at < ? AND (updated_at, id) > (?, ?) " +
+                "ORDER BY updated_at, id LIMIT ?",
+                (rs, rowNum) -> new StaleCart(rs.getLong("id"), rs.getLong("user_id"),
+                        rs.getTimestamp("updated_at").toLocalDateTime()),
+                Timestamp.valueOf(cutoff), Timestamp.valueOf(afterUpdatedAt), afterId, limit);
+    }
+
+    /**
+     * Locks the given carts, keeping only those still last changed before
+     * {@code changedBefore} when it is set. Carts locked by a concurrent writer are
+     * skipped rather than waited for.
+     */
+    public List<Long> lockForDelete(List<Long> cartIds, LocalDateTime changedBefore) {
+        if (cartIds.isEmpty()) {
+            return List.of();
+        }
+        List<Object> args = new ArrayList<>(cartIds);
+        String sql = "SELECT id FROM carts WHERE id IN (" + placeholders(cartIds.size()) + ")";
+        if (changedBefore != null) {
+            sql += " AND updated_at < ?";
+            args.add(Timestamp.valueOf(changedBefore));
+        }
+        return jdbcTemplate.queryForList(sql + " FOR UPDATE SKIP LOCKED", Long.class, args.toArray());
+    }
+
+    /** @return the number of cart_items rows deleted */
+    public int deleteItems(List<Long> cartIds) {
+        return jdbcTemplate.update("DELETE FROM cart_items WHERE cart_id IN (" + placeholders(cartIds.size()) + ")",
+                cartIds.toArray());
+    }
+
+    public int deleteCarts(List<Long> cartIds) {
+        return jdbcTemplate.update("DELETE FROM carts WHERE id IN (" + placeholders(cartIds.size()) + ")",
+                cartIds.toArray());
+    }
+
+    private static String placeholders(int count) {
+        StringJoiner placeholders = new StringJoiner(", ");
+        for (int i = 0; i < count; i++) {
+            placeholders.add("?");
+        }
+        return placeholders.toString();
+    }
+
+    public static final class StaleCart {
+        private final long id;
+        private final long userId;
+        private final LocalDateTime updatedAt;
+
+        public StaleCart(long id, long userId, LocalDateTime updatedAt) {
+            this.id = id;
+            this.userId = userId;
+            this.updatedAt = updatedAt;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public long getUserId() {
+            return userId;
+        }
+
+        public LocalDateTime getUpdatedAt() {
+            return updatedAt;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.ecommerce.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Calendar;
+import java.util.TimeZone;
+
+/**
+ * Clock for the timestamp columns written through JDBC. Hibernate stores entity
+ * timestamps as wall-clock time in hibernate.jdbc.time_zone, so JDBC writes and
+ * reads use that zone too; otherwise rows written both ways would not compare.
+ */
+@Component
+public class DatabaseClock {
+    private final ZoneId zone;
+
+    public DatabaseClock(@Value("${spring.jpa.properties.hibernate.jdbc.time_zone:}") String zone) {
+        this.zone = zone.isBlank() ? ZoneId.systemDefault() : ZoneId.of(zone);
+    }
+
+    /** Current wall-clock time in the database zone, bound as a timestamp parameter. */
+    public LocalDateTime now() {
+        return LocalDateTime.now(zone);
+    }
+
+    public Timestamp getTimestamp(ResultSet rs, String column) throws SQLException {
+        return rs.getTimestamp(column, Calendar.getInstance(TimeZone.getTimeZone(zone)));
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.ecommerce.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * JDBC access to inventory_ledger, the append-only log of stock movements kept by
+ * the ledger inventory engine. Rows are appended unreconciled and flagged once
+ * their delta has been folded into products.stock.
+ */
+@Repository
+public class InventoryLedgerRepository {
+    private final JdbcTemplate jdbcTemplate;
+    private final DatabaseClock clock;
+
+    public InventoryLedgerRepository(JdbcTemplate jdbcTemplate, DatabaseClock clock) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.clock = clock;
+    }
+
+    public void appendAll(List<Entry> entries) {
+        LocalDateTime now = clock.now();
+        List<Object[]> rows = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            rows.add(new Object[] {entry.getProductId(), entry.getDelta(), now});
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO inventory_ledger (product_id, delta, reconciled, created_at) VALUES (?, ?, false, ?)", rows);
+    }
+
+    /** Oldest unreconciled rows, locked for the current transaction. */
+    public List<Entry> lockUnreconciled(int limit) {
+        return jdbcTemplate.query(
+                "SELECT id, product_id, delta FROM inventory_ledger WHERE reconciled = false " +
+                "ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED",
+                (rs, rowNum) -> new Entry(rs.getLong("id"), rs.getLong("product_id"), rs.getInt("delta")), limit);
+    }
+
+    public void markReconciled(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        StringJoiner placeholders = new StringJoiner(", ");
+        for (int i = 0; i < ids.size(); i++) {
+            placeholders.add("?");
+        }
+        jdbcTemplate.update("UPDATE inventory_ledger SET reconciled = true WHERE id IN (" + placeholders + ")",
+                ids.toArray());
+    }
+
+    // Used when products.stock was overwritten, so older movements must not be applied on top
+    public void discardUnreconciled(Long productId) {
+        jdbcTemplate.update("UPDATE inventory_ledger SET reconciled = true WHERE product_id = ? AND reconciled = false",
+                productId);
+    }
+
+    /** products.stock plus the unreconciled movements, or null if the product does not exist. */
+    public Integer stockWithPending(Long productId) {
+        List<Integer> stock = jdbcTemplate.queryForList(
+                "SELECT p.stock + COALESCE((SELECT SUM(l.delta) FROM inventory_ledger l " +
+                "WHERE l.product_id = p.id AND l.reconciled = false), 0) FROM products p WHERE p.id = ?",
+                Integer.class, productId);
+        return stock.isEmpty() ? null : stock.get(0);
+    }
+
+    public Map<Long, Integer> rowStocks() {
+        Map<Long, Integer> stocks = new HashMap<>();
+        jdbcTemplate.query("SELECT id, stock FROM products", rs -> {
+            stocks.put(rs.getLong("id"), rs.getInt("stock"));
+        });
+        return stocks;
+    }
+
+    public Map<Long, Integer> pendingDeltas() {
+        Map<Long, Integer> deltas = new HashMap<>();
+        jdbcTemplate.query("SELECT product_id, SUM(delta) AS delta FROM inventory_ledger " +
+                "WHERE reconciled = false GROUP BY product_id", rs -> {
+            deltas.put(rs.getLong("product_id"), rs.getInt("delta"));
+        });
+        return deltas;
+    }
+
+    public static final class Entry {
+        private final Long id;
+        private final Long productId;
+        private final int delta;
+
+        public Entry(Long id, Long productId, int delta) {
+            this.id = id;
+            this.productId = productId;
+            this.delta = delta;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public Long getProductId() {
+            return productId;
+        }
+
+        public int getDelta() {
+            return delta;
+        }
+    }
+}
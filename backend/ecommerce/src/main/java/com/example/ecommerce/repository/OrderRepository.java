@@ -8,6 +8,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -29,4 +30,8 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     List<Order> findByUser_Id(Long userId);
     List<Order> findByOrderDateAfter(LocalDateTime date);
     Order findByPaymentIntentId(String paymentIntentId);
+
+    // Items are fetched with the orders so bulk operations do not load them one order at a time
+    @Query("SELECT DISTINCT o FROM Order o LEFT JOIN FETCH o.items WHERE o.orderNumber IN :orderNumbers")
+    List<Order> findWithItemsByOrderNumberIn(@Param("orderNumbers") Collection<String> orderNumbers);
 } 
\ No newline at end of file
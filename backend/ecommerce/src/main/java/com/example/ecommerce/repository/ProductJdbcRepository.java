@@ -0,0 +1,236 @@
+package com.example.ecommerce.repository;
+
+import com.example.ecommerce.dto.ProductBulkUpdateItem;
+import com.example.ecommerce.model.Product;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.StringJoiner;
+
+/**
+ * Plain JDBC access to the products table for bulk and set-based writes that would
+ * be too slow row by row through JPA. These statements bypass the entity lifecycle,
+ * so they maintain created_at/updated_at themselves, and callers are responsible for
+ * publishing product change events.
+ */
+@Repository
+public class ProductJdbcRepository {
+    private static final String INSERT_SQL =
+            "INSERT INTO products (name, price, description, image, category, stock, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String UPSERT_SQL =
+            "INSERT INTO products (id, name, price, description, image, category, stock, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (id) DO UPDATE SET name = EXCLUDED.name, price = EXCLUDED.price, " +
+            "description = EXCLUDED.description, image = EXCLUDED.image, category = EXCLUDED.category, " +
+            "stock = EXCLUDED.stock, updated_at = EXCLUDED.updated_at";
+
+    private static final String PRODUCT_COLUMNS =
+            "p.id, p.name, p.price, p.description, p.image, p.category, p.stock, p.low_stock_threshold, " +
+            "p.created_at, p.updated_at";
+
+    private final RowMapper<Product> productRowMapper = (rs, rowNum) -> {
+        Product product = new Product();
+        product.setId(rs.getLong("id"));
+        product.setName(rs.getString("name"));
+        product.setPrice(rs.getBigDecimal("price"));
+        product.setDescription(rs.getString("description"));
+        product.setImage(rs.getString("image"));
+        product.setCategory(rs.getString("category"));
+        product.setStock(rs.getInt("stock"));
+        product.setLowStockThreshold(rs.getObject("low_stock_threshold", Integer.class));
+        product.setCreatedAt(this.clock.getTimestamp(rs, "created_at"));
+        product.setUpdatedAt(this.clock.getTimestamp(rs, "updated_at"));
+        return product;
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DatabaseClock clock;
+
+    public ProductJdbcRepository(JdbcTemplate jdbcTemplate, DatabaseClock clock) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.clock = clock;
+    }
+
+    /**
+     * Writes a batch of products: rows with an id are upserted on that id, rows
+     * without one are inserted with a generated id. Returns the number of rows written.
+     */
+    public int upsertAll(List<Product> products) {
+        LocalDateTime now = clock.now();
+        List<Object[]> inserts = new ArrayList<>();
+        List<Object[]> upserts = new ArrayList<>();
+        for (Product product : products) {
+            if (product.getId() == null) {
+                inserts.add(new Object[] {product.getName(), product.getPrice(), product.getDescription(),
+                        product.getImage(), product.getCategory(), product.getStock(), now, now});
+            } else {
+                upserts.add(new Object[] {product.getId(), product.getName(), product.getPrice(),
+                        product.getDescription(), product.getImage(), product.getCategory(), product.getStock(),
+                        now, now});
+            }
+        }
+        int written = 0;
+        if (!upserts.isEmpty()) {
+            written += sum(jdbcTemplate.batchUpdate(UPSERT_SQL, upserts));
+        }
+        if (!inserts.isEmpty()) {
+            written += sum(jdbcTemplate.batchUpdate(INSERT_SQL, inserts));
+        }
+        return written;
+    }
+
+    /**
+     * Applies price and/or stock changes to many products with a single UPDATE ... FROM (VALUES ...)
+     * and returns the updated rows. Ids that do not exist are simply absent from the result.
+     */
+    public List<Product> updatePriceAndStock(List<ProductBulkUpdateItem> items) {
+        if (items.isEmpty()) {
+            return new ArrayList<>();
+        }
+        StringJoiner values = new StringJoiner(", ");
+        List<Object> args = new ArrayList<>(items.size() * 3 + 1);
+        args.add(clock.now());
+        for (ProductBulkUpdateItem item : items) {
+            values.add("(?::bigint, ?::numeric, ?::integer)");
+            args.add(item.getId());
+            args.add(item.getPrice());
+            args.add(item.getStock());
+        }
+        String sql = "UPDATE products p SET price = COALESCE(v.price, p.price), stock = COALESCE(v.stock, p.stock), " +
+                "updated_at = ? FROM (VALUES " + values + ") AS v(id, price, stock) WHERE p.id = v.id " +
+                "RETURNING " + PRODUCT_COLUMNS;
+        return jdbcTemplate.query(sql, productRowMapper, args.toArray());
+    }
+
+    /**
+     * Takes quantity units off the product's stock if, and only if, that many are
+     * available. The check and the write are one statement, so concurrent buyers
+     * cannot oversell and the row lock is held only for the statement. Products whose
+     * stock is split into buckets are never matched here; see ProductStockBucketRepository.
+     *
+     * @return the remaining stock, or empty if the product is missing or short
+     */
+    public OptionalInt decrementStock(Long productId, int quantity) {
+        List<Integer> stock = jdbcTemplate.queryForList(
+                "UPDATE products SET stock = stock - ?, updated_at = ? " +
+                "WHERE id = ? AND stock >= ? AND stock_buckets = 0 RETURNING stock",
+                Integer.class, quantity, clock.now(), productId, quantity);
+        return stock.isEmpty() ? OptionalInt.empty() : OptionalInt.of(stock.get(0));
+    }
+
+    /**
+     * Conditional decrement of several products. Products that are missing or short
+     * are left out of the result; the caller decides whether to roll back. Must run
+     * in a transaction, see {@link #lockInIdOrder}.
+     *
+     * @param quantities units to take per product id
+     * @return remaining stock per product id that was decremented
+     */
+    public Map<Long, Integer> decrementStockAll(Map<Long, Integer> quantities) {
+        return adjustStockAll(quantities, true);
+    }
+
+    /** @return the new stock, or empty if the product does not exist */
+    public OptionalInt incrementStock(Long productId, int quantity) {
+        List<Integer> stock = jdbcTemplate.queryForList(
+                "UPDATE products SET stock = stock + ?, updated_at = ? WHERE id = ? AND stock_buckets = 0 RETURNING stock",
+                Integer.class, quantity, clock.now(), productId);
+        return stock.isEmpty() ? OptionalInt.empty() : OptionalInt.of(stock.get(0));
+    }
+
+    /**
+     * Adds stock to several products in one statement. Must run in a transaction,
+     * see {@link #lockInIdOrder}.
+     *
+     * @return new stock per product id that exists
+     */
+    public Map<Long, Integer> incrementStockAll(Map<Long, Integer> quantities) {
+        return adjustStockAll(quantities, false);
+    }
+
+    /** Catalog version last handed out by any node; see ProductCatalogVersion. */
+    public long catalogVersion() {
+        return jdbcTemplate.queryForObject("SELECT last_value FROM products_catalog_version_seq", Long.class);
+    }
+
+    /** Moves the catalog version on for every node and returns the new value. */
+    public long advanceCatalogVersion() {
+        return jdbcTemplate.queryForObject("SELECT nextval('products_catalog_version_seq')", Long.class);
+    }
+
+    // Explicit ids bypass the identity sequence, same as the seed data in changeset 008
+    public void resetIdSequence() {
+        jdbcTemplate.queryForObject(
+                "SELECT setval('products_id_seq', (SELECT COALESCE(MAX(id), 1) FROM products))", Long.class);
+    }
+
+    /**
+     * Locks the products' rows until the caller's transaction ends, always in id order.
+     * Row locks for a multi-row UPDATE ... FROM (VALUES ...) are taken in whatever order
+     * the join happens to produce rows, not in the order of the VALUES list, so two orders
+     * sharing products could deadlock; locking up front makes every transaction acquire
+     * them in the same order. Must run in a transaction.
+     *
+     * @return the ids that exist
+     */
+    public List<Long> lockInIdOrder(Collection<Long> productIds) {
+        if (productIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        StringJoiner placeholders = new StringJoiner(", ");
+        for (int i = 0; i < productIds.size(); i++) {
+            placeholders.add("?");
+        }
+        return jdbcTemplate.queryForList(
+                "SELECT id FROM products WHERE id IN (" + placeholders + ") ORDER BY id FOR UPDATE",
+                Long.class, productIds.toArray());
+    }
+
+    private Map<Long, Integer> adjustStockAll(Map<Long, Integer> quantities, boolean decrement) {
+        Map<Long, Integer> stock = new HashMap<>();
+        if (quantities.isEmpty()) {
+            return stock;
+        }
+        lockInIdOrder(quantities.keySet());
+        StringJoiner values = new StringJoiner(", ");
+        List<Object> args = new ArrayList<>(quantities.size() * 2 + 1);
+        args.add(clock.now());
+        quantities.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(line -> {
+                    values.add("(?::bigint, ?::integer)");
+                    args.add(line.getKey());
+                    args.add(line.getValue());
+                });
+        String sql = decrement
+                ? "UPDATE products p SET stock = p.stock - v.quantity, updated_at = ? " +
+                  "FROM (VALUES " + values + ") AS v(id, quantity) " +
+                  "WHERE p.id = v.id AND p.stock >= v.quantity AND p.stock_buckets = 0 RETURNING p.id, p.stock"
+                : "UPDATE products p SET stock = p.stock + v.quantity, updated_at = ? " +
+                  "FROM (VALUES " + values + ") AS v(id, quantity) " +
+                  "WHERE p.id = v.id AND p.stock_buckets = 0 RETURNING p.id, p.stock";
+        jdbcTemplate.query(sql, rs -> {
+            stock.put(rs.getLong("id"), rs.getInt("stock"));
+        }, args.toArray());
+        return stock;
+    }
+
+    private static int sum(int[] counts) {
+        int total = 0;
+        for (int count : counts) {
+            // The driver may report SUCCESS_NO_INFO (-2) for rewritten batches
+            total += count < 0 ? 1 : count;
+        }
+        return total;
+    }
+}
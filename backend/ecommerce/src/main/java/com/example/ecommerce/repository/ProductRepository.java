@@ -5,14 +5,18 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.QueryHint;
+
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, ProductRepositoryCustom {
     @Query("SELECT p FROM Product p WHERE LOWER(p.category) = LOWER(:category)")
     List<Product> findByCategory(@Param("category") String category);
     
@@ -24,13 +28,31 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     
     @Query("SELECT p FROM Product p WHERE LOWER(p.category) = LOWER(:category) AND p.price >= :minPrice AND p.price <= :maxPrice")
     Page<Product> findByCategoryAndPriceRange(@Param("category") String category, @Param("minPrice") BigDecimal minPrice, @Param("maxPrice") BigDecimal maxPrice, Pageable pageable);
-    
+
     @Query("SELECT DISTINCT p.category FROM Product p ORDER BY p.category")
     List<String> findAllCategories();
 
+    // Rows of (category, products, products in stock)
+    @Query("SELECT p.category, COUNT(p), SUM(CASE WHEN p.stock > 0 THEN 1 ELSE 0 END) FROM Product p GROUP BY p.category ORDER BY p.category")
+    List<Object[]> findCategoryCounts();
+
+    // Rows of (id, name, description, price, category, stock, low stock threshold, created at),
+    // the columns the in-memory catalog views are built from
+    @Query("SELECT p.id, p.name, p.description, p.price, p.category, p.stock, p.lowStockThreshold, p.createdAt FROM Product p")
+    List<Object[]> findCatalogRows();
+
     @Query("SELECT p FROM Product p")
     Page<Product> findAllPaginated(Pageable pageable);
 
+    // Server-side cursor reads for exports; must be consumed inside a transaction
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "500"))
+    @Query("SELECT p FROM Product p ORDER BY p.id")
+    Stream<Product> streamAll();
+
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "500"))
+    @Query("SELECT p FROM Product p WHERE LOWER(p.category) = LOWER(:category) ORDER BY p.id")
+    Stream<Product> streamByCategory(@Param("category") String category);
+
     @Query("SELECT p FROM Product p WHERE LOWER(p.name) LIKE LOWER(CONCAT('%', :query, '%')) OR LOWER(p.description) LIKE LOWER(CONCAT('%', :query, '%'))")
     Page<Product> searchProducts(@Param("query") String query, Pageable pageable);
 
@@ -38,4 +60,34 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     Page<Product> searchProductsByCategory(@Param("query") String query, @Param("category") String category, Pageable pageable);
 
     List<Product> findByNameContainingIgnoreCaseOrDescriptionContainingIgnoreCase(String name, String description);
+
+    // Full-text search over the generated search_vector column (PostgreSQL only)
+    @Query(value = "SELECT * FROM products p WHERE p.search_vector @@ to_tsquery('english', :tsQuery) " +
+            "ORDER BY ts_rank(p.search_vector, to_tsquery('english', :tsQuery)) DESC, p.id",
+            countQuery = "SELECT count(*) FROM products p WHERE p.search_vector @@ to_tsquery('english', :tsQuery)",
+            nativeQuery = true)
+    Page<Product> fullTextSearch(@Param("tsQuery") String tsQuery, Pageable pageable);
+
+    @Query(value = "SELECT * FROM products p WHERE p.search_vector @@ to_tsquery('english', :tsQuery) " +
+            "AND LOWER(p.category) = LOWER(:category) " +
+            "ORDER BY ts_rank(p.search_vector, to_tsquery('english', :tsQuery)) DESC, p.id",
+            countQuery = "SELECT count(*) FROM products p WHERE p.search_vector @@ to_tsquery('english', :tsQuery) " +
+                    "AND LOWER(p.category) = LOWER(:category)",
+            nativeQuery = true)
+    Page<Product> fullTextSearchByCategory(@Param("tsQuery") String tsQuery, @Param("category") String category, Pageable pageable);
+
+    // Trigram similarity on the product name; backed by the pg_trgm GIN index (PostgreSQL only)
+    @Query(value = "SELECT * FROM products p WHERE LOWER(p.name) % LOWER(:query) " +
+            "ORDER BY similarity(LOWER(p.name), LOWER(:query)) DESC, p.id",
+            countQuery = "SELECT count(*) FROM products p WHERE LOWER(p.name) % LOWER(:query)",
+            nativeQuery = true)
+    Page<Product> trigramSearch(@Param("query") String query, Pageable pageable);
+
+    @Query(value = "SELECT * FROM products p WHERE LOWER(p.name) % LOWER(:query) " +
+            "AND LOWER(p.category) = LOWER(:category) " +
+            "ORDER BY similarity(LOWER(p.name), LOWER(:query)) DESC, p.id",
+            countQuery = "SELECT count(*) FROM products p WHERE LOWER(p.name) % LOWER(:query) " +
+                    "AND LOWER(p.category) = LOWER(:category)",
+            nativeQuery = true)
+    Page<Product> trigramSearchByCategory(@Param("query") String query, @Param("category") String category, Pageable pageable);
 } 
\ No newline at end of file
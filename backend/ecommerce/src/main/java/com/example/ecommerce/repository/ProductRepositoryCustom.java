@@ -0,0 +1,20 @@
+package com.example.ecommerce.repository;
+
+import com.example.ecommerce.model.Product;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+public interface ProductRepositoryCustom {
+
+    /**
+     * Keyset page ordered by (sortKey, id). Rows strictly after (afterValue, afterId)
+     * are returned; pass a null afterId for the first page. Null filters are not applied.
+     */
+    List<Product> findKeysetPage(String category, BigDecimal minPrice, BigDecimal maxPrice,
+                                 String sortKey, boolean ascending,
+                                 Object afterValue, Long afterId, int limit);
+
+    /** Number of rows the keyset pages with the same filters walk through. */
+    long countFiltered(String category, BigDecimal minPrice, BigDecimal maxPrice);
+}
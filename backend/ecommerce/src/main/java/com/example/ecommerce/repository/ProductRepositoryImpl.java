@@ -0,0 +1,82 @@
+package com.example.ecommerce.repository;
+
+import com.example.ecommerce.model.Product;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+
+public class ProductRepositoryImpl implements ProductRepositoryCustom {
+    private static final Set<String> KEYSET_SORT_KEYS = Set.of("name", "price", "createdAt");
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Product> findKeysetPage(String category, BigDecimal minPrice, BigDecimal maxPrice,
+                                        String sortKey, boolean ascending,
+                                        Object afterValue, Long afterId, int limit) {
+        if (!KEYSET_SORT_KEYS.contains(sortKey)) {
+            throw new IllegalArgumentException("Unsupported keyset sort key: " + sortKey);
+        }
+        String key = "p." + sortKey;
+        String direction = ascending ? "ASC" : "DESC";
+        String after = ascending ? ">" : "<";
+
+        StringBuilder jpql = new StringBuilder("SELECT p FROM Product p WHERE 1 = 1");
+        appendFilters(jpql, category, minPrice, maxPrice);
+        if (afterId != null) {
+            // The inclusive bound on the sort key lets the (key, id) index seek straight to the cursor
+            jpql.append(" AND ").append(key).append(' ').append(after).append("= :afterValue")
+                .append(" AND (").append(key).append(' ').append(after).append(" :afterValue")
+                .append(" OR p.id ").append(after).append(" :afterId)");
+        }
+        jpql.append(" ORDER BY ").append(key).append(' ').append(direction)
+            .append(", p.id ").append(direction);
+
+        TypedQuery<Product> query = entityManager.createQuery(jpql.toString(), Product.class);
+        bindFilters(query, category, minPrice, maxPrice);
+        if (afterId != null) {
+            query.setParameter("afterValue", afterValue);
+            query.setParameter("afterId", afterId);
+        }
+        return query.setMaxResults(limit).getResultList();
+    }
+
+    @Override
+    public long countFiltered(String category, BigDecimal minPrice, BigDecimal maxPrice) {
+        StringBuilder jpql = new StringBuilder("SELECT COUNT(p) FROM Product p WHERE 1 = 1");
+        appendFilters(jpql, category, minPrice, maxPrice);
+        TypedQuery<Long> query = entityManager.createQuery(jpql.toString(), Long.class);
+        bindFilters(query, category, minPrice, maxPrice);
+        return query.getSingleResult();
+    }
+
+    // Same category match as the repository's derived queries, so both paths agree on what a category holds
+    private static void appendFilters(StringBuilder jpql, String category, BigDecimal minPrice, BigDecimal maxPrice) {
+        if (category != null) {
+            jpql.append(" AND LOWER(p.category) = LOWER(:category)");
+        }
+        if (minPrice != null) {
+            jpql.append(" AND p.price >= :minPrice");
+        }
+        if (maxPrice != null) {
+            jpql.append(" AND p.price <= :maxPrice");
+        }
+    }
+
+    private static void bindFilters(TypedQuery<?> query, String category, BigDecimal minPrice, BigDecimal maxPrice) {
+        if (category != null) {
+            query.setParameter("category", category);
+        }
+        if (minPrice != null) {
+            query.setParameter("minPrice", minPrice);
+        }
+        if (maxPrice != null) {
+            query.setParameter("maxPrice", maxPrice);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.ecommerce.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.StringJoiner;
+
+/**
+ * JDBC access to product_stock_buckets, the per-product stock sub-rows of products
+ * whose stock is bucketed (products.stock_buckets > 0). For those products
+ * products.stock is only a cached aggregate of the buckets.
+ */
+@Repository
+public class ProductStockBucketRepository {
+    private final JdbcTemplate jdbcTemplate;
+    private final DatabaseClock clock;
+
+    public ProductStockBucketRepository(JdbcTemplate jdbcTemplate, DatabaseClock clock) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.clock = clock;
+    }
+
+    /** products.stock of every bucketed product, by id. */
+    public Map<Long, Integer> findBucketedRowStocks() {
+        Map<Long, Integer> stocks = new HashMap<>();
+        jdbcTemplate.query("SELECT id, stock FROM products WHERE stock_buckets > 0", rs -> {
+            stocks.put(rs.getLong("id"), rs.getInt("stock"));
+        });
+        return stocks;
+    }
+
+    /** products.stock of the product if its stock is bucketed, null if it is not or does not exist. */
+    public Integer findBucketedRowStock(Long productId) {
+        List<Integer> stock = jdbcTemplate.queryForList(
+                "SELECT stock FROM products WHERE id = ? AND stock_buckets > 0", Integer.class, productId);
+        return stock.isEmpty() ? null : stock.get(0);
+    }
+
+    /** @return products.stock, or empty if the product does not exist; the row stays locked */
+    public OptionalInt lockProductStock(Long productId) {
+        List<Integer> stock = jdbcTemplate.queryForList(
+                "SELECT stock FROM products WHERE id = ? FOR UPDATE", Integer.class, productId);
+        return stock.isEmpty() ? OptionalInt.empty() : OptionalInt.of(stock.get(0));
+    }
+
+    /** Stock of every bucket of the product in bucket order, locked for the current transaction. */
+    public List<Integer> lockBuckets(Long productId) {
+        return jdbcTemplate.queryForList(
+                "SELECT stock FROM product_stock_buckets WHERE product_id = ? ORDER BY bucket FOR UPDATE",
+                Integer.class, productId);
+    }
+
+    /**
+     * Sets the stock of buckets 0 to stocks.length - 1 with one UPDATE of the existing
+     * rows, so a rebalance leaves the rows in place instead of deleting and inserting
+     * them. Buckets are numbered from 0 without gaps; the ones the product does not
+     * have yet are inserted.
+     */
+    public void writeBuckets(Long productId, int[] stocks) {
+        StringJoiner values = new StringJoiner(", ");
+        List<Object> args = new ArrayList<>(stocks.length * 2 + 1);
+        for (int bucket = 0; bucket < stocks.length; bucket++) {
+            values.add("(?::integer, ?::integer)");
+            args.add(bucket);
+            args.add(stocks[bucket]);
+        }
+        args.add(productId);
+        int updated = jdbcTemplate.update(
+                "UPDATE product_stock_buckets b SET stock = v.stock FROM (VALUES " + values + ") AS v(bucket, stock) " +
+                "WHERE b.product_id = ? AND b.bucket = v.bucket", args.toArray());
+        if (updated < stocks.length) {
+            List<Object[]> rows = new ArrayList<>(stocks.length - updated);
+            for (int bucket = updated; bucket < stocks.length; bucket++) {
+                rows.add(new Object[] {productId, bucket, stocks[bucket]});
+            }
+            jdbcTemplate.batchUpdate("INSERT INTO product_stock_buckets (product_id, bucket, stock) VALUES (?, ?, ?)", rows);
+        }
+    }
+
+    /** Drops the product's buckets numbered from the given one up, e.g. when it gets fewer buckets. */
+    public void deleteBucketsFrom(Long productId, int bucket) {
+        jdbcTemplate.update("DELETE FROM product_stock_buckets WHERE product_id = ? AND bucket >= ?", productId, bucket);
+    }
+
+    public void deleteBuckets(Long productId) {
+        jdbcTemplate.update("DELETE FROM product_stock_buckets WHERE product_id = ?", productId);
+    }
+
+    public void setStockBuckets(Long productId, int buckets, int stock) {
+        jdbcTemplate.update("UPDATE products SET stock_buckets = ?, stock = ?, updated_at = ? WHERE id = ?",
+                buckets, stock, clock.now(), productId);
+    }
+
+    /**
+     * Takes quantity units from one random bucket that holds at least that many,
+     * skipping buckets locked by other transactions.
+     *
+     * @return what is left in that bucket, or empty if no unlocked bucket can cover the quantity
+     */
+    public OptionalInt takeFromBucket(Long productId, int quantity) {
+        List<Integer> stock = jdbcTemplate.queryForList(
+                "UPDATE product_stock_buckets b SET stock = b.stock - ? " +
+                "FROM (SELECT bucket FROM product_stock_buckets WHERE product_id = ? AND stock >= ? " +
+                "ORDER BY random() LIMIT 1 FOR UPDATE SKIP LOCKED) pick " +
+                "WHERE b.product_id = ? AND b.bucket = pick.bucket RETURNING b.stock",
+                Integer.class, quantity, productId, quantity, productId);
+        return stock.isEmpty() ? OptionalInt.empty() : OptionalInt.of(stock.get(0));
+    }
+
+    /**
+     * Adds quantity units to the lowest unlocked bucket of the product.
+     *
+     * @return the new stock of that bucket, or empty if every bucket is locked or there are none
+     */
+    public OptionalInt addToBucket(Long productId, int quantity) {
+        List<Integer> stock = jdbcTemplate.queryForList(
+                "UPDATE product_stock_buckets b SET stock = b.stock + ? " +
+                "FROM (SELECT bucket FROM product_stock_buckets WHERE product_id = ? " +
+                "ORDER BY stock, bucket LIMIT 1 FOR UPDATE SKIP LOCKED) pick " +
+                "WHERE b.product_id = ? AND b.bucket = pick.bucket RETURNING b.stock",
+                Integer.class, quantity, productId, productId);
+        return stock.isEmpty() ? OptionalInt.empty() : OptionalInt.of(stock.get(0));
+    }
+
+    /** @return the sum of the product's buckets, or null if it has none */
+    public Integer totalStock(Long productId) {
+        return jdbcTemplate.queryForObject(
+                "SELECT SUM(stock) FROM product_stock_buckets WHERE product_id = ?", Integer.class, productId);
+    }
+
+    /**
+     * Copies the bucket totals into products.stock where they differ.
+     *
+     * @return the new products.stock of every row that changed
+     */
+    public Map<Long, Integer> syncAggregates() {
+        Map<Long, Integer> stocks = new HashMap<>();
+        jdbcTemplate.query(
+                "UPDATE products p SET stock = s.total, updated_at = ? " +
+                "FROM (SELECT product_id, SUM(stock)::integer AS total FROM product_stock_buckets " +
+                "GROUP BY product_id) s WHERE p.id = s.product_id AND p.stock <> s.total RETURNING p.id, p.stock",
+                rs -> {
+                    stocks.put(rs.getLong("id"), rs.getInt("stock"));
+                }, clock.now());
+        return stocks;
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.ecommerce.repository;
+
+import com.example.ecommerce.model.StockReservation;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface StockReservationRepository extends JpaRepository<StockReservation, Long> {
+    List<StockReservation> findByPaymentIntentId(String paymentIntentId);
+    List<StockReservation> findByExpiresAtAfter(LocalDateTime now);
+    List<StockReservation> findByUserId(Long userId);
+    List<StockReservation> findByExpiresAtLessThanEqualOrderById(LocalDateTime now, Pageable pageable);
+
+    // Rows of product id and units held by unexpired reservations, across all nodes
+    @Query("SELECT r.productId, SUM(r.quantity) FROM StockReservation r " +
+           "WHERE r.productId IN :productIds AND r.expiresAt > :now GROUP BY r.productId")
+    List<Object[]> sumActiveByProductIds(@Param("productIds") Collection<Long> productIds,
+                                         @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE StockReservation r SET r.paymentIntentId = :paymentIntentId WHERE r.reservationId = :reservationId")
+    int attachPaymentIntent(@Param("reservationId") String reservationId, @Param("paymentIntentId") String paymentIntentId);
+
+    @Modifying
+    @Query("DELETE FROM StockReservation r WHERE r.reservationId = :reservationId")
+    int deleteByReservationId(@Param("reservationId") String reservationId);
+
+    @Modifying
+    @Query("DELETE FROM StockReservation r WHERE r.expiresAt <= :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
@@ -6,6 +6,7 @@ import com.example.ecommerce.model.Product;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,4 +16,5 @@ public interface UserFavoriteRepository extends JpaRepository<UserFavorite, Long
     Optional<UserFavorite> findByUserAndProduct(User user, Product product);
     boolean existsByUserAndProduct(User user, Product product);
     void deleteByUserAndProduct(User user, Product product);
+    List<UserFavorite> findByProductIdIn(Collection<Long> productIds);
 } 
\ No newline at end of file
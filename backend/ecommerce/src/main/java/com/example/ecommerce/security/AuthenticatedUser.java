@@ -0,0 +1,23 @@
+package com.example.ecommerce.security;
+
+import com.example.ecommerce.model.User;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.Collection;
+
+/**
+ * Principal of an authenticated request. Keeps the users row it was built from,
+ * so controllers can use it instead of looking the user up by email again.
+ */
+public class AuthenticatedUser extends org.springframework.security.core.userdetails.User {
+    private final User account;
+
+    public AuthenticatedUser(User account, Collection<? extends GrantedAuthority> authorities) {
+        super(account.getEmail(), account.getPassword(), authorities);
+        this.account = account;
+    }
+
+    public User getAccount() {
+        return account;
+    }
+}
@@ -10,6 +10,8 @@ import com.example.ecommerce.model.PasswordResetToken;
 import com.example.ecommerce.repository.UserRepository;
 import com.example.ecommerce.repository.PasswordResetTokenRepository;
 import com.example.ecommerce.security.JwtUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.mail.SimpleMailMessage;
@@ -39,6 +41,7 @@ import java.util.Optional;
 
 @Service
 public class AuthService {
+    private static final Logger logger = LoggerFactory.getLogger(AuthService.class);
 
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
@@ -46,6 +49,7 @@ public class AuthService {
     private final JwtUtils jwtUtils;
     private final JavaMailSender emailSender;
     private final PasswordResetTokenRepository passwordResetTokenRepository;
+    private final CartService cartService;
 
     @Value("${app.upload.dir:/app/uploads}")
     private String uploadDir;
@@ -58,13 +62,15 @@ public class AuthService {
                       AuthenticationManager authenticationManager,
                       JwtUtils jwtUtils,
                       JavaMailSender emailSender,
-                      PasswordResetTokenRepository passwordResetTokenRepository) {
+                      PasswordResetTokenRepository passwordResetTokenRepository,
+                      CartService cartService) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.authenticationManager = authenticationManager;
         this.jwtUtils = jwtUtils;
         this.emailSender = emailSender;
         this.passwordResetTokenRepository = passwordResetTokenRepository;
+        this.cartService = cartService;
     }
 
     public ResponseEntity<?> register(RegisterRequest request) {
@@ -176,6 +182,27 @@ public class AuthService {
         }
     }
 
+    /**
+     * Merges a guest cart into the cart of the user who just logged in. A cart that
+     * cannot be merged must not fail the login, so a failure is only reported through
+     * the result; the guest cart is then still there for the next login.
+     *
+     * @return whether the guest cart is gone into the user's cart
+     */
+    public boolean mergeGuestCart(String email, String guestCartId) {
+        User user = userRepository.findByEmail(email);
+        if (user == null) {
+            return false;
+        }
+        try {
+            cartService.mergeGuestCart(user, guestCartId);
+            return true;
+        } catch (RuntimeException e) {
+            logger.warn("Failed to merge guest cart into cart of user {}: {}", user.getId(), e.getMessage());
+            return false;
+        }
+    }
+
     public ResponseEntity<?> verifyToken() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         if (authentication != null && authentication.isAuthenticated()) {
@@ -0,0 +1,182 @@
+package com.example.ecommerce.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only NDJSON file of cart snapshots behind InMemoryCartStore. A change is
+ * appended before it is acknowledged, so carts that have not reached the database
+ * yet survive a restart. Only the latest snapshot per user counts; the store
+ * rewrites the file with the still unflushed carts after every flush cycle.
+ */
+final class CartJournal {
+    private static final Logger logger = LoggerFactory.getLogger(CartJournal.class);
+
+    private final Path path;
+    private final ObjectMapper objectMapper;
+    private final boolean sync;
+    private FileChannel channel;
+
+    CartJournal(Path path, ObjectMapper objectMapper, boolean sync) throws IOException {
+        this.path = path.toAbsolutePath();
+        this.objectMapper = objectMapper;
+        this.sync = sync;
+        Files.createDirectories(this.path.getParent());
+        open();
+    }
+
+    /** Appends the snapshots with a single force, so a batch of changes costs one sync. */
+    synchronized void appendAll(Collection<Record> records) throws IOException {
+        for (Record record : records) {
+            write(channel, record);
+        }
+        if (sync) {
+            channel.force(false);
+        }
+    }
+
+    /** Latest snapshot per user. A line torn by a crash mid-write is skipped. */
+    synchronized Map<Long, Record> readAll() throws IOException {
+        Map<Long, Record> latest = new LinkedHashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    Record record = objectMapper.readValue(line, Record.class);
+                    latest.put(record.getUserId(), record);
+                } catch (JsonProcessingException e) {
+                    logger.warn("Skipping unreadable cart journal line: {}", e.getOriginalMessage());
+                }
+            }
+        }
+        return latest;
+    }
+
+    /** Atomically replaces the journal with the given snapshots. */
+    synchronized void rewrite(Collection<Record> records) throws IOException {
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (Record record : records) {
+                write(out, record);
+            }
+            out.force(true);
+        }
+        channel.close();
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        open();
+    }
+
+    synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    private void open() throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private void write(FileChannel out, Record record) throws IOException {
+        ByteBuffer line = ByteBuffer.wrap((objectMapper.writeValueAsString(record) + "\n").getBytes(StandardCharsets.UTF_8));
+        while (line.hasRemaining()) {
+            out.write(line);
+        }
+    }
+
+    static final class Record {
+        private Long userId;
+        private Long cartId;
+        private List<Line> items = new ArrayList<>();
+
+        public Long getUserId() {
+            return userId;
+        }
+
+        public void setUserId(Long userId) {
+            this.userId = userId;
+        }
+
+        public Long getCartId() {
+            return cartId;
+        }
+
+        public void setCartId(Long cartId) {
+            this.cartId = cartId;
+        }
+
+        public List<Line> getItems() {
+            return items;
+        }
+
+        public void setItems(List<Line> items) {
+            this.items = items;
+        }
+    }
+
+    static final class Line {
+        private Long productId;
+        private String productName;
+        private String productImage;
+        private Double price;
+        private Integer quantity;
+
+        public Long getProductId() {
+            return productId;
+        }
+
+        public void setProductId(Long productId) {
+            this.productId = productId;
+        }
+
+        public String getProductName() {
+            return productName;
+        }
+
+        public void setProductName(String productName) {
+            this.productName = productName;
+        }
+
+        public String getProductImage() {
+            return productImage;
+        }
+
+        public void setProductImage(String productImage) {
+            this.productImage = productImage;
+        }
+
+        public Double getPrice() {
+            return price;
+        }
+
+        public void setPrice(Double price) {
+            this.price = price;
+        }
+
+        public Integer getQuantity() {
+            return quantity;
+        }
+
+        public void setQuantity(Integer quantity) {
+            this.quantity = quantity;
+        }
+    }
+}
@@ -1,72 +1,96 @@
 package com.example.ecommerce.service;
 
+import com.example.ecommerce.dto.CartOperation;
 import com.example.ecommerce.model.Cart;
 import com.example.ecommerce.model.CartItem;
+import com.example.ecommerce.model.Product;
 import com.example.ecommerce.model.User;
-import com.example.ecommerce.repository.CartRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 @Service
 public class CartService {
-    private final CartRepository cartRepository;
+    private final CartStore cartStore;
+    private final GuestCartStore guestCartStore;
     private final ProductService productService;
+    private final PriceSnapshot priceSnapshot;
+    private final int maxBatchOperations;
+    private final int maxUpdateAttempts;
 
-    public CartService(CartRepository cartRepository, ProductService productService) {
-        this.cartRepository = cartRepository;
+    public CartService(CartStore cartStore, GuestCartStore guestCartStore, ProductService productService,
+                       PriceSnapshot priceSnapshot,
+                       @Value("${cart.batch.max-operations:200}") int maxBatchOperations,
+                       @Value("${cart.update.max-attempts:5}") int maxUpdateAttempts) {
+        this.cartStore = cartStore;
+        this.guestCartStore = guestCartStore;
         this.productService = productService;
+        this.priceSnapshot = priceSnapshot;
+        this.maxBatchOperations = maxBatchOperations;
+        this.maxUpdateAttempts = Math.max(maxUpdateAttempts, 1);
+    }
+
+    /** Strong ETag of a cart's content: its lines' products, quantities and prices. */
+    public static String etag(Cart cart) {
+        StringBuilder content = new StringBuilder();
+        cart.getItems().stream()
+                .sorted(Comparator.comparing(CartItem::getProductId))
+                .forEach(item -> content.append(item.getProductId()).append(':').append(item.getQuantity())
+                        .append(':').append(item.getPrice()).append(';'));
+        return "\"" + DigestUtils.md5DigestAsHex(content.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
     }
 
-    @Transactional
     public Cart getOrCreateCart(User user) {
-        return cartRepository.findLatestByUser(user)
-                .orElseGet(() -> {
-                    Cart cart = new Cart();
-                    cart.setUser(user);
-                    return cartRepository.save(cart);
-                });
+        return repriced(cartStore.get(user));
     }
 
-    @Transactional
-    public Cart addToCart(User user, Long productId, String productName, String productImage, Double price, Integer quantity) {
+    public Cart addToCart(User user, Long productId, String productName, String productImage, Double price, Integer quantity,
+                          String ifMatch) {
         // Validate stock availability before adding to cart
         if (!productService.isStockAvailable(productId, quantity)) {
             throw new RuntimeException("Insufficient stock for product: " + productName);
         }
         
-        Cart cart = getOrCreateCart(user);
-        
-        Optional<CartItem> existingItem = cart.getItems().stream()
-                .filter(item -> item.getProductId().equals(productId))
-                .findFirst();
+        return update(user, ifMatch, cart -> {
+            Optional<CartItem> existingItem = cart.getItems().stream()
+                    .filter(item -> item.getProductId().equals(productId))
+                    .findFirst();
 
-        if (existingItem.isPresent()) {
-            CartItem item = existingItem.get();
-            // Check if the new total quantity is available
-            if (!productService.isStockAvailable(productId, item.getQuantity() + quantity)) {
-                throw new RuntimeException("Insufficient stock for product: " + productName);
+            if (existingItem.isPresent()) {
+                CartItem item = existingItem.get();
+                // Check if the new total quantity is available
+                if (!productService.isStockAvailable(productId, item.getQuantity() + quantity)) {
+                    throw new RuntimeException("Insufficient stock for product: " + productName);
+                }
+                item.setQuantity(item.getQuantity() + quantity);
+            } else {
+                CartItem newItem = new CartItem();
+                newItem.setProductId(productId);
+                newItem.setProductName(productName);
+                newItem.setProductImage(productImage);
+                newItem.setPrice(price);
+                newItem.setQuantity(quantity);
+                cart.addItem(newItem);
             }
-            item.setQuantity(item.getQuantity() + quantity);
-        } else {
-            CartItem newItem = new CartItem();
-            newItem.setProductId(productId);
-            newItem.setProductName(productName);
-            newItem.setProductImage(productImage);
-            newItem.setPrice(price);
-            newItem.setQuantity(quantity);
-            cart.addItem(newItem);
-        }
-
-        return cartRepository.save(cart);
+        });
     }
 
-    @Transactional
-    public Cart updateCartItemQuantity(User user, Long productId, Integer quantity) {
-        Cart cart = getOrCreateCart(user);
-        
-        cart.getItems().stream()
+    public Cart updateCartItemQuantity(User user, Long productId, Integer quantity, String ifMatch) {
+        return update(user, ifMatch, cart -> cart.getItems().stream()
                 .filter(item -> item.getProductId().equals(productId))
                 .findFirst()
                 .ifPresent(item -> {
@@ -79,31 +103,269 @@ public class CartService {
                         }
                         item.setQuantity(quantity);
                     }
-                });
-
-        return cartRepository.save(cart);
+                }));
     }
 
-    @Transactional
-    public Cart removeFromCart(User user, Long productId) {
-        Cart cart = getOrCreateCart(user);
-        
-        cart.getItems().stream()
+    public Cart removeFromCart(User user, Long productId, String ifMatch) {
+        return update(user, ifMatch, cart -> cart.getItems().stream()
                 .filter(item -> item.getProductId().equals(productId))
                 .findFirst()
-                .ifPresent(cart::removeItem);
+                .ifPresent(cart::removeItem));
+    }
+
+    /**
+     * Applies the operations in order as one change: either all of them take effect
+     * or none do. Stock is read once for every product involved and checked against
+     * the final quantities, so an ADD followed by an UPDATE of the same line is judged
+     * by where it ends up. A new line whose ADD leaves out the product's name or price
+     * takes them from the product.
+     */
+    public Cart applyBatch(User user, List<CartOperation> operations, String ifMatch) {
+        return update(user, ifMatch, batch(operations));
+    }
+
+    public Cart applyGuestBatch(String guestId, List<CartOperation> operations) {
+        return guestCartStore.update(guestId, batch(operations).andThen(this::applyCurrentPrices));
+    }
 
-        return cartRepository.save(cart);
+    public Cart getGuestCart(String guestId) {
+        return repriced(guestCartStore.get(guestId));
     }
 
-    @Transactional
-    public void clearCart(User user) {
-        Cart cart = getOrCreateCart(user);
-        cart.getItems().clear();
-        cartRepository.save(cart);
+    public void clearGuestCart(String guestId) {
+        guestCartStore.remove(guestId);
+    }
+
+    /**
+     * Moves a guest cart into the user's cart as a single update. Quantities of
+     * products in both are added up; every line is capped at the stock available now,
+     * read with one query, and lines of products that are gone or sold out are dropped.
+     * The guest cart is only removed once the user's cart took the merge, so a failed
+     * merge leaves it in place to be merged on the next login.
+     */
+    public void mergeGuestCart(User user, String guestId) {
+        Cart guest = guestCartStore.get(guestId);
+        if (guest.getItems().isEmpty()) {
+            guestCartStore.remove(guestId);
+            return;
+        }
+        Set<Long> productIds = new HashSet<>();
+        for (CartItem item : guest.getItems()) {
+            productIds.add(item.getProductId());
+        }
+        Map<Long, Integer> stock = productService.getStockLevels(productIds);
+
+        update(user, null, cart -> {
+            for (CartItem guestItem : guest.getItems()) {
+                int available = stock.getOrDefault(guestItem.getProductId(), 0);
+                Optional<CartItem> existingItem = cart.getItems().stream()
+                        .filter(item -> item.getProductId().equals(guestItem.getProductId()))
+                        .findFirst();
+                if (existingItem.isPresent()) {
+                    CartItem item = existingItem.get();
+                    int merged = Math.min(item.getQuantity() + guestItem.getQuantity(), available);
+                    item.setQuantity(Math.max(item.getQuantity(), merged));
+                } else if (available > 0) {
+                    CartItem newItem = new CartItem();
+                    newItem.setProductId(guestItem.getProductId());
+                    newItem.setProductName(guestItem.getProductName());
+                    newItem.setProductImage(guestItem.getProductImage());
+                    newItem.setPrice(guestItem.getPrice());
+                    newItem.setQuantity(Math.min(guestItem.getQuantity(), available));
+                    cart.addItem(newItem);
+                }
+            }
+        });
+        guestCartStore.remove(guestId);
+    }
+
+    private Consumer<Cart> batch(List<CartOperation> operations) {
+        if (operations == null || operations.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No cart operations given");
+        }
+        if (operations.size() > maxBatchOperations) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "At most " + maxBatchOperations + " cart operations per batch");
+        }
+        Set<Long> stocked = new HashSet<>();
+        for (CartOperation operation : operations) {
+            if (operation.getType() == null || operation.getProductId() == null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cart operation needs a type and a productId");
+            }
+            if (operation.getType() != CartOperation.Type.REMOVE && operation.getQuantity() == null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        operation.getType() + " of product " + operation.getProductId() + " needs a quantity");
+            }
+            if (operation.getType() == CartOperation.Type.ADD && operation.getQuantity() <= 0) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "ADD of product " + operation.getProductId() + " needs a positive quantity");
+            }
+            if (operation.getType() != CartOperation.Type.REMOVE) {
+                stocked.add(operation.getProductId());
+            }
+        }
+        Map<Long, Integer> stock = productService.getStockLevels(stocked);
+        Map<Long, Product> details = new HashMap<>();
+        for (CartOperation operation : operations) {
+            if (operation.getType() == CartOperation.Type.ADD
+                    && (operation.getProductName() == null || operation.getPrice() == null)) {
+                details.computeIfAbsent(operation.getProductId(), productId -> productService.getProductById(productId)
+                        .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                                "Product " + productId + " does not exist")));
+            }
+        }
+
+        return cart -> {
+            for (CartOperation operation : operations) {
+                apply(cart, operation, details.get(operation.getProductId()));
+            }
+            for (CartItem item : cart.getItems()) {
+                if (stocked.contains(item.getProductId())
+                        && item.getQuantity() > stock.getOrDefault(item.getProductId(), 0)) {
+                    throw new RuntimeException("Insufficient stock for product: " + item.getProductName());
+                }
+            }
+        };
+    }
+
+    // The product is only there for an ADD that left out the line's details
+    private static void apply(Cart cart, CartOperation operation, Product product) {
+        Optional<CartItem> existingItem = cart.getItems().stream()
+                .filter(item -> item.getProductId().equals(operation.getProductId()))
+                .findFirst();
+        switch (operation.getType()) {
+            case ADD:
+                if (existingItem.isPresent()) {
+                    CartItem item = existingItem.get();
+                    item.setQuantity(item.getQuantity() + operation.getQuantity());
+                } else {
+                    CartItem newItem = new CartItem();
+                    newItem.setProductId(operation.getProductId());
+                    newItem.setProductName(operation.getProductName());
+                    newItem.setProductImage(operation.getProductImage());
+                    newItem.setPrice(operation.getPrice());
+                    newItem.setQuantity(operation.getQuantity());
+                    if (product != null) {
+                        if (newItem.getProductName() == null) {
+                            newItem.setProductName(product.getName());
+                        }
+                        if (newItem.getProductImage() == null) {
+                            newItem.setProductImage(product.getImage());
+                        }
+                        if (newItem.getPrice() == null && product.getPrice() != null) {
+                            newItem.setPrice(product.getPrice().doubleValue());
+                        }
+                    }
+                    cart.addItem(newItem);
+                }
+                break;
+            case UPDATE:
+                existingItem.ifPresent(item -> {
+                    if (operation.getQuantity() <= 0) {
+                        cart.removeItem(item);
+                    } else {
+                        item.setQuantity(operation.getQuantity());
+                    }
+                });
+                break;
+            case REMOVE:
+                existingItem.ifPresent(cart::removeItem);
+                break;
+        }
+    }
+
+    public void clearCart(User user, String ifMatch) {
+        update(user, ifMatch, cart -> cart.getItems().clear());
+        cartStore.flush(user);
+    }
+
+    /** Writes any pending changes of the user's cart to the database, e.g. before checkout. */
+    public void flushCart(User user) {
+        cartStore.flush(user);
+    }
+
+    public Map<String, Object> getStoreStats() {
+        return cartStore.getStats();
+    }
+
+    /**
+     * Applies a change through the cart store, retrying it on a fresh cart when a
+     * concurrent writer got there first; the database store detects that through the
+     * carts version column. With an ifMatch the change only applies while the cart
+     * still has that ETag, checked against the same cart the change is applied to.
+     * Every change also brings the stored prices up to date, so the repriced view
+     * the client saw and the cart being checked have the same ETag.
+     */
+    private Cart update(User user, String ifMatch, Consumer<Cart> mutation) {
+        Consumer<Cart> conditional = cart -> {
+            applyCurrentPrices(cart);
+            if (ifMatch != null && !matches(ifMatch, etag(cart))) {
+                throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "Cart has changed");
+            }
+            mutation.accept(cart);
+            applyCurrentPrices(cart);
+        };
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return cartStore.update(user, conditional);
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= maxUpdateAttempts) {
+                    throw new ResponseStatusException(HttpStatus.CONFLICT, "Cart is being changed concurrently, please retry");
+                }
+            }
+        }
+    }
+
+    /**
+     * The cart as the client should see it: lines priced from the price snapshot, with
+     * the lines whose price moved since they were added flagged. The stored cart is
+     * returned as is when nothing moved; otherwise a copy is, the stored one is read-only.
+     */
+    private Cart repriced(Cart stored) {
+        if (stored.getItems().stream().noneMatch(item -> currentPrice(item) != null)) {
+            return stored;
+        }
+        Cart view = CartStore.copy(stored);
+        for (CartItem item : view.getItems()) {
+            Double current = currentPrice(item);
+            if (current != null) {
+                item.setPreviousPrice(item.getPrice());
+                item.setPriceChanged(true);
+                item.setPrice(current);
+            }
+        }
+        return view;
+    }
+
+    private void applyCurrentPrices(Cart cart) {
+        for (CartItem item : cart.getItems()) {
+            Double current = currentPrice(item);
+            if (current != null) {
+                item.setPrice(current);
+            }
+        }
+    }
+
+    // The line's price in the snapshot if it differs from the stored one, else null
+    private Double currentPrice(CartItem item) {
+        BigDecimal current = priceSnapshot.get(item.getProductId());
+        if (current == null || (item.getPrice() != null && BigDecimal.valueOf(item.getPrice()).compareTo(current) == 0)) {
+            return null;
+        }
+        return current.doubleValue();
+    }
+
+    private static boolean matches(String ifMatch, String etag) {
+        for (String candidate : ifMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || tag.equals(etag) || tag.equals("W/" + etag)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     public Cart getCart(User user) {
         return getOrCreateCart(user);
     }
-} 
\ No newline at end of file
+}
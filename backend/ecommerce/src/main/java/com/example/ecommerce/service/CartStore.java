@@ -0,0 +1,59 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.model.Cart;
+import com.example.ecommerce.model.CartItem;
+import com.example.ecommerce.model.User;
+
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Where CartService keeps carts. Selected with the {@code cart.store} property.
+ *
+ * Carts handed out by a store are read-only views; every change goes through
+ * {@link #update}, which applies it atomically per user.
+ */
+public interface CartStore {
+
+    /** The user's current cart, empty if they have none yet. */
+    Cart get(User user);
+
+    /**
+     * Applies a change to the user's cart. If the mutation throws, the cart is left
+     * as it was and the exception is rethrown.
+     *
+     * @return the cart after the change
+     */
+    Cart update(User user, Consumer<Cart> mutation);
+
+    /** Makes the user's cart durable in the carts tables before returning. */
+    void flush(User user);
+
+    /** Whether the store currently holds the user's cart outside the database. */
+    boolean isCached(Long userId);
+
+    /** Counters for the admin stats endpoint. */
+    Map<String, Object> getStats();
+
+    /** Detached copy of a cart, safe to hand out and to change without touching the original. */
+    static Cart copy(Cart source) {
+        Cart cart = new Cart();
+        cart.setId(source.getId());
+        cart.setUser(source.getUser());
+        cart.setCreatedAt(source.getCreatedAt());
+        cart.setUpdatedAt(source.getUpdatedAt());
+        for (CartItem sourceItem : source.getItems()) {
+            CartItem item = new CartItem();
+            item.setId(sourceItem.getId());
+            item.setProductId(sourceItem.getProductId());
+            item.setProductName(sourceItem.getProductName());
+            item.setProductImage(sourceItem.getProductImage());
+            item.setPrice(sourceItem.getPrice());
+            item.setQuantity(sourceItem.getQuantity());
+            item.setCreatedAt(sourceItem.getCreatedAt());
+            item.setUpdatedAt(sourceItem.getUpdatedAt());
+            cart.addItem(item);
+        }
+        return cart;
+    }
+}
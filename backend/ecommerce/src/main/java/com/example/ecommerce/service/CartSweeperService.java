@@ -0,0 +1,193 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.config.CartSweepConfig;
+import com.example.ecommerce.repository.CartSweepRepository;
+import com.example.ecommerce.repository.CartSweepRepository.StaleCart;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Deletes carts nobody will read again: carts replaced by a newer cart of the
+ * same user, and carts left untouched for longer than the retention period.
+ *
+ * Runs on its own thread so the pauses between batches do not hold up the shared
+ * scheduler. Each batch is found with a keyset scan, locked with SKIP LOCKED so a
+ * cart being written right now is left for the next run, and deleted in its own
+ * short transaction. Abandoned carts currently held by the cart store are skipped,
+ * the store writes them back with a fresh updated_at.
+ */
+@Service
+public class CartSweeperService {
+    private static final Logger logger = LoggerFactory.getLogger(CartSweeperService.class);
+
+    private final CartSweepRepository sweepRepository;
+    private final CartStore cartStore;
+    private final TransactionTemplate transactionTemplate;
+    private final CartSweepConfig config;
+
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong scanned = new AtomicLong();
+    private final AtomicLong deletedCarts = new AtomicLong();
+    private final AtomicLong deletedItems = new AtomicLong();
+    private final AtomicLong skippedCached = new AtomicLong();
+    private final AtomicLong skippedLocked = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private volatile LocalDateTime lastRunAt;
+    private volatile long lastRunMillis;
+    private volatile boolean running;
+    private Thread worker;
+
+    public CartSweeperService(CartSweepRepository sweepRepository, CartStore cartStore,
+                              PlatformTransactionManager transactionManager, CartSweepConfig config) {
+        this.sweepRepository = sweepRepository;
+        this.cartStore = cartStore;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.config = config;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!config.isEnabled()) {
+            return;
+        }
+        running = true;
+        worker = new Thread(this::runWorker, "cart-sweeper");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+            worker.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", config.isEnabled());
+        stats.put("runs", runs.get());
+        stats.put("scanned", scanned.get());
+        stats.put("deletedCarts", deletedCarts.get());
+        stats.put("deletedItems", deletedItems.get());
+        stats.put("skippedCached", skippedCached.get());
+        stats.put("skippedLocked", skippedLocked.get());
+        stats.put("failures", failures.get());
+        stats.put("lastRunAt", lastRunAt);
+        stats.put("lastRunMillis", lastRunMillis);
+        return stats;
+    }
+
+    private void runWorker() {
+        while (running) {
+            try {
+                sweep();
+                Thread.sleep(config.getIntervalMs());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                failures.incrementAndGet();
+                logger.error("Cart sweep failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void sweep() throws InterruptedException {
+        long started = System.currentTimeMillis();
+        int batchSize = Math.max(config.getBatchSize(), 1);
+        int budget = Math.max(config.getMaxBatchesPerRun(), 1);
+        long deletedBefore = deletedCarts.get();
+
+        long afterId = 0;
+        while (budget > 0) {
+            List<StaleCart> batch = sweepRepository.findSuperseded(afterId, batchSize);
+            if (batch.isEmpty()) {
+                break;
+            }
+            afterId = batch.get(batch.size() - 1).getId();
+            delete(batch, null, false);
+            budget--;
+            pause();
+        }
+
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(config.getRetentionDays());
+        LocalDateTime afterUpdatedAt = LocalDateTime.of(1970, 1, 1, 0, 0);
+        afterId = 0;
+        while (budget > 0) {
+            List<StaleCart> batch = sweepRepository.findUpdatedBefore(cutoff, afterUpdatedAt, afterId, batchSize);
+            if (batch.isEmpty()) {
+                break;
+            }
+            StaleCart last = batch.get(batch.size() - 1);
+            afterUpdatedAt = last.getUpdatedAt();
+            afterId = last.getId();
+            delete(batch, cutoff, true);
+            budget--;
+            pause();
+        }
+
+        runs.incrementAndGet();
+        lastRunAt = LocalDateTime.now();
+        lastRunMillis = System.currentTimeMillis() - started;
+        long deleted = deletedCarts.get() - deletedBefore;
+        if (deleted > 0 || budget == 0) {
+            logger.info("Cart sweep deleted {} carts in {} ms{}", deleted, lastRunMillis,
+                    budget == 0 ? ", batch limit reached" : "");
+        }
+    }
+
+    private void delete(List<StaleCart> batch, LocalDateTime changedBefore, boolean skipCached) {
+        scanned.addAndGet(batch.size());
+        List<Long> candidates = new ArrayList<>(batch.size());
+        for (StaleCart cart : batch) {
+            if (skipCached && cartStore.isCached(cart.getUserId())) {
+                skippedCached.incrementAndGet();
+            } else {
+                candidates.add(cart.getId());
+            }
+        }
+        if (candidates.isEmpty()) {
+            return;
+        }
+        try {
+            // {locked, items deleted}, counted only once the transaction has committed
+            int[] counts = transactionTemplate.execute(status -> {
+                List<Long> locked = sweepRepository.lockForDelete(candidates, changedBefore);
+                if (locked.isEmpty()) {
+                    return new int[] {0, 0};
+                }
+                int items = sweepRepository.deleteItems(locked);
+                sweepRepository.deleteCarts(locked);
+                return new int[] {locked.size(), items};
+            });
+            skippedLocked.addAndGet(candidates.size() - counts[0]);
+            deletedCarts.addAndGet(counts[0]);
+            deletedItems.addAndGet(counts[1]);
+        } catch (RuntimeException e) {
+            failures.incrementAndGet();
+            logger.error("Failed to delete {} stale carts: {}", candidates.size(), e.getMessage());
+        }
+    }
+
+    private void pause() throws InterruptedException {
+        if (config.getPauseMs() > 0) {
+            Thread.sleep(config.getPauseMs());
+        }
+    }
+}
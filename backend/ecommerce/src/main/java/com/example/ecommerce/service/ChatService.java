@@ -6,6 +6,7 @@ import com.example.ecommerce.model.User;
 import com.example.ecommerce.repository.ChatMessageRepository;
 import com.example.ecommerce.repository.ProductRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
@@ -21,6 +22,9 @@ public class ChatService {
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private ProductFuzzySearch productFuzzySearch;
+
     private static final ZoneId VIETNAM_ZONE = ZoneId.of("Asia/Ho_Chi_Minh");
 
     // Store conversation context for each user
@@ -139,6 +143,12 @@ public class ChatService {
         List<Product> products = productRepository.findByNameContainingIgnoreCaseOrDescriptionContainingIgnoreCase(
             searchQuery, searchQuery);
 
+        boolean fuzzyMatch = false;
+        if (products.isEmpty()) {
+            products = productFuzzySearch.search(searchQuery, null, PageRequest.of(0, 50)).getContent();
+            fuzzyMatch = !products.isEmpty();
+        }
+
         if (products.isEmpty()) {
             return String.format(
                 "I couldn't find any products matching '%s'. Would you like to:\n" +
@@ -153,6 +163,10 @@ public class ChatService {
         context.lastSearchResults = products;
         context.resultPage = 0;
 
+        if (fuzzyMatch) {
+            return String.format("I couldn't find an exact match for '%s', but these look close:\n\n", searchQuery)
+                + formatProductResults(products, 0);
+        }
         return formatProductResults(products, 0);
     }
 
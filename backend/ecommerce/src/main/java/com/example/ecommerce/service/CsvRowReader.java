@@ -0,0 +1,127 @@
+package com.example.ecommerce.service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Minimal RFC 4180 reader: comma separated, double-quoted fields with "" as an
+ * escaped quote, quoted fields may span lines. Reads one record at a time.
+ *
+ * A field longer than the limit rejects its record instead of being buffered.
+ * An unquoted one is skipped to the end of its line; a quoted one, most likely an
+ * unterminated quote, leaves no way to tell where the record ends, so the rest of
+ * the input is given up.
+ */
+final class CsvRowReader {
+    private final Reader reader;
+    private final int maxFieldLength;
+    private int peeked = -2;
+    private long line = 1;
+    private long recordLine;
+    private boolean abandoned;
+
+    CsvRowReader(Reader reader, int maxFieldLength) {
+        this.reader = reader;
+        this.maxFieldLength = maxFieldLength;
+    }
+
+    /** Line number the record last returned by {@link #next()} started on. */
+    long getRecordLine() {
+        return recordLine;
+    }
+
+    /**
+     * Returns the next record, or null at end of input.
+     *
+     * @throws ProductImportService.RowException if the record has an unterminated
+     *         quoted field or a field longer than the limit
+     */
+    List<String> next() throws IOException {
+        if (abandoned) {
+            return null;
+        }
+        int c = read();
+        while (c == '\r' || c == '\n') {
+            c = read();
+        }
+        if (c == -1) {
+            return null;
+        }
+        recordLine = line;
+
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        while (true) {
+            if (quoted) {
+                if (c == -1) {
+                    throw new ProductImportService.RowException(recordLine, "unterminated quoted field");
+                }
+                if (c == '"') {
+                    if (peek() == '"') {
+                        read();
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.length() == 0) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n' || c == '\r' || c == -1) {
+                if (c == '\r' && peek() == '\n') {
+                    read();
+                }
+                fields.add(field.toString());
+                return fields;
+            } else {
+                field.append((char) c);
+            }
+            if (field.length() > maxFieldLength) {
+                if (quoted) {
+                    abandoned = true;
+                    throw new ProductImportService.RowException(recordLine, "quoted field longer than "
+                            + maxFieldLength + " characters, the rest of the input was skipped");
+                }
+                skipLine();
+                throw new ProductImportService.RowException(recordLine,
+                        "field longer than " + maxFieldLength + " characters");
+            }
+            c = read();
+        }
+    }
+
+    private void skipLine() throws IOException {
+        int c;
+        do {
+            c = read();
+        } while (c != '\n' && c != '\r' && c != -1);
+    }
+
+    private int read() throws IOException {
+        int c;
+        if (peeked != -2) {
+            c = peeked;
+            peeked = -2;
+        } else {
+            c = reader.read();
+        }
+        if (c == '\n') {
+            line++;
+        }
+        return c;
+    }
+
+    private int peek() throws IOException {
+        if (peeked == -2) {
+            peeked = reader.read();
+        }
+        return peeked;
+    }
+}
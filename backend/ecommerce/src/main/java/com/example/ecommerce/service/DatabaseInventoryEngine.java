@@ -0,0 +1,154 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.repository.ProductJdbcRepository;
+import com.example.ecommerce.repository.ProductRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.TreeMap;
+
+/**
+ * Stock kept in products.stock and changed with conditional set-based UPDATEs in
+ * the caller's transaction. Products with bucketed stock are routed to
+ * StockBucketService instead.
+ *
+ * Routing starts from this node's view of which products are bucketed, which is
+ * stale when another node enabled or disabled buckets since. The plain statements
+ * skip bucketed rows and the bucket statements find no buckets on plain rows, so a
+ * line that misses is checked against products.stock_buckets and retried on the
+ * other path before it counts as missing or short.
+ */
+@Service
+@ConditionalOnProperty(name = "inventory.engine", havingValue = "database", matchIfMissing = true)
+public class DatabaseInventoryEngine implements InventoryEngine {
+    private final ProductJdbcRepository productJdbcRepository;
+    private final ProductRepository productRepository;
+    private final StockBucketService stockBucketService;
+
+    public DatabaseInventoryEngine(ProductJdbcRepository productJdbcRepository, ProductRepository productRepository,
+                                   StockBucketService stockBucketService) {
+        this.productJdbcRepository = productJdbcRepository;
+        this.productRepository = productRepository;
+        this.stockBucketService = stockBucketService;
+    }
+
+    @Override
+    @Transactional
+    public OptionalInt decrement(Long productId, int quantity) {
+        boolean bucketed = stockBucketService.isBucketed(productId);
+        OptionalInt remaining = bucketed
+                ? stockBucketService.take(productId, quantity)
+                : productJdbcRepository.decrementStock(productId, quantity);
+        return remaining.isPresent() ? remaining : retryOnOtherPath(productId, -quantity, bucketed);
+    }
+
+    // A short line throws, which rolls back the lines already decremented by the statement's transaction
+    @Override
+    @Transactional
+    public Map<Long, Integer> decrementAll(Map<Long, Integer> quantities) {
+        Map<Long, Integer> bucketed = new TreeMap<>();
+        Map<Long, Integer> plain = splitBucketed(quantities, bucketed);
+        Map<Long, Integer> remaining = productJdbcRepository.decrementStockAll(plain);
+        // Bucketed lines in id order too, so concurrent rebalances lock in the same order
+        for (Map.Entry<Long, Integer> line : bucketed.entrySet()) {
+            OptionalInt left = stockBucketService.take(line.getKey(), line.getValue());
+            if (left.isPresent()) {
+                remaining.put(line.getKey(), left.getAsInt());
+            }
+        }
+        for (Map.Entry<Long, Integer> line : quantities.entrySet()) {
+            if (!remaining.containsKey(line.getKey())) {
+                OptionalInt left = retryOnOtherPath(line.getKey(), -line.getValue(), bucketed.containsKey(line.getKey()));
+                if (left.isPresent()) {
+                    remaining.put(line.getKey(), left.getAsInt());
+                }
+            }
+        }
+        if (remaining.size() < quantities.size()) {
+            for (Long productId : quantities.keySet()) {
+                if (!remaining.containsKey(productId)) {
+                    if (!productRepository.existsById(productId)) {
+                        throw new RuntimeException("Product not found with ID: " + productId);
+                    }
+                    throw new RuntimeException("Insufficient stock for product ID: " + productId);
+                }
+            }
+        }
+        return remaining;
+    }
+
+    @Override
+    @Transactional
+    public OptionalInt increment(Long productId, int quantity) {
+        boolean bucketed = stockBucketService.isBucketed(productId);
+        OptionalInt stock = bucketed
+                ? stockBucketService.add(productId, quantity)
+                : productJdbcRepository.incrementStock(productId, quantity);
+        return stock.isPresent() ? stock : retryOnOtherPath(productId, quantity, bucketed);
+    }
+
+    @Override
+    @Transactional
+    public Map<Long, Integer> incrementAll(Map<Long, Integer> quantities) {
+        Map<Long, Integer> bucketed = new TreeMap<>();
+        Map<Long, Integer> stock = productJdbcRepository.incrementStockAll(splitBucketed(quantities, bucketed));
+        for (Map.Entry<Long, Integer> line : bucketed.entrySet()) {
+            OptionalInt total = stockBucketService.add(line.getKey(), line.getValue());
+            if (total.isPresent()) {
+                stock.put(line.getKey(), total.getAsInt());
+            }
+        }
+        for (Map.Entry<Long, Integer> line : quantities.entrySet()) {
+            if (!stock.containsKey(line.getKey())) {
+                OptionalInt total = retryOnOtherPath(line.getKey(), line.getValue(), bucketed.containsKey(line.getKey()));
+                if (total.isPresent()) {
+                    stock.put(line.getKey(), total.getAsInt());
+                }
+            }
+        }
+        return stock;
+    }
+
+    // products.stock of a bucketed product is only a cached aggregate
+    @Override
+    public OptionalInt currentStock(Long productId) {
+        return stockBucketService.currentStock(productId);
+    }
+
+    /**
+     * A line that missed on the path this node's view picked; empty unless the row's
+     * stock_buckets says the other path applies and that one succeeds.
+     *
+     * @param delta units to add, negative to take
+     */
+    private OptionalInt retryOnOtherPath(Long productId, int delta, boolean triedBuckets) {
+        boolean bucketed = stockBucketService.refreshBucketed(productId);
+        if (bucketed == triedBuckets) {
+            return OptionalInt.empty();
+        }
+        if (delta < 0) {
+            return bucketed
+                    ? stockBucketService.take(productId, -delta)
+                    : productJdbcRepository.decrementStock(productId, -delta);
+        }
+        return bucketed
+                ? stockBucketService.add(productId, delta)
+                : productJdbcRepository.incrementStock(productId, delta);
+    }
+
+    private Map<Long, Integer> splitBucketed(Map<Long, Integer> quantities, Map<Long, Integer> bucketed) {
+        Map<Long, Integer> plain = new HashMap<>();
+        for (Map.Entry<Long, Integer> line : quantities.entrySet()) {
+            if (stockBucketService.isBucketed(line.getKey())) {
+                bucketed.put(line.getKey(), line.getValue());
+            } else {
+                plain.put(line.getKey(), line.getValue());
+            }
+        }
+        return plain;
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.model.Product;
+import com.example.ecommerce.repository.ProductRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * PostgreSQL full-text search over the GIN indexed products.search_vector column.
+ * Results are always ordered by ts_rank, so the requested sort is not applied.
+ */
+@Service
+@ConditionalOnProperty(name = "product.search.engine", havingValue = "fulltext")
+public class FullTextProductSearchEngine implements ProductSearchEngine {
+    private final ProductRepository productRepository;
+
+    public FullTextProductSearchEngine(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    @Override
+    public Page<Product> search(String query, String category, Pageable pageable) {
+        String tsQuery = toPrefixTsQuery(query);
+        if (tsQuery.isEmpty()) {
+            return Page.empty(pageable);
+        }
+
+        Pageable unsorted = pageable.isPaged()
+                ? PageRequest.of(pageable.getPageNumber(), pageable.getPageSize())
+                : Pageable.unpaged();
+        Page<Product> page = category == null
+                ? productRepository.fullTextSearch(tsQuery, unsorted)
+                : productRepository.fullTextSearchByCategory(tsQuery, category, unsorted);
+        return new PageImpl<>(page.getContent(), pageable, page.getTotalElements());
+    }
+
+    // Tokens are plain letters/digits, so they can be embedded in the tsquery syntax safely
+    static String toPrefixTsQuery(String query) {
+        List<String> tokens = SearchTokenizer.tokenize(query);
+        return tokens.stream()
+                .distinct()
+                .map(token -> token + ":*")
+                .collect(Collectors.joining(" & "));
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.model.Cart;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseCookie;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Carts of shoppers who are not logged in, held only in memory and keyed by a
+ * random id. The id travels in a cookie as {@code <id>.<HMAC-SHA256 of id>} signed
+ * with the JWT secret, so ids cannot be guessed or forged. The store is bounded;
+ * the least recently used carts are dropped once it is full and a cart expires
+ * when it has not been changed within the TTL.
+ */
+@Service
+public class GuestCartStore {
+    public static final String COOKIE_NAME = "GUEST_CART";
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    private final LruTtlCache<String, Cart> carts;
+    private final SecretKeySpec signingKey;
+    private final long ttlSeconds;
+    private final boolean secureCookie;
+
+    public GuestCartStore(@Value("${jwt.secret}") String secret,
+                          @Value("${cart.guest.max-entries:10000}") int maxEntries,
+                          @Value("${cart.guest.ttl-seconds:86400}") long ttlSeconds,
+                          @Value("${cart.guest.cookie-secure:false}") boolean secureCookie) {
+        this.carts = new LruTtlCache<>(maxEntries, ttlSeconds * 1000L);
+        this.signingKey = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM);
+        this.ttlSeconds = ttlSeconds;
+        this.secureCookie = secureCookie;
+    }
+
+    /** A new signed cookie value for a cart that does not exist yet. */
+    public String newCookieValue() {
+        String id = UUID.randomUUID().toString();
+        return id + "." + sign(id);
+    }
+
+    /** The cart id in a cookie value, or null if the value is missing or its signature is wrong. */
+    public String verify(String cookieValue) {
+        if (cookieValue == null) {
+            return null;
+        }
+        int dot = cookieValue.lastIndexOf('.');
+        if (dot <= 0) {
+            return null;
+        }
+        String id = cookieValue.substring(0, dot);
+        byte[] expected = sign(id).getBytes(StandardCharsets.US_ASCII);
+        byte[] actual = cookieValue.substring(dot + 1).getBytes(StandardCharsets.US_ASCII);
+        return MessageDigest.isEqual(expected, actual) ? id : null;
+    }
+
+    /** The cookie carrying a signed cart id, living as long as the cart can. */
+    public ResponseCookie cookie(String cookieValue) {
+        return cookieBuilder(cookieValue).maxAge(ttlSeconds).build();
+    }
+
+    /** Tells the browser to drop the cookie, e.g. once the cart was merged at login. */
+    public ResponseCookie expiredCookie() {
+        return cookieBuilder("").maxAge(0).build();
+    }
+
+    /** The guest's cart, or an empty one if it never existed or has expired. */
+    public Cart get(String id) {
+        Cart cart = id == null ? null : carts.get(id);
+        return cart != null ? cart : new Cart();
+    }
+
+    /** Same contract as {@link CartStore#update}: the mutation applies to a copy that replaces the cart. */
+    public synchronized Cart update(String id, Consumer<Cart> mutation) {
+        Cart next = CartStore.copy(get(id));
+        mutation.accept(next);
+        carts.put(id, next);
+        return next;
+    }
+
+    /** Removes the guest's cart and returns it, or null if there was none. */
+    public synchronized Cart remove(String id) {
+        Cart cart = carts.get(id);
+        if (cart != null) {
+            carts.invalidate(id);
+        }
+        return cart;
+    }
+
+    public Map<String, Object> getStats() {
+        return carts.getStats();
+    }
+
+    private ResponseCookie.ResponseCookieBuilder cookieBuilder(String value) {
+        return ResponseCookie.from(COOKIE_NAME, value)
+                .httpOnly(true)
+                .secure(secureCookie)
+                .sameSite("Lax")
+                .path("/api");
+    }
+
+    private String sign(String id) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(signingKey);
+            byte[] signature = mac.doFinal(id.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(signature);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+}
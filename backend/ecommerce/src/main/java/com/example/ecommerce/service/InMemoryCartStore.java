@@ -0,0 +1,477 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.model.Cart;
+import com.example.ecommerce.model.CartItem;
+import com.example.ecommerce.model.User;
+import com.example.ecommerce.repository.CartRepository;
+import com.example.ecommerce.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Hot carts held in memory by user id, written behind to the carts tables.
+ *
+ * Reads never touch the database once a cart is loaded. A change is applied to a
+ * copy of the cart under the user's lock and the copy replaces the cart, so a cart
+ * that was handed out never changes underneath its reader. Every change is
+ * appended to a {@link CartJournal} before it returns: a writer thread
+ * group-commits whatever is queued with one sync, and the caller waits for it
+ * outside the user's lock. Changes are coalesced and flushed on a timer, before an
+ * idle or excess cart is evicted, and on demand at checkout. A cart whose flush
+ * keeps failing is held back: its next change first retries the write and is
+ * refused while the database still rejects it. Journaled carts that never reached
+ * the database are replayed on startup.
+ *
+ * Carts are per instance, so this store assumes a single application node.
+ */
+@Service
+@ConditionalOnProperty(name = "cart.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryCartStore implements CartStore {
+    private static final Logger logger = LoggerFactory.getLogger(InMemoryCartStore.class);
+
+    private final CartRepository cartRepository;
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final CartJournal journal;
+    private final int maxEntries;
+    private final long idleMillis;
+    private final int batchSize;
+    private final int maxFlushFailures;
+
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final BlockingQueue<PendingAppend> queue = new LinkedBlockingQueue<>();
+    private final Object writeLock = new Object();
+    private volatile boolean running;
+    private Thread writer;
+
+    private final AtomicLong journalAppends = new AtomicLong();
+    private final AtomicLong journalBatches = new AtomicLong();
+    private final AtomicLong journalFailures = new AtomicLong();
+    private final AtomicLong writeThroughs = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong flushFailures = new AtomicLong();
+    private final AtomicLong refusedUpdates = new AtomicLong();
+
+    public InMemoryCartStore(CartRepository cartRepository, UserRepository userRepository,
+                             PlatformTransactionManager transactionManager, ObjectMapper objectMapper,
+                             @Value("${cart.store.journal-path:data/cart-journal.ndjson}") String journalPath,
+                             @Value("${cart.store.journal-sync:true}") boolean journalSync,
+                             @Value("${cart.store.max-entries:10000}") int maxEntries,
+                             @Value("${cart.store.idle-seconds:1800}") long idleSeconds,
+                             @Value("${cart.store.journal-batch-size:256}") int batchSize,
+                             @Value("${cart.store.max-flush-failures:3}") int maxFlushFailures) throws IOException {
+        this.cartRepository = cartRepository;
+        this.userRepository = userRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.journal = new CartJournal(Paths.get(journalPath), objectMapper, journalSync);
+        this.maxEntries = maxEntries;
+        this.idleMillis = idleSeconds * 1000L;
+        this.batchSize = Math.max(batchSize, 1);
+        this.maxFlushFailures = Math.max(maxFlushFailures, 1);
+    }
+
+    // Runs before the web server accepts requests, so no cart is loaded from a stale row
+    @PostConstruct
+    public void recover() throws IOException {
+        Map<Long, CartJournal.Record> journaled = journal.readAll();
+        List<CartJournal.Record> failed = new ArrayList<>();
+        for (CartJournal.Record record : journaled.values()) {
+            try {
+                transactionTemplate.execute(status -> writeCart(record));
+            } catch (RuntimeException e) {
+                logger.error("Failed to replay journaled cart of user {}: {}", record.getUserId(), e.getMessage());
+                failed.add(record);
+            }
+        }
+        journal.rewrite(failed);
+        if (!journaled.isEmpty()) {
+            logger.info("Replayed {} journaled carts, {} failed", journaled.size() - failed.size(), failed.size());
+        }
+        running = true;
+        writer = new Thread(this::runWriter, "cart-journal-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException, InterruptedException {
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+        synchronized (writeLock) {
+            appendQueued();
+        }
+        flushDirty();
+        journal.close();
+    }
+
+    @Override
+    public Cart get(User user) {
+        Entry entry = entry(user);
+        entry.lastAccess = System.currentTimeMillis();
+        return entry.cart;
+    }
+
+    @Override
+    public Cart update(User user, Consumer<Cart> mutation) {
+        while (true) {
+            Entry entry = entry(user);
+            Cart next;
+            PendingAppend append;
+            synchronized (entry) {
+                if (entry.evicted) {
+                    continue;
+                }
+                retryHeldBack(entry);
+                next = CartStore.copy(entry.cart);
+                next.setId(entry.cartId);
+                mutation.accept(next);
+                next.setUpdatedAt(LocalDateTime.now());
+                entry.cart = next;
+                entry.version++;
+                entry.lastAccess = System.currentTimeMillis();
+                // Queued under the lock, so one user's snapshots reach the journal in version order
+                append = new PendingAppend(entry, toRecord(entry), entry.version);
+                queue.add(append);
+            }
+            awaitJournal(append);
+            return next;
+        }
+    }
+
+    @Override
+    public void flush(User user) {
+        Entry entry = entries.get(user.getId());
+        if (entry != null) {
+            synchronized (entry) {
+                flushLocked(entry);
+            }
+        }
+    }
+
+    @Override
+    public boolean isCached(Long userId) {
+        return entries.containsKey(userId);
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        int dirty = 0;
+        int heldBack = 0;
+        for (Entry entry : entries.values()) {
+            if (entry.version != entry.flushedVersion) {
+                dirty++;
+            }
+            if (entry.failedFlushes >= maxFlushFailures) {
+                heldBack++;
+            }
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("store", "memory");
+        stats.put("entries", entries.size());
+        stats.put("dirty", dirty);
+        stats.put("heldBack", heldBack);
+        stats.put("flushes", flushes.get());
+        stats.put("flushFailures", flushFailures.get());
+        stats.put("refusedUpdates", refusedUpdates.get());
+        stats.put("journalQueued", queue.size());
+        stats.put("journalAppends", journalAppends.get());
+        stats.put("journalBatches", journalBatches.get());
+        stats.put("journalFailures", journalFailures.get());
+        stats.put("writeThroughs", writeThroughs.get());
+        return stats;
+    }
+
+    @Scheduled(fixedDelayString = "${cart.store.flush-interval-ms:5000}")
+    public void flushDirty() {
+        for (Entry entry : entries.values()) {
+            synchronized (entry) {
+                try {
+                    flushLocked(entry);
+                } catch (RuntimeException e) {
+                    logger.error("Failed to flush cart of user {} ({} in a row): {}",
+                            entry.userId, entry.failedFlushes, e.getMessage());
+                }
+            }
+        }
+        evict();
+        compactJournal();
+    }
+
+    // Idle carts and, above max-entries, the least recently used ones; only clean carts leave
+    private void evict() {
+        long now = System.currentTimeMillis();
+        List<Entry> candidates = new ArrayList<>();
+        List<Entry> active = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            (now - entry.lastAccess > idleMillis ? candidates : active).add(entry);
+        }
+        int excess = active.size() - maxEntries;
+        if (excess > 0) {
+            active.sort(Comparator.comparingLong(entry -> entry.lastAccess));
+            candidates.addAll(active.subList(0, excess));
+        }
+        for (Entry entry : candidates) {
+            synchronized (entry) {
+                try {
+                    flushLocked(entry);
+                } catch (RuntimeException e) {
+                    logger.error("Failed to flush cart of user {} before eviction: {}", entry.userId, e.getMessage());
+                    continue;
+                }
+                entry.evicted = true;
+                entries.remove(entry.userId, entry);
+            }
+        }
+    }
+
+    // Holds the writer back for the rewrite; updates keep queueing in the meantime
+    private void compactJournal() {
+        synchronized (writeLock) {
+            List<CartJournal.Record> unflushed = new ArrayList<>();
+            for (Entry entry : entries.values()) {
+                if (entry.journaled != null && entry.journaledVersion > entry.flushedVersion) {
+                    unflushed.add(entry.journaled);
+                }
+            }
+            try {
+                journal.rewrite(unflushed);
+            } catch (IOException e) {
+                logger.error("Failed to compact cart journal: {}", e.getMessage());
+            }
+        }
+    }
+
+    // A cart whose change could not be journaled is written through instead
+    private void awaitJournal(PendingAppend append) {
+        try {
+            append.done.join();
+        } catch (CompletionException e) {
+            Entry entry = append.entry;
+            logger.warn("Failed to journal cart of user {}, writing it through: {}", entry.userId, e.getCause().getMessage());
+            synchronized (entry) {
+                // An evicted cart was flushed on its way out, this change included
+                if (!entry.evicted) {
+                    flushLocked(entry);
+                }
+            }
+            writeThroughs.incrementAndGet();
+        }
+    }
+
+    // Caller holds the entry's lock. A cart that keeps failing to flush takes no more changes until it does
+    private void retryHeldBack(Entry entry) {
+        if (entry.failedFlushes < maxFlushFailures) {
+            return;
+        }
+        try {
+            flushLocked(entry);
+        } catch (RuntimeException e) {
+            refusedUpdates.incrementAndGet();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Cart could not be saved, try again later");
+        }
+    }
+
+    // Caller holds the entry's lock
+    private void flushLocked(Entry entry) {
+        if (entry.version == entry.flushedVersion) {
+            return;
+        }
+        CartJournal.Record record = toRecord(entry);
+        try {
+            entry.cartId = transactionTemplate.execute(status -> writeCart(record));
+        } catch (RuntimeException e) {
+            entry.failedFlushes++;
+            flushFailures.incrementAndGet();
+            throw e;
+        }
+        entry.flushedVersion = entry.version;
+        entry.failedFlushes = 0;
+        flushes.incrementAndGet();
+    }
+
+    private void runWriter() {
+        List<PendingAppend> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                PendingAppend first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                synchronized (writeLock) {
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                    append(batch);
+                    batch.clear();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    // Caller holds writeLock
+    private void appendQueued() {
+        List<PendingAppend> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            append(batch);
+            batch.clear();
+        }
+    }
+
+    // Caller holds writeLock
+    private void append(List<PendingAppend> batch) {
+        List<CartJournal.Record> records = new ArrayList<>(batch.size());
+        for (PendingAppend append : batch) {
+            records.add(append.record);
+        }
+        try {
+            journal.appendAll(records);
+        } catch (IOException | RuntimeException e) {
+            logger.error("Failed to append {} cart snapshots to the journal: {}", records.size(), e.getMessage());
+            journalFailures.incrementAndGet();
+            for (PendingAppend append : batch) {
+                append.done.completeExceptionally(e);
+            }
+            return;
+        }
+        journalBatches.incrementAndGet();
+        journalAppends.addAndGet(batch.size());
+        for (PendingAppend append : batch) {
+            Entry entry = append.entry;
+            if (append.version > entry.journaledVersion) {
+                entry.journaled = append.record;
+                entry.journaledVersion = append.version;
+            }
+            append.done.complete(null);
+        }
+    }
+
+    private Entry entry(User user) {
+        Entry entry = entries.get(user.getId());
+        if (entry != null) {
+            return entry;
+        }
+        Entry loaded = new Entry(user.getId(), load(user));
+        Entry existing = entries.putIfAbsent(user.getId(), loaded);
+        return existing != null ? existing : loaded;
+    }
+
+    private Cart load(User user) {
+        return transactionTemplate.execute(status -> cartRepository.findLatestByUser(user)
+                .map(CartStore::copy)
+                .orElseGet(() -> {
+                    Cart cart = new Cart();
+                    cart.setUser(user);
+                    return cart;
+                }));
+    }
+
+    // Brings the carts row in line with the snapshot, touching only the lines that changed
+    private Long writeCart(CartJournal.Record record) {
+        Cart cart = record.getCartId() != null ? cartRepository.findById(record.getCartId()).orElse(null) : null;
+        if (cart == null) {
+            cart = new Cart();
+            cart.setUser(userRepository.getReferenceById(record.getUserId()));
+        }
+        Map<Long, CartItem> existing = new HashMap<>();
+        for (CartItem item : cart.getItems()) {
+            existing.put(item.getProductId(), item);
+        }
+        for (CartJournal.Line line : record.getItems()) {
+            CartItem item = existing.remove(line.getProductId());
+            if (item == null) {
+                item = new CartItem();
+                item.setProductId(line.getProductId());
+                cart.addItem(item);
+            }
+            item.setProductName(line.getProductName());
+            item.setProductImage(line.getProductImage());
+            item.setPrice(line.getPrice());
+            item.setQuantity(line.getQuantity());
+        }
+        for (CartItem removed : existing.values()) {
+            cart.removeItem(removed);
+        }
+        cart.setUpdatedAt(LocalDateTime.now());
+        return cartRepository.save(cart).getId();
+    }
+
+    private static CartJournal.Record toRecord(Entry entry) {
+        CartJournal.Record record = new CartJournal.Record();
+        record.setUserId(entry.userId);
+        record.setCartId(entry.cartId);
+        for (CartItem item : entry.cart.getItems()) {
+            CartJournal.Line line = new CartJournal.Line();
+            line.setProductId(item.getProductId());
+            line.setProductName(item.getProductName());
+            line.setProductImage(item.getProductImage());
+            line.setPrice(item.getPrice());
+            line.setQuantity(item.getQuantity());
+            record.getItems().add(line);
+        }
+        return record;
+    }
+
+    private static final class Entry {
+        private final Long userId;
+        private volatile Cart cart; // replaced on every change, never modified once published; read without the lock
+        private Long cartId; // known once the cart has a row
+        private volatile long version;
+        private volatile long flushedVersion;
+        private volatile long lastAccess = System.currentTimeMillis();
+        private volatile int failedFlushes; // in a row
+        private boolean evicted;
+        // Guarded by writeLock
+        private CartJournal.Record journaled;
+        private long journaledVersion;
+
+        private Entry(Long userId, Cart cart) {
+            this.userId = userId;
+            this.cart = cart;
+            this.cartId = cart.getId();
+        }
+    }
+
+    private static final class PendingAppend {
+        private final Entry entry;
+        private final CartJournal.Record record;
+        private final long version;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        private PendingAppend(Entry entry, CartJournal.Record record, long version) {
+            this.entry = entry;
+            this.record = record;
+            this.version = version;
+        }
+    }
+}
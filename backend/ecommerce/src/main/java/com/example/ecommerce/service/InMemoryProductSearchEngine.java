@@ -0,0 +1,308 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.event.ProductChangeEvent;
+import com.example.ecommerce.model.Product;
+import com.example.ecommerce.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inverted index over product name, category and description.
+ *
+ * Every query term must match a token of the product, either exactly or as a
+ * prefix ("mac" matches "macbook"). Results are ranked by a field-weighted score;
+ * the requested sort only breaks ties. Only ids are ranked in memory, the page
+ * itself is loaded with a single primary key lookup.
+ */
+@Service
+@ConditionalOnProperty(name = "product.search.engine", havingValue = "memory", matchIfMissing = true)
+public class InMemoryProductSearchEngine implements ProductSearchEngine {
+    private static final Logger logger = LoggerFactory.getLogger(InMemoryProductSearchEngine.class);
+
+    private static final float NAME_WEIGHT = 3.0f;
+    private static final float CATEGORY_WEIGHT = 2.0f;
+    private static final float DESCRIPTION_WEIGHT = 1.0f;
+    private static final float PREFIX_MATCH_FACTOR = 0.5f;
+
+    private final ProductRepository productRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<String, Map<Long, Float>> postings = new TreeMap<>();
+    private final Map<Long, IndexedProduct> documents = new HashMap<>();
+
+    public InMemoryProductSearchEngine(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    @Override
+    public Page<Product> search(String query, String category, Pageable pageable) {
+        Set<String> terms = SearchTokenizer.distinctTokens(query);
+        if (terms.isEmpty()) {
+            return Page.empty(pageable);
+        }
+
+        List<Long> pageIds = new ArrayList<>();
+        long total;
+        lock.readLock().lock();
+        try {
+            Map<Long, Float> scores = null;
+            for (String term : terms) {
+                Map<Long, Float> termScores = matchTerm(term);
+                if (scores == null) {
+                    scores = termScores;
+                } else {
+                    Iterator<Map.Entry<Long, Float>> it = scores.entrySet().iterator();
+                    while (it.hasNext()) {
+                        Map.Entry<Long, Float> entry = it.next();
+                        Float termScore = termScores.get(entry.getKey());
+                        if (termScore == null) {
+                            it.remove();
+                        } else {
+                            entry.setValue(entry.getValue() + termScore);
+                        }
+                    }
+                }
+                if (scores.isEmpty()) {
+                    break;
+                }
+            }
+
+            String categoryFilter = category != null ? SearchTokenizer.normalize(category) : null;
+            List<ScoredProduct> hits = new ArrayList<>(scores.size());
+            for (Map.Entry<Long, Float> entry : scores.entrySet()) {
+                IndexedProduct doc = documents.get(entry.getKey());
+                if (doc != null && (categoryFilter == null || categoryFilter.equals(doc.categoryKey))) {
+                    hits.add(new ScoredProduct(doc, entry.getValue()));
+                }
+            }
+            hits.sort(comparator(pageable.getSort()));
+
+            total = hits.size();
+            int from = pageable.isPaged() ? (int) Math.min(pageable.getOffset(), total) : 0;
+            int to = pageable.isPaged() ? (int) Math.min(from + (long) pageable.getPageSize(), total) : (int) total;
+            for (ScoredProduct hit : hits.subList(from, to)) {
+                pageIds.add(hit.product.id);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        return new PageImpl<>(loadInOrder(pageIds), pageable, total);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChange(ProductChangeEvent event) {
+        switch (event.getType()) {
+            case SAVED:
+                index(event.getProduct());
+                break;
+            case DELETED:
+                remove(event.getProductId());
+                break;
+            case STOCK_CHANGED:
+                updateStock(event.getProductId(), event.getStock());
+                break;
+            case BULK_UPDATED:
+                for (Product product : event.getProducts()) {
+                    index(product);
+                }
+                break;
+            case RELOADED:
+                rebuild(event.getProducts());
+                break;
+        }
+    }
+
+    public void rebuild(List<Product> products) {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documents.clear();
+            for (Product product : products) {
+                addDocument(new IndexedProduct(product));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Search index rebuilt with {} products and {} terms", products.size(), postings.size());
+    }
+
+    public void index(Product product) {
+        if (product == null || product.getId() == null) {
+            return;
+        }
+        IndexedProduct doc = new IndexedProduct(product);
+        lock.writeLock().lock();
+        try {
+            removeDocument(product.getId());
+            addDocument(doc);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void updateStock(Long productId, Integer stock) {
+        if (stock == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            IndexedProduct doc = documents.get(productId);
+            if (doc != null) {
+                doc.stock = stock;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Exact token matches score fully, longer tokens sharing the prefix score less
+    private Map<Long, Float> matchTerm(String term) {
+        Map<Long, Float> result = new HashMap<>();
+        NavigableMap<String, Map<Long, Float>> range = postings.subMap(term, true, term + Character.MAX_VALUE, false);
+        for (Map.Entry<String, Map<Long, Float>> entry : range.entrySet()) {
+            float factor = entry.getKey().equals(term) ? 1.0f : PREFIX_MATCH_FACTOR;
+            for (Map.Entry<Long, Float> posting : entry.getValue().entrySet()) {
+                result.merge(posting.getKey(), posting.getValue() * factor, Math::max);
+            }
+        }
+        return result;
+    }
+
+    private void addDocument(IndexedProduct doc) {
+        documents.put(doc.id, doc);
+        for (Map.Entry<String, Float> entry : doc.termWeights.entrySet()) {
+            postings.computeIfAbsent(entry.getKey(), k -> new HashMap<>()).put(doc.id, entry.getValue());
+        }
+    }
+
+    private void removeDocument(Long productId) {
+        IndexedProduct existing = documents.remove(productId);
+        if (existing == null) {
+            return;
+        }
+        for (String term : existing.termWeights.keySet()) {
+            Map<Long, Float> docs = postings.get(term);
+            if (docs != null) {
+                docs.remove(productId);
+                if (docs.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+
+    private List<Product> loadInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, Product> byId = new HashMap<>();
+        for (Product product : productRepository.findAllById(ids)) {
+            byId.put(product.getId(), product);
+        }
+        List<Product> ordered = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Product product = byId.get(id);
+            if (product != null) {
+                ordered.add(product);
+            }
+        }
+        return ordered;
+    }
+
+    private Comparator<ScoredProduct> comparator(Sort sort) {
+        Comparator<ScoredProduct> comparator = Comparator.comparingDouble((ScoredProduct hit) -> hit.score).reversed();
+        for (Sort.Order order : sort) {
+            Comparator<ScoredProduct> byProperty = propertyComparator(order.getProperty());
+            if (byProperty != null) {
+                comparator = comparator.thenComparing(order.isAscending() ? byProperty : byProperty.reversed());
+            }
+        }
+        return comparator.thenComparing(hit -> hit.product.id);
+    }
+
+    private Comparator<ScoredProduct> propertyComparator(String property) {
+        switch (property) {
+            case "name":
+                return Comparator.comparing(hit -> hit.product.nameKey);
+            case "price":
+                return Comparator.comparing(hit -> hit.product.price);
+            case "category":
+                return Comparator.comparing(hit -> hit.product.categoryKey);
+            case "stock":
+                return Comparator.comparingInt(hit -> hit.product.stock);
+            case "createdAt":
+                return Comparator.comparingLong(hit -> hit.product.createdAt);
+            case "id":
+                return Comparator.comparing(hit -> hit.product.id);
+            default:
+                return null;
+        }
+    }
+
+    private static final class IndexedProduct {
+        private final Long id;
+        private final String nameKey;
+        private final String categoryKey;
+        private final BigDecimal price;
+        private final long createdAt;
+        private final Map<String, Float> termWeights = new HashMap<>();
+        private volatile int stock;
+
+        private IndexedProduct(Product product) {
+            this.id = product.getId();
+            this.nameKey = SearchTokenizer.normalize(product.getName());
+            this.categoryKey = SearchTokenizer.normalize(product.getCategory());
+            this.price = product.getPrice() != null ? product.getPrice() : BigDecimal.ZERO;
+            this.createdAt = product.getCreatedAt() != null ? product.getCreatedAt().getTime() : 0L;
+            this.stock = product.getStock() != null ? product.getStock() : 0;
+            addTerms(product.getName(), NAME_WEIGHT);
+            addTerms(product.getCategory(), CATEGORY_WEIGHT);
+            addTerms(product.getDescription(), DESCRIPTION_WEIGHT);
+        }
+
+        private void addTerms(String text, float weight) {
+            for (String token : SearchTokenizer.distinctTokens(text)) {
+                termWeights.merge(token, weight, Float::sum);
+            }
+        }
+    }
+
+    private static final class ScoredProduct {
+        private final IndexedProduct product;
+        private final float score;
+
+        private ScoredProduct(IndexedProduct product, float score) {
+            this.product = product;
+            this.score = score;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.ecommerce.service;
+
+import java.util.Map;
+import java.util.OptionalInt;
+
+/**
+ * Source of truth for stock counts behind ProductService's stock operations.
+ * Selected with the {@code inventory.engine} property.
+ */
+public interface InventoryEngine {
+
+    /**
+     * Takes quantity units if that many are available.
+     *
+     * @return the remaining stock, or empty if the product is missing or short
+     */
+    OptionalInt decrement(Long productId, int quantity);
+
+    /**
+     * Takes every line or none of them.
+     *
+     * @param quantities units per product id
+     * @return remaining stock per product id
+     * @throws RuntimeException naming the first product that is missing or short; nothing is taken
+     */
+    Map<Long, Integer> decrementAll(Map<Long, Integer> quantities);
+
+    /** @return the new stock, or empty if the product does not exist */
+    OptionalInt increment(Long productId, int quantity);
+
+    /** @return new stock per product id that exists */
+    Map<Long, Integer> incrementAll(Map<Long, Integer> quantities);
+
+    /**
+     * Stock as counted by the engine when it is ahead of products.stock, or empty
+     * when the products row is authoritative.
+     */
+    OptionalInt currentStock(Long productId);
+}
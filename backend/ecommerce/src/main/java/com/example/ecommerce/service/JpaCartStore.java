@@ -0,0 +1,62 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.model.Cart;
+import com.example.ecommerce.model.User;
+import com.example.ecommerce.repository.CartRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Carts read from and written to the carts tables on every call. Concurrent
+ * updates of one cart are caught by its version column at commit.
+ */
+@Service
+@ConditionalOnProperty(name = "cart.store", havingValue = "database")
+public class JpaCartStore implements CartStore {
+    private final CartRepository cartRepository;
+
+    public JpaCartStore(CartRepository cartRepository) {
+        this.cartRepository = cartRepository;
+    }
+
+    @Override
+    @Transactional
+    public Cart get(User user) {
+        return cartRepository.findLatestByUser(user)
+                .orElseGet(() -> {
+                    Cart cart = new Cart();
+                    cart.setUser(user);
+                    return cartRepository.save(cart);
+                });
+    }
+
+    @Override
+    @Transactional
+    public Cart update(User user, Consumer<Cart> mutation) {
+        Cart cart = get(user);
+        mutation.accept(cart);
+        // Item changes alone do not dirty the cart row, and its version must move with every change
+        cart.setUpdatedAt(LocalDateTime.now());
+        return cartRepository.save(cart);
+    }
+
+    @Override
+    public void flush(User user) {
+        // Every update is already written
+    }
+
+    @Override
+    public boolean isCached(Long userId) {
+        return false;
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        return Map.of("store", "database");
+    }
+}
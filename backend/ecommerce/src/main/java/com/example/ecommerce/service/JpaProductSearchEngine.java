@@ -0,0 +1,27 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.model.Product;
+import com.example.ecommerce.repository.ProductRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+// Original LIKE based search, kept for small catalogs and as a fallback
+@Service
+@ConditionalOnProperty(name = "product.search.engine", havingValue = "jpa")
+public class JpaProductSearchEngine implements ProductSearchEngine {
+    private final ProductRepository productRepository;
+
+    public JpaProductSearchEngine(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    @Override
+    public Page<Product> search(String query, String category, Pageable pageable) {
+        if (category == null) {
+            return productRepository.searchProducts(query, pageable);
+        }
+        return productRepository.searchProductsByCategory(query, category, pageable);
+    }
+}
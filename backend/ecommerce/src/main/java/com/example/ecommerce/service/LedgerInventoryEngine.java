@@ -0,0 +1,389 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.event.ProductChangeEvent;
+import com.example.ecommerce.model.Product;
+import com.example.ecommerce.repository.InventoryLedgerRepository;
+import com.example.ecommerce.repository.ProductJdbcRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Inventory engine for flash sales: the authoritative count of every product lives
+ * in memory and is changed with compare-and-set, so checkouts of a hot product do
+ * not queue on its products row.
+ *
+ * Each movement is appended to inventory_ledger before the call returns; a single
+ * writer thread group-commits whatever is queued, so concurrent buyers share one
+ * INSERT batch. A scheduled reconciler folds committed movements into
+ * products.stock, which therefore lags the in-memory count by about one reconcile
+ * interval. On startup the counts are rebuilt as products.stock plus the
+ * unreconciled movements.
+ *
+ * A stock value written to a product directly (admin edit, bulk update) replaces
+ * the in-memory count and discards its unreconciled movements.
+ */
+@Service
+@ConditionalOnProperty(name = "inventory.engine", havingValue = "ledger")
+public class LedgerInventoryEngine implements InventoryEngine {
+    private static final Logger logger = LoggerFactory.getLogger(LedgerInventoryEngine.class);
+
+    private final InventoryLedgerRepository ledgerRepository;
+    private final ProductJdbcRepository productJdbcRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ProductCatalogVersion catalogVersion;
+    private final int batchSize;
+
+    private final Map<Long, AtomicInteger> counts = new ConcurrentHashMap<>();
+    // Last known products.stock, to tell direct stock writes from other product edits
+    private final Map<Long, Integer> rowStock = new ConcurrentHashMap<>();
+    private final BlockingQueue<PendingWrite> queue = new LinkedBlockingQueue<>();
+    private final Object writeLock = new Object();
+    private volatile boolean running;
+    private Thread writer;
+
+    public LedgerInventoryEngine(InventoryLedgerRepository ledgerRepository,
+                                 ProductJdbcRepository productJdbcRepository,
+                                 PlatformTransactionManager transactionManager,
+                                 ProductCatalogVersion catalogVersion,
+                                 @Value("${inventory.ledger.batch-size:500}") int batchSize) {
+        this.ledgerRepository = ledgerRepository;
+        this.productJdbcRepository = productJdbcRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.catalogVersion = catalogVersion;
+        this.batchSize = Math.max(batchSize, 1);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        writer = new Thread(this::runWriter, "inventory-ledger-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+        synchronized (writeLock) {
+            flushQueued();
+        }
+    }
+
+    @Override
+    public OptionalInt decrement(Long productId, int quantity) {
+        AtomicInteger count = counter(productId);
+        int remaining = count != null ? take(count, quantity) : -1;
+        if (remaining < 0) {
+            return OptionalInt.empty();
+        }
+        Map<Long, Integer> deltas = Map.of(productId, -quantity);
+        persist(deltas);
+        compensateOnRollback(deltas);
+        return OptionalInt.of(remaining);
+    }
+
+    @Override
+    public Map<Long, Integer> decrementAll(Map<Long, Integer> quantities) {
+        Map<Long, Integer> deltas = new TreeMap<>();
+        for (Map.Entry<Long, Integer> line : new TreeMap<>(quantities).entrySet()) {
+            AtomicInteger count = counter(line.getKey());
+            if (count == null || take(count, line.getValue()) < 0) {
+                revertCounts(deltas);
+                if (count == null) {
+                    throw new RuntimeException("Product not found with ID: " + line.getKey());
+                }
+                throw new RuntimeException("Insufficient stock for product ID: " + line.getKey());
+            }
+            deltas.put(line.getKey(), -line.getValue());
+        }
+        persist(deltas);
+        compensateOnRollback(deltas);
+        return currentCounts(deltas);
+    }
+
+    @Override
+    public OptionalInt increment(Long productId, int quantity) {
+        AtomicInteger count = counter(productId);
+        if (count == null) {
+            return OptionalInt.empty();
+        }
+        int stock = count.addAndGet(quantity);
+        Map<Long, Integer> deltas = Map.of(productId, quantity);
+        persist(deltas);
+        compensateOnRollback(deltas);
+        return OptionalInt.of(stock);
+    }
+
+    @Override
+    public Map<Long, Integer> incrementAll(Map<Long, Integer> quantities) {
+        Map<Long, Integer> deltas = new TreeMap<>();
+        for (Map.Entry<Long, Integer> line : quantities.entrySet()) {
+            AtomicInteger count = counter(line.getKey());
+            if (count != null) {
+                count.addAndGet(line.getValue());
+                deltas.put(line.getKey(), line.getValue());
+            }
+        }
+        persist(deltas);
+        compensateOnRollback(deltas);
+        return currentCounts(deltas);
+    }
+
+    @Override
+    public OptionalInt currentStock(Long productId) {
+        AtomicInteger count = counter(productId);
+        return count == null ? OptionalInt.empty() : OptionalInt.of(count.get());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChange(ProductChangeEvent event) {
+        switch (event.getType()) {
+            case SAVED:
+                stockWritten(event.getProduct());
+                break;
+            case BULK_UPDATED:
+                for (Product product : event.getProducts()) {
+                    stockWritten(product);
+                }
+                break;
+            case DELETED:
+                counts.remove(event.getProductId());
+                rowStock.remove(event.getProductId());
+                break;
+            case STOCK_CHANGED:
+                // Published for movements made through this engine
+                break;
+            case RELOADED:
+                recover();
+                break;
+        }
+    }
+
+    public void recover() {
+        synchronized (writeLock) {
+            flushQueued();
+            Map<Long, Integer> stocks = ledgerRepository.rowStocks();
+            Map<Long, Integer> pending = ledgerRepository.pendingDeltas();
+            counts.clear();
+            rowStock.clear();
+            for (Map.Entry<Long, Integer> stock : stocks.entrySet()) {
+                rowStock.put(stock.getKey(), stock.getValue());
+                counts.put(stock.getKey(), new AtomicInteger(stock.getValue() + pending.getOrDefault(stock.getKey(), 0)));
+            }
+            logger.info("Inventory ledger recovered {} products, {} with unreconciled movements",
+                    stocks.size(), pending.size());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.ledger.reconcile-interval-ms:1000}")
+    public void reconcile() {
+        int reconciled;
+        do {
+            Map<Long, Integer> stocks = new HashMap<>();
+            Integer rows = transactionTemplate.execute(status -> {
+                List<InventoryLedgerRepository.Entry> entries = ledgerRepository.lockUnreconciled(batchSize);
+                if (entries.isEmpty()) {
+                    return 0;
+                }
+                Map<Long, Integer> deltas = new HashMap<>();
+                List<Long> ids = new ArrayList<>(entries.size());
+                for (InventoryLedgerRepository.Entry entry : entries) {
+                    deltas.merge(entry.getProductId(), entry.getDelta(), Integer::sum);
+                    ids.add(entry.getId());
+                }
+                stocks.putAll(productJdbcRepository.incrementStockAll(deltas));
+                ledgerRepository.markReconciled(ids);
+                return entries.size();
+            });
+            reconciled = rows != null ? rows : 0;
+            rowStock.putAll(stocks);
+            if (!stocks.isEmpty()) {
+                // products.stock moved without a change event
+                catalogVersion.changed();
+            }
+        } while (reconciled == batchSize);
+    }
+
+    // Lock free: retry until the count is swapped (returns what is left) or found short (-1)
+    private static int take(AtomicInteger count, int quantity) {
+        while (true) {
+            int current = count.get();
+            if (current < quantity) {
+                return -1;
+            }
+            if (count.compareAndSet(current, current - quantity)) {
+                return current - quantity;
+            }
+        }
+    }
+
+    private AtomicInteger counter(Long productId) {
+        return counts.computeIfAbsent(productId, id -> {
+            Integer stock = ledgerRepository.stockWithPending(id);
+            return stock != null ? new AtomicInteger(stock) : null;
+        });
+    }
+
+    private Map<Long, Integer> currentCounts(Map<Long, Integer> deltas) {
+        Map<Long, Integer> stock = new HashMap<>();
+        for (Long productId : deltas.keySet()) {
+            AtomicInteger count = counts.get(productId);
+            if (count != null) {
+                stock.put(productId, count.get());
+            }
+        }
+        return stock;
+    }
+
+    private void revertCounts(Map<Long, Integer> deltas) {
+        for (Map.Entry<Long, Integer> delta : deltas.entrySet()) {
+            AtomicInteger count = counts.get(delta.getKey());
+            if (count != null) {
+                count.addAndGet(-delta.getValue());
+            }
+        }
+    }
+
+    // Waits until the movements are committed to the ledger; undoes them in memory if that fails
+    private void persist(Map<Long, Integer> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        List<CompletableFuture<Void>> written = new ArrayList<>(deltas.size());
+        for (Map.Entry<Long, Integer> delta : deltas.entrySet()) {
+            PendingWrite write = new PendingWrite(new InventoryLedgerRepository.Entry(null, delta.getKey(), delta.getValue()));
+            queue.add(write);
+            written.add(write.done);
+        }
+        try {
+            CompletableFuture.allOf(written.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException e) {
+            revertCounts(deltas);
+            throw new RuntimeException("Failed to record stock movement: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    // The movement is durable on its own, so a rolled back caller needs an opposite movement
+    private void compensateOnRollback(Map<Long, Integer> deltas) {
+        if (deltas.isEmpty() || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    return;
+                }
+                Map<Long, Integer> reverse = new HashMap<>();
+                for (Map.Entry<Long, Integer> delta : deltas.entrySet()) {
+                    reverse.put(delta.getKey(), -delta.getValue());
+                }
+                try {
+                    revertCounts(deltas);
+                    persist(reverse);
+                } catch (RuntimeException e) {
+                    logger.error("Failed to compensate stock movements {} after rollback: {}", deltas, e.getMessage());
+                }
+            }
+        });
+    }
+
+    private void stockWritten(Product product) {
+        if (product == null || product.getId() == null || product.getStock() == null) {
+            return;
+        }
+        Integer known = rowStock.get(product.getId());
+        if (known != null && known.equals(product.getStock())) {
+            return;
+        }
+        synchronized (writeLock) {
+            flushQueued();
+            ledgerRepository.discardUnreconciled(product.getId());
+            rowStock.put(product.getId(), product.getStock());
+            counts.put(product.getId(), new AtomicInteger(product.getStock()));
+        }
+    }
+
+    private void runWriter() {
+        List<PendingWrite> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                PendingWrite first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                synchronized (writeLock) {
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                    write(batch);
+                    batch.clear();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    // Caller holds writeLock
+    private void flushQueued() {
+        List<PendingWrite> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    private void write(List<PendingWrite> batch) {
+        List<InventoryLedgerRepository.Entry> entries = new ArrayList<>(batch.size());
+        for (PendingWrite write : batch) {
+            entries.add(write.entry);
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> ledgerRepository.appendAll(entries));
+            for (PendingWrite write : batch) {
+                write.done.complete(null);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Failed to append {} inventory ledger entries: {}", entries.size(), e.getMessage());
+            for (PendingWrite write : batch) {
+                write.done.completeExceptionally(e);
+            }
+        }
+    }
+
+    private static final class PendingWrite {
+        private final InventoryLedgerRepository.Entry entry;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        private PendingWrite(InventoryLedgerRepository.Entry entry) {
+            this.entry = entry;
+        }
+    }
+}
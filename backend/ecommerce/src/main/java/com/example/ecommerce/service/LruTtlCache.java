@@ -0,0 +1,138 @@
+package com.example.ecommerce.service;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Small bounded cache: least recently used entries are dropped once {@code maxSize}
+ * is reached and entries older than the TTL are treated as misses.
+ *
+ * Loaders should read {@link #generation()} before going to the database and store
+ * the result with {@link #putIfUnchanged}, so a value loaded before a concurrent
+ * invalidation of its key is never written back. Invalidations are tracked per key,
+ * so a busy cache does not turn away loads of keys that did not change.
+ *
+ * Values are stored and returned as they are; callers that hand them out must not
+ * let them be modified.
+ */
+public class LruTtlCache<K, V> {
+    private final int maxSize;
+    private final long ttlMillis;
+    private final LinkedHashMap<K, CacheEntry<V>> entries;
+    // Bumped by every invalidation; a key's entry below is the value when it was last invalidated
+    private long generation;
+    private final Map<K, Long> invalidatedAt = new HashMap<>();
+    // Loads that started before this are refused; raised when invalidatedAt is cleared
+    private long floor;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public LruTtlCache(int maxSize, long ttlMillis) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, CacheEntry<V>> eldest) {
+                if (size() > LruTtlCache.this.maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public synchronized V get(K key) {
+        CacheEntry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        if (System.currentTimeMillis() - entry.createdAt > ttlMillis) {
+            entries.remove(key);
+            expirations.incrementAndGet();
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.value;
+    }
+
+    /** Taken before loading a value, to be handed to {@link #putIfUnchanged}. */
+    public synchronized long generation() {
+        return generation;
+    }
+
+    public synchronized void put(K key, V value) {
+        if (maxSize > 0) {
+            entries.put(key, new CacheEntry<>(value));
+        }
+    }
+
+    /** Stores the value unless its key was invalidated after {@code expectedGeneration} was taken. */
+    public synchronized boolean putIfUnchanged(K key, V value, long expectedGeneration) {
+        Long invalidated = invalidatedAt.get(key);
+        if (expectedGeneration < floor || (invalidated != null && invalidated > expectedGeneration)) {
+            return false;
+        }
+        put(key, value);
+        return true;
+    }
+
+    public synchronized void invalidate(K key) {
+        generation++;
+        // Kept bounded: forgetting the keys refuses every load that is still in flight instead
+        if (invalidatedAt.size() >= Math.max(maxSize, 16)) {
+            invalidatedAt.clear();
+            floor = generation;
+        }
+        invalidatedAt.put(key, generation);
+        if (entries.remove(key) != null) {
+            invalidations.incrementAndGet();
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        generation++;
+        invalidatedAt.clear();
+        floor = generation;
+        invalidations.addAndGet(entries.size());
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public Map<String, Object> getStats() {
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        long lookups = hitCount + missCount;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", size());
+        stats.put("maxSize", maxSize);
+        stats.put("ttlMillis", ttlMillis);
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRate", lookups == 0 ? 0.0 : (double) hitCount / lookups);
+        stats.put("evictions", evictions.get());
+        stats.put("expirations", expirations.get());
+        stats.put("invalidations", invalidations.get());
+        return stats;
+    }
+
+    private static final class CacheEntry<V> {
+        private final V value;
+        private final long createdAt = System.currentTimeMillis();
+
+        private CacheEntry(V value) {
+            this.value = value;
+        }
+    }
+}
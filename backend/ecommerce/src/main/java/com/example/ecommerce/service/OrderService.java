@@ -5,7 +5,10 @@ import com.example.ecommerce.model.Order;
 import com.example.ecommerce.model.User;
 import com.example.ecommerce.repository.OrderRepository;
 import com.example.ecommerce.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -13,23 +16,34 @@ import org.springframework.http.HttpStatus;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 @Service
 public class OrderService {
+    private static final Logger logger = LoggerFactory.getLogger(OrderService.class);
 
     private final OrderRepository orderRepository;
     private final UserRepository userRepository;
     private final OrderConfig orderConfig;
     private final ProductService productService;
+    private final int bulkCancelMaxOrders;
 
     @Autowired
-    public OrderService(OrderRepository orderRepository, UserRepository userRepository, OrderConfig orderConfig, ProductService productService) {
+    public OrderService(OrderRepository orderRepository, UserRepository userRepository, OrderConfig orderConfig, ProductService productService,
+                        @Value("${order.bulk-cancel.max-orders:1000}") int bulkCancelMaxOrders) {
         this.orderRepository = orderRepository;
         this.userRepository = userRepository;
         this.orderConfig = orderConfig;
         this.productService = productService;
+        this.bulkCancelMaxOrders = bulkCancelMaxOrders;
     }
 
     @Transactional
@@ -125,17 +139,90 @@ public class OrderService {
         return orderRepository.save(order);
     }
 
+    /**
+     * Cancels many orders at once and puts their stock back with a single update.
+     * Orders that are unknown or already cancelled are reported and left alone.
+     */
+    @Transactional
+    public Map<String, Object> cancelOrdersByAdmin(List<String> orderNumbers) {
+        Set<String> requested = new LinkedHashSet<>(orderNumbers);
+        if (requested.size() > bulkCancelMaxOrders) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "At most " + bulkCancelMaxOrders + " orders can be cancelled at once");
+        }
+        Map<String, Order> byNumber = new HashMap<>();
+        for (Order order : orderRepository.findWithItemsByOrderNumberIn(requested)) {
+            byNumber.put(order.getOrderNumber(), order);
+        }
+
+        List<Order> toCancel = new ArrayList<>();
+        List<String> alreadyCancelled = new ArrayList<>();
+        List<String> notFound = new ArrayList<>();
+        for (String orderNumber : requested) {
+            Order order = byNumber.get(orderNumber);
+            if (order == null) {
+                notFound.add(orderNumber);
+            } else if ("CANCELLED".equals(order.getStatus())) {
+                alreadyCancelled.add(orderNumber);
+            } else {
+                toCancel.add(order);
+            }
+        }
+
+        List<Long> unrestored = restoreStockForOrders(toCancel);
+        List<String> cancelled = new ArrayList<>(toCancel.size());
+        for (Order order : toCancel) {
+            order.setStatus("CANCELLED");
+            cancelled.add(order.getOrderNumber());
+        }
+        orderRepository.saveAll(toCancel);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("cancelled", cancelled);
+        result.put("alreadyCancelled", alreadyCancelled);
+        result.put("notFound", notFound);
+        result.put("unrestoredProducts", unrestored);
+        return result;
+    }
+
     private void restoreStockForOrder(Order order) {
-        if (order.getItems() != null) {
+        restoreStockForOrders(List.of(order));
+    }
+
+    /**
+     * Puts the items of the given orders back in stock with one set-based update.
+     * A failing update fails the cancellation; products that were deleted since the
+     * order was placed cannot take stock back and are only reported.
+     *
+     * @return ids of products whose stock could not be restored
+     */
+    private List<Long> restoreStockForOrders(Collection<Order> orders) {
+        Map<Long, Integer> quantities = new HashMap<>();
+        for (Order order : orders) {
+            if (order.getItems() == null) {
+                continue;
+            }
             for (var item : order.getItems()) {
-                try {
-                    productService.restoreStock(item.getProductId(), item.getQuantity());
-                } catch (Exception e) {
-                    // Log the error but don't fail the cancellation
-                    System.err.println("Failed to restore stock for product " + item.getProductId() + ": " + e.getMessage());
+                if (item.getProductId() != null && item.getQuantity() != null && item.getQuantity() > 0) {
+                    quantities.merge(item.getProductId(), item.getQuantity(), Integer::sum);
                 }
             }
         }
+        if (quantities.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, Integer> restored = productService.restoreStockAll(quantities);
+        List<Long> missing = new ArrayList<>();
+        for (Long productId : quantities.keySet()) {
+            if (!restored.containsKey(productId)) {
+                missing.add(productId);
+            }
+        }
+        if (!missing.isEmpty()) {
+            logger.warn("Could not restore stock for products {} while cancelling {} orders: products no longer exist",
+                    missing, orders.size());
+        }
+        return missing;
     }
 
     private boolean isValidStatusTransition(String currentStatus, String newStatus) {
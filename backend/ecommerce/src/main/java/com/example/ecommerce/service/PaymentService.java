@@ -20,6 +20,7 @@ import org.slf4j.LoggerFactory;
 
 import java.text.SimpleDateFormat;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.List;
 
@@ -31,12 +32,15 @@ public class PaymentService {
     private String stripeSecretKey;
 
     private final OrderService orderService;
-    private final ProductService productService;
+    private final StockReservationService stockReservationService;
+    private final CartService cartService;
     private final JavaMailSender emailSender;
 
-    public PaymentService(OrderService orderService, ProductService productService, JavaMailSender emailSender) {
+    public PaymentService(OrderService orderService, StockReservationService stockReservationService,
+                          CartService cartService, JavaMailSender emailSender) {
         this.orderService = orderService;
-        this.productService = productService;
+        this.stockReservationService = stockReservationService;
+        this.cartService = cartService;
         this.emailSender = emailSender;
     }
 
@@ -49,19 +53,35 @@ public class PaymentService {
         // Extract amount from payload
         Double amount = Double.parseDouble(payload.get("amount").toString());
         
-        // Validate stock availability before creating payment intent
-        validateStockAvailability(payload);
+        // The cart being paid for must be in the database, not only in the cart store
+        cartService.flushCart(user);
+        
+        // Hold the stock until the payment completes or the reservation expires
+        Map<Long, Integer> quantities = orderQuantities(payload);
+        String reservationId = quantities.isEmpty() ? null : stockReservationService.reserve(user.getId(), quantities);
         
         // Create payment intent parameters
         Map<String, Object> params = new HashMap<>();
         params.put("amount", amount.longValue()); // amount in cents
         params.put("currency", "usd");
         params.put("payment_method_types", java.util.Arrays.asList("card"));
+        if (reservationId != null) {
+            params.put("metadata", Map.of("reservation_id", reservationId));
+        }
         
         // Create payment intent
-        PaymentIntent paymentIntent = PaymentIntent.create(params);
-        
-        return paymentIntent.getClientSecret();
+        try {
+            PaymentIntent paymentIntent = PaymentIntent.create(params);
+            if (reservationId != null) {
+                stockReservationService.attachPaymentIntent(reservationId, paymentIntent.getId());
+            }
+            return paymentIntent.getClientSecret();
+        } catch (StripeException | RuntimeException e) {
+            if (reservationId != null) {
+                stockReservationService.release(reservationId);
+            }
+            throw e;
+        }
     }
 
     @Transactional
@@ -75,24 +95,24 @@ public class PaymentService {
             // Create order without waiting for email
             createOrder(payload, paymentIntentId, Double.parseDouble(payload.get("amount").toString()) / 100.0, user);
         } catch (Exception e) {
-            logger.error("Error processing order after payment: {}", e.getMessage());
-            // Don't throw exception since payment was successful
+            // Don't throw since the payment went through; the intent id is what support needs to follow up
+            logger.error("Error processing order after payment {}", paymentIntentId, e);
         }
     }
 
-    private void validateStockAvailability(Map<String, Object> payload) {
+    // Units per product id, duplicate lines merged
+    private Map<Long, Integer> orderQuantities(Map<String, Object> payload) {
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
         @SuppressWarnings("unchecked")
         List<Map<String, Object>> items = (List<Map<String, Object>>) payload.get("items");
         if (items != null) {
             for (Map<String, Object> item : items) {
                 Long productId = Long.parseLong(item.get("id").toString());
                 Integer quantity = Integer.parseInt(item.get("quantity").toString());
-                
-                if (!productService.isStockAvailable(productId, quantity)) {
-                    throw new RuntimeException("Insufficient stock for product ID: " + productId);
-                }
+                quantities.merge(productId, quantity, Integer::sum);
             }
         }
+        return quantities;
     }
 
     @Transactional
@@ -119,6 +139,7 @@ public class PaymentService {
         // Add order items and reduce stock
         @SuppressWarnings("unchecked")
         List<Map<String, Object>> items = (List<Map<String, Object>>) payload.get("items");
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
         if (items != null) {
             for (Map<String, Object> item : items) {
                 OrderItem orderItem = new OrderItem();
@@ -131,12 +152,13 @@ public class PaymentService {
                 orderItem.setQuantity(quantity);
                 orderItem.setProductImage((String) item.get("image"));
                 order.getItems().add(orderItem);
-                
-                // Reduce stock for this product
-                productService.reduceStock(productId, quantity);
+                quantities.merge(productId, quantity, Integer::sum);
             }
         }
 
+        // Turn the reservation into stock decrements for every line in one round trip
+        stockReservationService.commit(paymentIntentId, quantities);
+
         Order savedOrder = orderService.createOrder(order);
 
         // Send email in a new thread
@@ -0,0 +1,41 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.model.Product;
+import com.example.ecommerce.repository.ProductRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+/**
+ * Trigram similarity search in PostgreSQL using pg_trgm and the GIN index on
+ * LOWER(products.name). Results are ordered by similarity, so the requested sort
+ * is not applied.
+ */
+@Service
+@ConditionalOnProperty(name = "product.search.fuzzy", havingValue = "pg_trgm")
+public class PgTrgmProductFuzzySearch implements ProductFuzzySearch {
+    private final ProductRepository productRepository;
+
+    public PgTrgmProductFuzzySearch(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    @Override
+    public Page<Product> search(String query, String category, Pageable pageable) {
+        String normalized = String.join(" ", SearchTokenizer.tokenize(query));
+        if (normalized.isEmpty()) {
+            return Page.empty(pageable);
+        }
+
+        Pageable unsorted = pageable.isPaged()
+                ? PageRequest.of(pageable.getPageNumber(), pageable.getPageSize())
+                : Pageable.unpaged();
+        Page<Product> page = category == null
+                ? productRepository.trigramSearch(normalized, unsorted)
+                : productRepository.trigramSearchByCategory(normalized, category, unsorted);
+        return new PageImpl<>(page.getContent(), pageable, page.getTotalElements());
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.event.ProductChangeEvent;
+import com.example.ecommerce.model.Product;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Current price of every product, kept in memory for repricing carts without
+ * reading the products table. Loaded once when the catalog is (re)loaded and then
+ * maintained from product change events. The version moves with every change, so
+ * callers can tell whether prices changed since they last looked.
+ */
+@Service
+public class PriceSnapshot {
+    private static final Logger logger = LoggerFactory.getLogger(PriceSnapshot.class);
+
+    private final Map<Long, BigDecimal> prices = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong();
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChange(ProductChangeEvent event) {
+        switch (event.getType()) {
+            case SAVED:
+                track(event.getProduct());
+                break;
+            case BULK_UPDATED:
+                for (Product product : event.getProducts()) {
+                    track(product);
+                }
+                break;
+            case DELETED:
+                if (prices.remove(event.getProductId()) != null) {
+                    version.incrementAndGet();
+                }
+                break;
+            case RELOADED:
+                reload(event.getProducts());
+                break;
+            case STOCK_CHANGED:
+                break;
+        }
+    }
+
+    public void reload(List<Product> products) {
+        Map<Long, BigDecimal> loaded = new HashMap<>();
+        for (Product product : products) {
+            if (product.getId() != null && product.getPrice() != null) {
+                loaded.put(product.getId(), product.getPrice());
+            }
+        }
+        prices.keySet().retainAll(loaded.keySet());
+        prices.putAll(loaded);
+        version.incrementAndGet();
+        logger.info("Price snapshot holds {} products", loaded.size());
+    }
+
+    /** The product's current price, or null if the product is unknown. */
+    public BigDecimal get(Long productId) {
+        return prices.get(productId);
+    }
+
+    public long getVersion() {
+        return version.get();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("products", prices.size());
+        stats.put("version", version.get());
+        return stats;
+    }
+
+    private void track(Product product) {
+        if (product == null || product.getId() == null || product.getPrice() == null) {
+            return;
+        }
+        BigDecimal previous = prices.put(product.getId(), product.getPrice());
+        if (previous == null || previous.compareTo(product.getPrice()) != 0) {
+            version.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.dto.ProductBulkUpdateItem;
+import com.example.ecommerce.model.Product;
+import com.example.ecommerce.repository.ProductJdbcRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Admin repricing and restocking of many products at once. Changes are written
+ * with one set-based UPDATE per chunk, each chunk in its own transaction, and the
+ * outcome is reported per row. Listeners get a single BULK_UPDATED event for the
+ * whole request instead of one event per product.
+ */
+@Service
+public class ProductBulkUpdateService {
+    private static final Logger logger = LoggerFactory.getLogger(ProductBulkUpdateService.class);
+    private static final BigDecimal MAX_PRICE = new BigDecimal("99999999.99");
+
+    private final ProductJdbcRepository productJdbcRepository;
+    private final ProductService productService;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final int maxItems;
+
+    public ProductBulkUpdateService(ProductJdbcRepository productJdbcRepository, ProductService productService,
+                                    PlatformTransactionManager transactionManager,
+                                    @Value("${product.bulk-update.chunk-size:500}") int chunkSize,
+                                    @Value("${product.bulk-update.max-items:10000}") int maxItems) {
+        this.productJdbcRepository = productJdbcRepository;
+        this.productService = productService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = Math.max(chunkSize, 1);
+        this.maxItems = maxItems;
+    }
+
+    public Map<String, Object> applyUpdates(List<ProductBulkUpdateItem> items) {
+        if (items == null || items.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No updates given");
+        }
+        if (items.size() > maxItems) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At most " + maxItems + " updates per request");
+        }
+
+        List<Map<String, Object>> results = new ArrayList<>(items.size());
+        Map<Long, Integer> resultIndex = new HashMap<>();
+        List<ProductBulkUpdateItem> valid = new ArrayList<>(items.size());
+        for (ProductBulkUpdateItem item : items) {
+            String error = validate(item);
+            if (error == null && resultIndex.containsKey(item.getId())) {
+                error = "duplicate id in request";
+            }
+            results.add(result(item != null ? item.getId() : null, error == null ? "pending" : "invalid", error));
+            if (error == null) {
+                resultIndex.put(item.getId(), results.size() - 1);
+                valid.add(item);
+            }
+        }
+
+        List<Product> updated = new ArrayList<>();
+        for (int from = 0; from < valid.size(); from += chunkSize) {
+            List<ProductBulkUpdateItem> chunk = valid.subList(from, Math.min(from + chunkSize, valid.size()));
+            try {
+                List<Product> rows = transactionTemplate.execute(status -> productJdbcRepository.updatePriceAndStock(chunk));
+                for (Product product : rows) {
+                    Map<String, Object> result = results.get(resultIndex.get(product.getId()));
+                    result.put("status", "updated");
+                    result.put("price", product.getPrice());
+                    result.put("stock", product.getStock());
+                }
+                updated.addAll(rows);
+            } catch (DataAccessException e) {
+                logger.warn("Bulk update chunk of {} products failed: {}", chunk.size(), e.getMostSpecificCause().getMessage());
+                for (ProductBulkUpdateItem item : chunk) {
+                    Map<String, Object> result = results.get(resultIndex.get(item.getId()));
+                    result.put("status", "failed");
+                    result.put("error", e.getMostSpecificCause().getMessage());
+                }
+            }
+        }
+        for (Map<String, Object> result : results) {
+            if ("pending".equals(result.get("status"))) {
+                result.put("status", "not_found");
+            }
+        }
+
+        if (!updated.isEmpty()) {
+            productService.publishBulkUpdate(updated);
+        }
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("requested", items.size());
+        response.put("updated", updated.size());
+        response.put("results", results);
+        return response;
+    }
+
+    private static String validate(ProductBulkUpdateItem item) {
+        if (item == null || item.getId() == null) {
+            return "id is required";
+        }
+        if (item.getPrice() == null && item.getStock() == null) {
+            return "price or stock is required";
+        }
+        BigDecimal price = item.getPrice();
+        if (price != null && (price.signum() < 0 || price.compareTo(MAX_PRICE) > 0 || price.stripTrailingZeros().scale() > 2)) {
+            return "price must be between 0 and " + MAX_PRICE + " with at most 2 decimals";
+        }
+        if (item.getStock() != null && item.getStock() < 0) {
+            return "stock must not be negative";
+        }
+        return null;
+    }
+
+    private static Map<String, Object> result(Long id, String status, String error) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("id", id);
+        result.put("status", status);
+        if (error != null) {
+            result.put("error", error);
+        }
+        return result;
+    }
+}
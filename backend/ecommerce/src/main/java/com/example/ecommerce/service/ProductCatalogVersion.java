@@ -0,0 +1,103 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.event.ProductChangeEvent;
+import com.example.ecommerce.repository.ProductJdbcRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.context.request.WebRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Cheap aggregate validator for list responses: a catalog version kept in a database
+ * sequence (see {@link ProductJdbcRepository#catalogVersion}), so every node gives
+ * the same catalog the same validator and a change on any node is seen by all.
+ * Combined with the request URI and parameters it gives each list page a weak ETag.
+ *
+ * A node moves the version on after its product changes commit, at most once per
+ * max-age-ms however many checkouts it ran, and right away before it answers a list
+ * request itself. The version is read at most once per max-age-ms, so changes made
+ * through another node show up within that window. Since the version only moves
+ * after the change is visible, a response is never tagged newer than its content.
+ */
+@Service
+public class ProductCatalogVersion {
+    private static final Logger logger = LoggerFactory.getLogger(ProductCatalogVersion.class);
+
+    private final ProductJdbcRepository productJdbcRepository;
+    private final long maxAgeMillis;
+
+    private final AtomicBoolean changed = new AtomicBoolean();
+    private volatile Fingerprint fingerprint;
+
+    public ProductCatalogVersion(ProductJdbcRepository productJdbcRepository,
+                                 @Value("${product.catalog-version.max-age-ms:1000}") long maxAgeMillis) {
+        this.productJdbcRepository = productJdbcRepository;
+        this.maxAgeMillis = maxAgeMillis;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChange(ProductChangeEvent event) {
+        changed();
+    }
+
+    /** Records a committed product change that published no event, e.g. a stock sync. */
+    public void changed() {
+        changed.set(true);
+    }
+
+    @Scheduled(fixedDelayString = "${product.catalog-version.max-age-ms:1000}")
+    public void advanceIfChanged() {
+        if (!changed.getAndSet(false)) {
+            return;
+        }
+        try {
+            String value = Long.toString(productJdbcRepository.advanceCatalogVersion());
+            fingerprint = new Fingerprint(value, System.currentTimeMillis());
+        } catch (RuntimeException e) {
+            changed.set(true);
+            logger.error("Failed to advance the catalog version: {}", e.getMessage());
+        }
+    }
+
+    public String etagFor(WebRequest request) {
+        StringBuilder key = new StringBuilder()
+                .append(currentFingerprint()).append(':')
+                .append(request.getDescription(false));
+        Map<String, String[]> params = new TreeMap<>(request.getParameterMap());
+        for (Map.Entry<String, String[]> param : params.entrySet()) {
+            key.append('&').append(param.getKey()).append('=').append(Arrays.toString(param.getValue()));
+        }
+        return "W/\"" + DigestUtils.md5DigestAsHex(key.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+
+    private String currentFingerprint() {
+        advanceIfChanged();
+        Fingerprint current = fingerprint;
+        long now = System.currentTimeMillis();
+        if (current == null || now - current.readAt > maxAgeMillis) {
+            current = new Fingerprint(Long.toString(productJdbcRepository.catalogVersion()), now);
+            fingerprint = current;
+        }
+        return current.value;
+    }
+
+    private static final class Fingerprint {
+        private final String value;
+        private final long readAt;
+
+        private Fingerprint(String value, long readAt) {
+            this.value = value;
+            this.readAt = readAt;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.model.Product;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Date;
+
+// Opaque continuation token for keyset pagination: the sort key and id of the last row served
+final class ProductCursor {
+    private static final String VERSION = "v1";
+
+    private final String sortBy;
+    private final boolean ascending;
+    private final Long id;
+    private final String value;
+
+    private ProductCursor(String sortBy, boolean ascending, Long id, String value) {
+        this.sortBy = sortBy;
+        this.ascending = ascending;
+        this.id = id;
+        this.value = value;
+    }
+
+    static ProductCursor after(Product product, String sortBy, boolean ascending) {
+        String value;
+        switch (sortBy) {
+            case "name":
+                value = product.getName();
+                break;
+            case "price":
+                value = product.getPrice().toPlainString();
+                break;
+            case "createdAt":
+                value = toInstant(product.getCreatedAt()).toString();
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported cursor sort key: " + sortBy);
+        }
+        return new ProductCursor(sortBy, ascending, product.getId(), value);
+    }
+
+    static ProductCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", 5);
+            if (parts.length != 5 || !VERSION.equals(parts[0])) {
+                throw new IllegalArgumentException("Malformed cursor");
+            }
+            ProductCursor cursor = new ProductCursor(parts[1], "asc".equals(parts[2]), Long.parseLong(parts[3]), parts[4]);
+            cursor.typedValue(); // fail early on a tampered value
+            return cursor;
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+
+    String encode() {
+        String raw = String.join("|", VERSION, sortBy, ascending ? "asc" : "desc", String.valueOf(id), value);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    Object typedValue() {
+        switch (sortBy) {
+            case "name":
+                return value;
+            case "price":
+                return new BigDecimal(value);
+            case "createdAt":
+                return Timestamp.from(Instant.parse(value));
+            default:
+                throw new IllegalArgumentException("Unsupported cursor sort key: " + sortBy);
+        }
+    }
+
+    // Timestamps loaded by Hibernate carry sub-millisecond precision; keep it so no row is repeated
+    private static Instant toInstant(Date date) {
+        return date instanceof Timestamp ? ((Timestamp) date).toInstant() : date.toInstant();
+    }
+
+    String getSortBy() {
+        return sortBy;
+    }
+
+    boolean isAscending() {
+        return ascending;
+    }
+
+    Long getId() {
+        return id;
+    }
+}
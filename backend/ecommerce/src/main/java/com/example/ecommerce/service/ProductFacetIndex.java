@@ -0,0 +1,364 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.event.ProductChangeEvent;
+import com.example.ecommerce.model.Product;
+import com.example.ecommerce.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.DigestUtils;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Per-category and per-price-bucket product counts, maintained incrementally from
+ * product change events so listings can show facets without extra queries.
+ *
+ * Also holds the materialized category list behind /api/products/categories, which
+ * is only rebuilt when a category appears or disappears. Categories are kept as
+ * the exact distinct values stored on products, like SELECT DISTINCT category;
+ * only the category filter of {@link #getFacets} matches them case-insensitively,
+ * as the listing queries do.
+ *
+ * Until the first rebuild has run the index is incomplete, so the category list
+ * and counts are read from the database and carry no ETag.
+ */
+@Service
+public class ProductFacetIndex {
+    private final ProductRepository productRepository;
+    private final List<BigDecimal> bucketBounds;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, FacetEntry> entries = new HashMap<>();
+    private final TreeMap<String, FacetCounts> categories = new TreeMap<>();
+    private final FacetCounts allProducts;
+    private volatile CategorySnapshot categorySnapshot = new CategorySnapshot(Collections.emptyList());
+    private volatile boolean loaded;
+
+    public ProductFacetIndex(ProductRepository productRepository,
+                             @Value("${product.facets.price-buckets:50,100,250,500,1000,2000}") List<BigDecimal> bucketBounds) {
+        this.productRepository = productRepository;
+        this.bucketBounds = new ArrayList<>(bucketBounds);
+        this.bucketBounds.sort(null);
+        this.allProducts = new FacetCounts(this.bucketBounds.size() + 1);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChange(ProductChangeEvent event) {
+        switch (event.getType()) {
+            case SAVED:
+                put(event.getProduct());
+                break;
+            case DELETED:
+                remove(event.getProductId());
+                break;
+            case STOCK_CHANGED:
+                updateStock(event.getProductId(), event.getStock());
+                break;
+            case BULK_UPDATED:
+                for (Product product : event.getProducts()) {
+                    put(product);
+                }
+                break;
+            case RELOADED:
+                rebuild(event.getProducts());
+                break;
+        }
+    }
+
+    public void rebuild(List<Product> products) {
+        lock.writeLock().lock();
+        try {
+            entries.clear();
+            categories.clear();
+            allProducts.reset();
+            for (Product product : products) {
+                add(toEntry(product));
+            }
+            refreshCategorySnapshot();
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public CategorySnapshot getCategorySnapshot() {
+        if (!loaded) {
+            return new CategorySnapshot(productRepository.findAllCategories(), null);
+        }
+        return categorySnapshot;
+    }
+
+    // Counts change with every create/delete, so their validator is derived on demand
+    public CategoryCounts getCategoryCounts() {
+        if (!loaded) {
+            List<Map<String, Object>> counts = new ArrayList<>();
+            for (Object[] row : productRepository.findCategoryCounts()) {
+                counts.add(categoryCount((String) row[0], ((Number) row[1]).longValue(), ((Number) row[2]).longValue()));
+            }
+            return new CategoryCounts(Collections.unmodifiableList(counts), null);
+        }
+        lock.readLock().lock();
+        try {
+            List<Map<String, Object>> counts = new ArrayList<>();
+            StringBuilder fingerprint = new StringBuilder();
+            for (Map.Entry<String, FacetCounts> category : categories.entrySet()) {
+                FacetCounts value = category.getValue();
+                counts.add(categoryCount(category.getKey(), value.total, value.inStock));
+                fingerprint.append(category.getKey()).append('=').append(value.total)
+                        .append('/').append(value.inStock).append(';');
+            }
+            return new CategoryCounts(Collections.unmodifiableList(counts), etagOf(fingerprint.toString()));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Map<String, Object> getFacets(String category) {
+        lock.readLock().lock();
+        try {
+            List<Map<String, Object>> categoryFacets = new ArrayList<>();
+            for (Map.Entry<String, FacetCounts> counts : categories.entrySet()) {
+                categoryFacets.add(categoryCount(counts.getKey(), counts.getValue().total, counts.getValue().inStock));
+            }
+
+            FacetCounts scope = category == null ? allProducts : scopeOf(category);
+            List<Map<String, Object>> priceFacets = new ArrayList<>();
+            for (int i = 0; i <= bucketBounds.size(); i++) {
+                Map<String, Object> bucket = new LinkedHashMap<>();
+                bucket.put("min", i == 0 ? BigDecimal.ZERO : bucketBounds.get(i - 1));
+                bucket.put("max", i == bucketBounds.size() ? null : bucketBounds.get(i));
+                bucket.put("count", scope == null ? 0L : scope.buckets[i]);
+                priceFacets.add(bucket);
+            }
+
+            Map<String, Object> facets = new LinkedHashMap<>();
+            facets.put("total", scope == null ? 0L : scope.total);
+            facets.put("inStock", scope == null ? 0L : scope.inStock);
+            facets.put("categories", categoryFacets);
+            facets.put("priceBuckets", priceFacets);
+            return facets;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void put(Product product) {
+        if (product == null || product.getId() == null) {
+            return;
+        }
+        FacetEntry entry = toEntry(product);
+        lock.writeLock().lock();
+        try {
+            FacetEntry previous = entries.get(product.getId());
+            if (previous != null) {
+                subtract(previous);
+            }
+            add(entry);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            FacetEntry previous = entries.get(productId);
+            if (previous != null) {
+                subtract(previous);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void updateStock(Long productId, Integer stock) {
+        if (stock == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            FacetEntry previous = entries.get(productId);
+            if (previous != null && previous.inStock != stock > 0) {
+                subtract(previous);
+                add(new FacetEntry(previous.id, previous.category, previous.bucket, stock > 0));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void add(FacetEntry entry) {
+        entries.put(entry.id, entry);
+        allProducts.add(entry, 1);
+        FacetCounts counts = categories.get(entry.category);
+        if (counts == null) {
+            counts = new FacetCounts(bucketBounds.size() + 1);
+            categories.put(entry.category, counts);
+            refreshCategorySnapshot();
+        }
+        counts.add(entry, 1);
+    }
+
+    private void subtract(FacetEntry entry) {
+        entries.remove(entry.id);
+        allProducts.add(entry, -1);
+        FacetCounts counts = categories.get(entry.category);
+        if (counts != null) {
+            counts.add(entry, -1);
+            if (counts.total == 0) {
+                categories.remove(entry.category);
+                refreshCategorySnapshot();
+            }
+        }
+    }
+
+    private FacetEntry toEntry(Product product) {
+        String category = product.getCategory() != null ? product.getCategory() : "";
+        return new FacetEntry(product.getId(), category, bucketOf(product.getPrice()),
+                product.getStock() != null && product.getStock() > 0);
+    }
+
+    // Every stored spelling of the category, the way LOWER(category) = LOWER(:category) matches it
+    private FacetCounts scopeOf(String category) {
+        String wanted = SearchTokenizer.normalize(category);
+        FacetCounts scope = null;
+        for (Map.Entry<String, FacetCounts> counts : categories.entrySet()) {
+            if (SearchTokenizer.normalize(counts.getKey()).equals(wanted)) {
+                if (scope == null) {
+                    scope = new FacetCounts(bucketBounds.size() + 1);
+                }
+                scope.addAll(counts.getValue());
+            }
+        }
+        return scope;
+    }
+
+    private void refreshCategorySnapshot() {
+        categorySnapshot = new CategorySnapshot(Collections.unmodifiableList(new ArrayList<>(categories.keySet())));
+    }
+
+    private static Map<String, Object> categoryCount(String name, long count, long inStock) {
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("name", name);
+        entry.put("count", count);
+        entry.put("inStock", inStock);
+        return entry;
+    }
+
+    private static String etagOf(String content) {
+        return DigestUtils.md5DigestAsHex(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Bucket i holds prices in [bound(i-1), bound(i)); the last bucket is open ended
+    private int bucketOf(BigDecimal price) {
+        if (price == null) {
+            return 0;
+        }
+        for (int i = 0; i < bucketBounds.size(); i++) {
+            if (price.compareTo(bucketBounds.get(i)) < 0) {
+                return i;
+            }
+        }
+        return bucketBounds.size();
+    }
+
+    public static final class CategorySnapshot {
+        private final List<String> names;
+        private final String etag;
+
+        private CategorySnapshot(List<String> names) {
+            this(names, etagOf(String.join("\n", names)));
+        }
+
+        private CategorySnapshot(List<String> names, String etag) {
+            this.names = names;
+            this.etag = etag;
+        }
+
+        public List<String> getNames() {
+            return names;
+        }
+
+        /** Null while the index is still loading. */
+        public String getEtag() {
+            return etag;
+        }
+    }
+
+    public static final class CategoryCounts {
+        private final List<Map<String, Object>> counts;
+        private final String etag;
+
+        private CategoryCounts(List<Map<String, Object>> counts, String etag) {
+            this.counts = counts;
+            this.etag = etag;
+        }
+
+        public List<Map<String, Object>> getCounts() {
+            return counts;
+        }
+
+        /** Null while the index is still loading. */
+        public String getEtag() {
+            return etag;
+        }
+    }
+
+    private static final class FacetEntry {
+        private final Long id;
+        private final String category;
+        private final int bucket;
+        private final boolean inStock;
+
+        private FacetEntry(Long id, String category, int bucket, boolean inStock) {
+            this.id = id;
+            this.category = category;
+            this.bucket = bucket;
+            this.inStock = inStock;
+        }
+    }
+
+    private static final class FacetCounts {
+        private final long[] buckets;
+        private long total;
+        private long inStock;
+
+        private FacetCounts(int bucketCount) {
+            this.buckets = new long[bucketCount];
+        }
+
+        private void add(FacetEntry entry, int delta) {
+            total += delta;
+            buckets[entry.bucket] += delta;
+            if (entry.inStock) {
+                inStock += delta;
+            }
+        }
+
+        private void addAll(FacetCounts other) {
+            total += other.total;
+            inStock += other.inStock;
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] += other.buckets[i];
+            }
+        }
+
+        private void reset() {
+            total = 0;
+            inStock = 0;
+            Arrays.fill(buckets, 0);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.model.Product;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+/**
+ * Typo-tolerant fallback used when the regular search returns nothing, so
+ * "macbok" still finds the MacBook. Selected with the
+ * {@code product.search.fuzzy} property.
+ */
+public interface ProductFuzzySearch {
+
+    /**
+     * @param query    non-blank search text
+     * @param category optional category filter (case-insensitive), or null for all categories
+     */
+    Page<Product> search(String query, String category, Pageable pageable);
+}
@@ -0,0 +1,361 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.model.Product;
+import com.example.ecommerce.repository.ProductJdbcRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Bulk catalog import in the db/data/products.csv layout
+ * (id,name,price,description,image,category,stock), as CSV with a header row or
+ * as NDJSON objects with the same keys.
+ *
+ * The body is read one row at a time and written in JDBC batches, each in its own
+ * transaction, so memory use depends on the batch size and not on the file. Rows
+ * with an id are upserted on it, rows without one are inserted. One progress line
+ * is written per batch, followed by a summary line.
+ */
+@Service
+public class ProductImportService {
+    private static final Logger logger = LoggerFactory.getLogger(ProductImportService.class);
+    private static final String[] REQUIRED_COLUMNS = {"name", "price", "image", "category", "stock"};
+    private static final int MAX_ERRORS_PER_BATCH = 100;
+    private static final BigDecimal MAX_PRICE = new BigDecimal("99999999.99");
+
+    public enum Format {
+        CSV,
+        NDJSON;
+
+        public static Format from(String value) {
+            for (Format format : values()) {
+                if (format.name().equalsIgnoreCase(value)) {
+                    return format;
+                }
+            }
+            return null;
+        }
+    }
+
+    private final ProductJdbcRepository productJdbcRepository;
+    private final ProductService productService;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxFieldLength;
+
+    public ProductImportService(ProductJdbcRepository productJdbcRepository, ProductService productService,
+                                ObjectMapper objectMapper, PlatformTransactionManager transactionManager,
+                                @Value("${product.import.batch-size:1000}") int batchSize,
+                                @Value("${product.import.max-field-length:65536}") int maxFieldLength) {
+        this.productJdbcRepository = productJdbcRepository;
+        this.productService = productService;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = Math.max(batchSize, 1);
+        this.maxFieldLength = Math.max(maxFieldLength, 1);
+    }
+
+    public Map<String, Object> importProducts(InputStream in, Format format, OutputStream out) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        RowSource rows = format == Format.CSV ? new CsvRowSource(new CsvRowReader(reader, maxFieldLength)) : new NdjsonRowSource(reader);
+
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(null);
+
+        long rowsRead = 0;
+        long imported = 0;
+        long failed = 0;
+        int batchNumber = 0;
+        boolean explicitIds = false;
+        List<Product> batch = new ArrayList<>(batchSize);
+        List<Map<String, Object>> errors = new ArrayList<>();
+        int batchRejected = 0;
+        try {
+            Map<String, String> row;
+            while (true) {
+                try {
+                    row = rows.next();
+                } catch (RowException e) {
+                    rowsRead++;
+                    batchRejected++;
+                    addError(errors, e.line, e.getMessage());
+                    continue;
+                }
+                if (row != null) {
+                    rowsRead++;
+                    try {
+                        Product product = toProduct(row);
+                        explicitIds |= product.getId() != null;
+                        batch.add(product);
+                    } catch (IllegalArgumentException e) {
+                        batchRejected++;
+                        addError(errors, rows.line(), e.getMessage());
+                    }
+                }
+                if (batch.size() + batchRejected >= batchSize || (row == null && batch.size() + batchRejected > 0)) {
+                    batchNumber++;
+                    int written = writeBatch(batch, errors);
+                    imported += written;
+                    failed += batchRejected + (batch.size() - written);
+                    writeLine(generator, batchReport(batchNumber, batch.size() + batchRejected, written,
+                            batchRejected + (batch.size() - written), errors, rowsRead));
+                    batch.clear();
+                    errors.clear();
+                    batchRejected = 0;
+                }
+                if (row == null) {
+                    break;
+                }
+            }
+        } finally {
+            if (imported > 0) {
+                if (explicitIds) {
+                    productJdbcRepository.resetIdSequence();
+                }
+                productService.refreshCatalog();
+            }
+        }
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("done", true);
+        summary.put("batches", batchNumber);
+        summary.put("rows", rowsRead);
+        summary.put("imported", imported);
+        summary.put("failed", failed);
+        writeLine(generator, summary);
+        generator.close();
+        out.flush();
+        logger.info("Product import finished: {} rows, {} imported, {} failed", rowsRead, imported, failed);
+        return summary;
+    }
+
+    // A batch that the database rejects is rolled back as a whole and reported, the import goes on
+    private int writeBatch(List<Product> batch, List<Map<String, Object>> errors) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        try {
+            Integer written = transactionTemplate.execute(status -> productJdbcRepository.upsertAll(batch));
+            return written != null ? written : 0;
+        } catch (DataAccessException e) {
+            addError(errors, null, "Batch rejected by the database: " + e.getMostSpecificCause().getMessage());
+            return 0;
+        }
+    }
+
+    private Product toProduct(Map<String, String> row) {
+        Product product = new Product();
+        String id = row.get("id");
+        if (id != null && !id.isBlank()) {
+            product.setId(parseLong("id", id));
+            if (product.getId() <= 0) {
+                throw new IllegalArgumentException("id must be positive");
+            }
+        }
+        product.setName(required(row, "name", 255));
+        product.setImage(required(row, "image", 1024));
+        product.setCategory(required(row, "category", 50));
+        String description = row.get("description");
+        product.setDescription(description != null && !description.isBlank() ? description : null);
+
+        BigDecimal price;
+        try {
+            price = new BigDecimal(required(row, "price", 32));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("price is not a number");
+        }
+        if (price.signum() < 0 || price.compareTo(MAX_PRICE) > 0 || price.stripTrailingZeros().scale() > 2) {
+            throw new IllegalArgumentException("price must be between 0 and " + MAX_PRICE + " with at most 2 decimals");
+        }
+        product.setPrice(price);
+
+        long stock = parseLong("stock", required(row, "stock", 32));
+        if (stock < 0 || stock > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("stock must be a non-negative integer");
+        }
+        product.setStock((int) stock);
+        return product;
+    }
+
+    private static String required(Map<String, String> row, String column, int maxLength) {
+        String value = row.get(column);
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException(column + " is required");
+        }
+        value = value.trim();
+        if (value.length() > maxLength) {
+            throw new IllegalArgumentException(column + " is longer than " + maxLength + " characters");
+        }
+        return value;
+    }
+
+    private static long parseLong(String column, String value) {
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(column + " is not an integer");
+        }
+    }
+
+    private static void addError(List<Map<String, Object>> errors, Long line, String message) {
+        if (errors.size() >= MAX_ERRORS_PER_BATCH) {
+            return;
+        }
+        Map<String, Object> error = new LinkedHashMap<>();
+        if (line != null) {
+            error.put("line", line);
+        }
+        error.put("message", message);
+        errors.add(error);
+    }
+
+    private static Map<String, Object> batchReport(int batchNumber, int rows, int imported, int failed,
+                                                   List<Map<String, Object>> errors, long rowsRead) {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("batch", batchNumber);
+        report.put("rows", rows);
+        report.put("imported", imported);
+        report.put("failed", failed);
+        report.put("rowsRead", rowsRead);
+        report.put("errors", new ArrayList<>(errors));
+        return report;
+    }
+
+    private void writeLine(JsonGenerator generator, Map<String, Object> value) throws IOException {
+        objectMapper.writeValue(generator, value);
+        generator.writeRaw('\n');
+        generator.flush();
+    }
+
+    private interface RowSource {
+        /** Next row keyed by lower-case column name, or null at end of input. */
+        Map<String, String> next() throws IOException;
+
+        /** Line the last returned row started on. */
+        long line();
+    }
+
+    // A row that cannot be imported; it is reported and the import goes on with the next one
+    static final class RowException extends IOException {
+        private final long line;
+
+        RowException(long line, String message) {
+            super(message);
+            this.line = line;
+        }
+    }
+
+    private static final class CsvRowSource implements RowSource {
+        private final CsvRowReader reader;
+        private List<String> header;
+
+        private CsvRowSource(CsvRowReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public Map<String, String> next() throws IOException {
+            if (header == null) {
+                List<String> names = reader.next();
+                if (names == null) {
+                    return null;
+                }
+                header = new ArrayList<>(names.size());
+                for (String name : names) {
+                    header.add(name.trim().toLowerCase(Locale.ROOT));
+                }
+                for (String column : REQUIRED_COLUMNS) {
+                    if (!header.contains(column)) {
+                        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "CSV header is missing column: " + column);
+                    }
+                }
+            }
+            List<String> fields = reader.next();
+            if (fields == null) {
+                return null;
+            }
+            if (fields.size() != header.size()) {
+                throw new RowException(reader.getRecordLine(),
+                        "expected " + header.size() + " fields but found " + fields.size());
+            }
+            Map<String, String> row = new HashMap<>();
+            for (int i = 0; i < header.size(); i++) {
+                row.put(header.get(i), fields.get(i));
+            }
+            return row;
+        }
+
+        @Override
+        public long line() {
+            return reader.getRecordLine();
+        }
+    }
+
+    private final class NdjsonRowSource implements RowSource {
+        private final BufferedReader reader;
+        private long lineNumber;
+
+        private NdjsonRowSource(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public Map<String, String> next() throws IOException {
+            String line;
+            do {
+                line = reader.readLine();
+                if (line == null) {
+                    return null;
+                }
+                lineNumber++;
+            } while (line.isBlank());
+
+            JsonNode node;
+            try {
+                node = objectMapper.readTree(line);
+            } catch (IOException e) {
+                throw new RowException(lineNumber, "invalid JSON");
+            }
+            if (node == null || !node.isObject()) {
+                throw new RowException(lineNumber, "expected a JSON object");
+            }
+            Map<String, String> row = new HashMap<>();
+            node.fields().forEachRemaining(field -> {
+                if (!field.getValue().isNull()) {
+                    row.put(field.getKey().toLowerCase(Locale.ROOT), field.getValue().asText());
+                }
+            });
+            return row;
+        }
+
+        @Override
+        public long line() {
+            return lineNumber;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.model.Product;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+/**
+ * Backend for the storefront search box. Selected with the
+ * {@code product.search.engine} property.
+ */
+public interface ProductSearchEngine {
+
+    /**
+     * @param query    non-blank search text
+     * @param category optional category filter (case-insensitive), or null for all categories
+     */
+    Page<Product> search(String query, String category, Pageable pageable);
+}
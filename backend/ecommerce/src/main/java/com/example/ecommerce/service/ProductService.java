@@ -1,12 +1,20 @@
 package com.example.ecommerce.service;
 
+import com.example.ecommerce.config.ProductCacheConfig;
+import com.example.ecommerce.dto.CursorPage;
+import com.example.ecommerce.event.ProductChangeEvent;
 import com.example.ecommerce.model.Product;
 import com.example.ecommerce.repository.ProductRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -14,17 +22,81 @@ import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.math.BigDecimal;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.Optional;
+import java.util.OptionalInt;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 @Service
 public class ProductService {
+    private static final Set<String> CURSOR_SORT_KEYS = Set.of("name", "price", "createdAt");
+
     private final ProductRepository productRepository;
+    private final InventoryEngine inventoryEngine;
+    private final ProductSearchEngine searchEngine;
+    private final ProductFuzzySearch fuzzySearch;
+    private final ApplicationEventPublisher eventPublisher;
+    private final LruTtlCache<Long, Product> productCache;
+    private final ProductFacetIndex facetIndex;
 
     @Autowired
-    public ProductService(ProductRepository productRepository) {
+    public ProductService(ProductRepository productRepository, InventoryEngine inventoryEngine,
+                          ProductSearchEngine searchEngine, ProductFuzzySearch fuzzySearch,
+                          ApplicationEventPublisher eventPublisher, ProductCacheConfig cacheConfig,
+                          ProductFacetIndex facetIndex) {
         this.productRepository = productRepository;
+        this.inventoryEngine = inventoryEngine;
+        this.searchEngine = searchEngine;
+        this.fuzzySearch = fuzzySearch;
+        this.eventPublisher = eventPublisher;
+        this.facetIndex = facetIndex;
+        this.productCache = new LruTtlCache<>(cacheConfig.getMaxSize(), cacheConfig.getTtlSeconds() * 1000L);
+    }
+
+    // Lets the in-memory catalog views build themselves once the context is up
+    @EventListener(ApplicationReadyEvent.class)
+    public void publishCatalogLoaded() {
+        eventPublisher.publishEvent(ProductChangeEvent.reloaded(loadCatalog()));
+    }
+
+    // Bulk writes go through JDBC; evict what they touched and tell every view at once
+    public void publishBulkUpdate(List<Product> products) {
+        for (Product product : products) {
+            productCache.invalidate(product.getId());
+        }
+        eventPublisher.publishEvent(ProductChangeEvent.bulkUpdated(products));
+    }
+
+    // After writes that bypassed JPA (bulk import), every cached and indexed view starts over
+    public void refreshCatalog() {
+        productCache.invalidateAll();
+        eventPublisher.publishEvent(ProductChangeEvent.reloaded(loadCatalog()));
+    }
+
+    // One scan of only the columns the views use, instead of a findAll() per view
+    private List<Product> loadCatalog() {
+        List<Object[]> rows = productRepository.findCatalogRows();
+        List<Product> products = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            Product product = new Product();
+            product.setId((Long) row[0]);
+            product.setName((String) row[1]);
+            product.setDescription((String) row[2]);
+            product.setPrice((BigDecimal) row[3]);
+            product.setCategory((String) row[4]);
+            product.setStock((Integer) row[5]);
+            product.setLowStockThreshold((Integer) row[6]);
+            product.setCreatedAt((java.util.Date) row[7]);
+            products.add(product);
+        }
+        return products;
     }
 
     public List<Product> getAllProducts() {
@@ -35,8 +107,63 @@ public class ProductService {
         return productRepository.findAllPaginated(pageable);
     }
 
+    // Keyset pagination: cost does not grow with the page depth, count is opt-in
+    public CursorPage<Product> getProductsAfterCursor(String category, BigDecimal minPrice, BigDecimal maxPrice,
+                                                       String cursor, String sortBy, String sortOrder,
+                                                       int size, boolean includeCount) {
+        if (!CURSOR_SORT_KEYS.contains(sortBy)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cursor pagination supports sortBy=name, price or createdAt");
+        }
+        boolean ascending = !"desc".equalsIgnoreCase(sortOrder);
+        int pageSize = Math.max(size, 1);
+
+        Object afterValue = null;
+        Long afterId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            ProductCursor decoded;
+            try {
+                decoded = ProductCursor.decode(cursor);
+            } catch (IllegalArgumentException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+            }
+            if (!decoded.getSortBy().equals(sortBy) || decoded.isAscending() != ascending) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cursor was issued for a different sort order");
+            }
+            afterValue = decoded.typedValue();
+            afterId = decoded.getId();
+        }
+
+        List<Product> rows = productRepository.findKeysetPage(category, minPrice, maxPrice, sortBy, ascending,
+                afterValue, afterId, pageSize + 1);
+        boolean hasNext = rows.size() > pageSize;
+        List<Product> content = hasNext ? new ArrayList<>(rows.subList(0, pageSize)) : rows;
+        String nextCursor = hasNext
+                ? ProductCursor.after(content.get(content.size() - 1), sortBy, ascending).encode()
+                : null;
+
+        Long total = null;
+        if (includeCount) {
+            total = productRepository.countFiltered(category, minPrice, maxPrice);
+        }
+        return new CursorPage<>(content, pageSize, sortBy, ascending ? "asc" : "desc", nextCursor, total);
+    }
+
+    // Read-through: served from the product cache, loaded by primary key on a miss.
+    // The cache keeps its own detached copy and every caller gets a fresh one, so a
+    // caller that edits its product (or a managed entity it came from) never changes the cache.
     public Optional<Product> getProductById(Long id) {
-        return productRepository.findById(id);
+        Product cached = productCache.get(id);
+        if (cached != null) {
+            return Optional.of(copyOf(cached));
+        }
+        long generation = productCache.generation();
+        Optional<Product> loaded = productRepository.findById(id);
+        loaded.ifPresent(product -> productCache.putIfUnchanged(id, copyOf(product), generation));
+        return loaded;
+    }
+
+    public Map<String, Object> getCacheStats() {
+        return productCache.getStats();
     }
 
     public List<Product> getProductsByCategory(String category) {
@@ -55,16 +182,30 @@ public class ProductService {
         return productRepository.findByCategoryAndPriceRange(category, minPrice, maxPrice, pageable);
     }
 
+    // Served from the in-memory category set instead of SELECT DISTINCT on every navbar render
     public List<String> getAllCategories() {
-        return productRepository.findAllCategories();
+        return facetIndex.getCategorySnapshot().getNames();
+    }
+
+    public ProductFacetIndex.CategorySnapshot getCategorySnapshot() {
+        return facetIndex.getCategorySnapshot();
+    }
+
+    public ProductFacetIndex.CategoryCounts getCategoryCounts() {
+        return facetIndex.getCategoryCounts();
     }
 
     public Product saveProduct(Product product) {
-        return productRepository.save(product);
+        Product saved = productRepository.save(product);
+        evictFromCache(saved.getId());
+        eventPublisher.publishEvent(ProductChangeEvent.saved(saved));
+        return saved;
     }
 
     public void deleteProduct(Long id) {
         productRepository.deleteById(id);
+        evictFromCache(id);
+        eventPublisher.publishEvent(ProductChangeEvent.deleted(id));
     }
 
     // ADMIN: Add product with image upload
@@ -79,7 +220,10 @@ public class ProductService {
             Files.copy(imageFile.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
             product.setImage("/uploads/" + fileName);
         }
-        return productRepository.save(product);
+        Product saved = productRepository.save(product);
+        evictFromCache(saved.getId());
+        eventPublisher.publishEvent(ProductChangeEvent.saved(saved));
+        return saved;
     }
 
     // ADMIN: Update product with image upload
@@ -92,6 +236,7 @@ public class ProductService {
             product.setDescription(updated.getDescription());
             product.setCategory(updated.getCategory());
             product.setStock(updated.getStock());
+            product.setLowStockThreshold(updated.getLowStockThreshold());
             if (imageFile != null && !imageFile.isEmpty()) {
                 String fileName = System.currentTimeMillis() + "_" + imageFile.getOriginalFilename();
                 Path uploadPath = Paths.get(uploadDir);
@@ -102,61 +247,146 @@ public class ProductService {
                 Files.copy(imageFile.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
                 product.setImage("/uploads/" + fileName);
             }
-            return productRepository.save(product);
+            Product saved = productRepository.save(product);
+            evictFromCache(id);
+            eventPublisher.publishEvent(ProductChangeEvent.saved(saved));
+            return saved;
         }
         return null;
     }
 
     // Stock management methods
     public boolean isStockAvailable(Long productId, Integer quantity) {
-        Optional<Product> product = productRepository.findById(productId);
+        OptionalInt counted = inventoryEngine.currentStock(productId);
+        if (counted.isPresent()) {
+            return counted.getAsInt() >= quantity;
+        }
+        Optional<Product> product = getProductById(productId);
         return product.isPresent() && product.get().getStock() >= quantity;
     }
 
+    // The inventory engine may be ahead of products.stock; its count wins when it has one
     public Integer getProductStock(Long productId) {
-        Optional<Product> product = productRepository.findById(productId);
+        OptionalInt counted = inventoryEngine.currentStock(productId);
+        if (counted.isPresent()) {
+            return counted.getAsInt();
+        }
+        Optional<Product> product = getProductById(productId);
         return product.map(Product::getStock).orElse(0);
     }
 
+    /** Current stock of the given products; ids that do not exist are left out. */
+    public Map<Long, Integer> getStockLevels(Collection<Long> productIds) {
+        Map<Long, Integer> stock = new HashMap<>();
+        for (Product product : productRepository.findAllById(productIds)) {
+            OptionalInt counted = inventoryEngine.currentStock(product.getId());
+            stock.put(product.getId(), counted.isPresent() ? counted.getAsInt() : product.getStock());
+        }
+        return stock;
+    }
+
+    // Atomic conditional decrement; no read-modify-write window between the check and the update
     @Transactional
     public void reduceStock(Long productId, Integer quantity) {
-        Optional<Product> productOpt = productRepository.findById(productId);
-        if (productOpt.isPresent()) {
-            Product product = productOpt.get();
-            if (product.getStock() >= quantity) {
-                product.setStock(product.getStock() - quantity);
-                productRepository.save(product);
-            } else {
-                throw new RuntimeException("Insufficient stock for product ID: " + productId);
+        OptionalInt remaining = inventoryEngine.decrement(productId, quantity);
+        if (remaining.isEmpty()) {
+            if (!productRepository.existsById(productId)) {
+                throw new RuntimeException("Product not found with ID: " + productId);
             }
-        } else {
-            throw new RuntimeException("Product not found with ID: " + productId);
+            throw new RuntimeException("Insufficient stock for product ID: " + productId);
+        }
+        evictFromCache(productId);
+        eventPublisher.publishEvent(ProductChangeEvent.stockChanged(productId, remaining.getAsInt()));
+    }
+
+    /**
+     * Decrements every line of an order in one call. All or nothing: if any
+     * product is missing or short, nothing is taken and the transaction rolls back.
+     */
+    @Transactional
+    public void reduceStockAll(Map<Long, Integer> quantities) {
+        Map<Long, Integer> remaining = inventoryEngine.decrementAll(quantities);
+        for (Map.Entry<Long, Integer> entry : remaining.entrySet()) {
+            evictFromCache(entry.getKey());
+            eventPublisher.publishEvent(ProductChangeEvent.stockChanged(entry.getKey(), entry.getValue()));
         }
     }
 
     @Transactional
     public void restoreStock(Long productId, Integer quantity) {
-        Optional<Product> productOpt = productRepository.findById(productId);
-        if (productOpt.isPresent()) {
-            Product product = productOpt.get();
-            product.setStock(product.getStock() + quantity);
-            productRepository.save(product);
-        } else {
+        OptionalInt stock = inventoryEngine.increment(productId, quantity);
+        if (stock.isEmpty()) {
             throw new RuntimeException("Product not found with ID: " + productId);
         }
+        evictFromCache(productId);
+        eventPublisher.publishEvent(ProductChangeEvent.stockChanged(productId, stock.getAsInt()));
+    }
+
+    /**
+     * Puts stock back for many products with one set-based update, e.g. for the
+     * lines of one or more cancelled orders.
+     *
+     * @return new stock per product id; products that no longer exist are left out
+     */
+    @Transactional
+    public Map<Long, Integer> restoreStockAll(Map<Long, Integer> quantities) {
+        Map<Long, Integer> stock = inventoryEngine.incrementAll(quantities);
+        for (Map.Entry<Long, Integer> entry : stock.entrySet()) {
+            evictFromCache(entry.getKey());
+            eventPublisher.publishEvent(ProductChangeEvent.stockChanged(entry.getKey(), entry.getValue()));
+        }
+        return stock;
     }
 
     public Page<Product> searchProducts(String query, Pageable pageable) {
         if (query == null || query.trim().isEmpty()) {
             return getAllProductsPaginated(pageable);
         }
-        return productRepository.searchProducts(query.trim(), pageable);
+        return searchWithFallback(query.trim(), null, pageable);
     }
 
     public Page<Product> searchProductsByCategory(String query, String category, Pageable pageable) {
         if (query == null || query.trim().isEmpty()) {
             return getProductsByCategoryPaginated(category, pageable);
         }
-        return productRepository.searchProductsByCategory(query.trim(), category, pageable);
+        return searchWithFallback(query.trim(), category, pageable);
+    }
+
+    // Typos only get the fuzzy pass when the exact search found nothing at all
+    private Page<Product> searchWithFallback(String query, String category, Pageable pageable) {
+        Page<Product> results = searchEngine.search(query, category, pageable);
+        if (results.getTotalElements() > 0) {
+            return results;
+        }
+        return fuzzySearch.search(query, category, pageable);
+    }
+
+    // Evict now and again once the surrounding transaction completes, so a reader
+    // that loaded the row before the commit cannot leave a stale copy behind.
+    private void evictFromCache(Long productId) {
+        productCache.invalidate(productId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    productCache.invalidate(productId);
+                }
+            });
+        }
+    }
+
+    private static Product copyOf(Product product) {
+        Product copy = new Product();
+        copy.setId(product.getId());
+        copy.setName(product.getName());
+        copy.setPrice(product.getPrice());
+        copy.setDescription(product.getDescription());
+        copy.setImage(product.getImage());
+        copy.setCategory(product.getCategory());
+        copy.setStock(product.getStock());
+        copy.setLowStockThreshold(product.getLowStockThreshold());
+        copy.setCreatedAt(product.getCreatedAt() != null ? new java.util.Date(product.getCreatedAt().getTime()) : null);
+        copy.setUpdatedAt(product.getUpdatedAt() != null ? new java.util.Date(product.getUpdatedAt().getTime()) : null);
+        return copy;
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,537 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.event.ProductChangeEvent;
+import com.example.ecommerce.model.Product;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Compressed prefix trie (radix tree) of product names and categories for typeahead.
+ *
+ * Names are inserted from every word start, so "pro" completes "MacBook Pro M2".
+ * Edges carry whole runs of characters and a node only exists where keys branch or
+ * end, with its children in small sorted arrays. Each node caches its best
+ * completions, so a lookup is a walk down the prefix and a copy of that list.
+ * Product weight is the stock on hand; a category weighs the total stock of its
+ * products. Mutations only recompute the tops along the affected paths.
+ *
+ * Stock changes only move weights, and checkout produces many of them, so they are
+ * collected and applied together every stock-refresh-ms instead of one write lock
+ * per decrement.
+ */
+@Service
+public class ProductSuggestIndex {
+    private static final Logger logger = LoggerFactory.getLogger(ProductSuggestIndex.class);
+    private static final int MAX_KEY_LENGTH = 64;
+    private static final Comparator<Suggestion> RANKING = Comparator
+            .comparingLong((Suggestion s) -> s.weight).reversed()
+            .thenComparing(s -> s.text);
+
+    private final int maxResults;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Node root = new Node();
+    private final Map<Long, Suggestion> products = new HashMap<>();
+    private final Map<String, Suggestion> categories = new HashMap<>();
+    private final Map<String, Integer> categoryProductCounts = new HashMap<>();
+    // Latest stock per product, waiting for the next applyStockChanges
+    private final Map<Long, Integer> pendingStock = new ConcurrentHashMap<>();
+
+    public ProductSuggestIndex(@Value("${product.suggest.max-results:10}") int maxResults) {
+        this.maxResults = maxResults;
+    }
+
+    public List<Map<String, Object>> suggest(String prefix, int limit) {
+        String key = normalize(prefix);
+        List<Map<String, Object>> result = new ArrayList<>();
+        if (key.isEmpty()) {
+            return result;
+        }
+        lock.readLock().lock();
+        try {
+            Node node = find(key);
+            if (node == null) {
+                return result;
+            }
+            int count = Math.min(Math.max(limit, 1), node.top.size());
+            for (Suggestion suggestion : node.top.subList(0, count)) {
+                result.add(suggestion.toMap());
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChange(ProductChangeEvent event) {
+        switch (event.getType()) {
+            case SAVED:
+                putProduct(event.getProduct());
+                break;
+            case DELETED:
+                removeProduct(event.getProductId());
+                break;
+            case STOCK_CHANGED:
+                if (event.getStock() != null) {
+                    pendingStock.put(event.getProductId(), event.getStock());
+                }
+                break;
+            case BULK_UPDATED:
+                for (Product product : event.getProducts()) {
+                    putProduct(product);
+                }
+                break;
+            case RELOADED:
+                rebuild(event.getProducts());
+                break;
+        }
+    }
+
+    public void rebuild(List<Product> catalog) {
+        // Queued changes are already in the catalog scan behind this event; later ones stay queued
+        pendingStock.clear();
+        lock.writeLock().lock();
+        try {
+            root = new Node();
+            products.clear();
+            categories.clear();
+            categoryProductCounts.clear();
+            for (Product product : catalog) {
+                if (product.getName() == null) {
+                    continue;
+                }
+                Suggestion suggestion = Suggestion.forProduct(product);
+                products.put(product.getId(), suggestion);
+                addTerminals(suggestion);
+                String category = suggestion.category;
+                if (category != null && !category.isBlank()) {
+                    String key = normalize(category);
+                    categoryProductCounts.merge(key, 1, Integer::sum);
+                    categories.computeIfAbsent(key, k -> Suggestion.forCategory(category, 0)).weight += suggestion.weight;
+                }
+            }
+            for (Suggestion category : categories.values()) {
+                addTerminals(category);
+            }
+            // One post-order pass instead of refreshing the path after every insert
+            computeTops(root);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Suggest index rebuilt with {} products and {} categories", products.size(), categories.size());
+    }
+
+    /** Applies the queued stock changes, each product once with its latest stock. */
+    @Scheduled(fixedDelayString = "${product.suggest.stock-refresh-ms:2000}")
+    public void applyStockChanges() {
+        if (pendingStock.isEmpty()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            for (Long productId : new ArrayList<>(pendingStock.keySet())) {
+                Integer stock = pendingStock.remove(productId);
+                if (stock != null) {
+                    updateStockLocked(productId, stock);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void putProduct(Product product) {
+        if (product == null || product.getId() == null || product.getName() == null) {
+            return;
+        }
+        Suggestion suggestion = Suggestion.forProduct(product);
+        lock.writeLock().lock();
+        try {
+            // The saved stock supersedes any queued change that came before it
+            pendingStock.remove(product.getId());
+            removeProductLocked(product.getId());
+            products.put(product.getId(), suggestion);
+            insert(suggestion);
+            adjustCategory(suggestion.category, suggestion.weight, 1);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeProduct(Long productId) {
+        lock.writeLock().lock();
+        try {
+            pendingStock.remove(productId);
+            removeProductLocked(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void updateStockLocked(Long productId, int stock) {
+        Suggestion suggestion = products.get(productId);
+        if (suggestion == null || suggestion.weight == Math.max(stock, 0)) {
+            return;
+        }
+        long delta = Math.max(stock, 0) - suggestion.weight;
+        reweigh(suggestion, suggestion.weight + delta);
+        adjustCategory(suggestion.category, delta, 0);
+    }
+
+    private void removeProductLocked(Long productId) {
+        Suggestion existing = products.remove(productId);
+        if (existing != null) {
+            delete(existing);
+            adjustCategory(existing.category, -existing.weight, -1);
+        }
+    }
+
+    // Category entries exist while at least one product uses the category
+    private void adjustCategory(String category, long weightDelta, int productDelta) {
+        if (category == null || category.isBlank()) {
+            return;
+        }
+        String key = normalize(category);
+        int productCount = categoryProductCounts.merge(key, productDelta, Integer::sum);
+        Suggestion suggestion = categories.get(key);
+        if (productCount <= 0) {
+            categoryProductCounts.remove(key);
+            if (suggestion != null) {
+                categories.remove(key);
+                delete(suggestion);
+            }
+            return;
+        }
+        if (suggestion == null) {
+            suggestion = Suggestion.forCategory(category, Math.max(weightDelta, 0));
+            categories.put(key, suggestion);
+            insert(suggestion);
+        } else if (weightDelta != 0) {
+            reweigh(suggestion, Math.max(suggestion.weight + weightDelta, 0));
+        }
+    }
+
+    private void reweigh(Suggestion suggestion, long weight) {
+        delete(suggestion);
+        suggestion.weight = weight;
+        insert(suggestion);
+    }
+
+    private void insert(Suggestion suggestion) {
+        for (String key : indexKeys(suggestion.text)) {
+            add(key, suggestion);
+            refreshTops(pathTo(key));
+        }
+    }
+
+    private void addTerminals(Suggestion suggestion) {
+        for (String key : indexKeys(suggestion.text)) {
+            add(key, suggestion);
+        }
+    }
+
+    private void computeTops(Node node) {
+        for (int i = 0; i < node.childCount; i++) {
+            computeTops(node.children[i]);
+        }
+        refreshTop(node);
+    }
+
+    // The node the prefix ends in, or on the edge into; its top covers every completion
+    private Node find(String prefix) {
+        Node node = root;
+        int depth = 0;
+        while (depth < prefix.length()) {
+            Node child = node.child(prefix.charAt(depth));
+            if (child == null) {
+                return null;
+            }
+            int matched = commonPrefix(child.edge, prefix, depth);
+            if (depth + matched == prefix.length()) {
+                return child;
+            }
+            if (matched < child.edge.length()) {
+                return null;
+            }
+            node = child;
+            depth += matched;
+        }
+        return node;
+    }
+
+    // Walks or extends the tree down to the key, splitting an edge where the key leaves it
+    private void add(String key, Suggestion suggestion) {
+        Node node = root;
+        int depth = 0;
+        while (depth < key.length()) {
+            Node child = node.child(key.charAt(depth));
+            if (child == null) {
+                Node leaf = new Node(key.substring(depth));
+                node.addChild(leaf);
+                node = leaf;
+                break;
+            }
+            int matched = commonPrefix(child.edge, key, depth);
+            if (matched < child.edge.length()) {
+                Node split = new Node(child.edge.substring(0, matched));
+                node.removeChild(child);
+                child.edge = child.edge.substring(matched);
+                split.addChild(child);
+                split.top = child.top;
+                node.addChild(split);
+                child = split;
+            }
+            node = child;
+            depth += matched;
+        }
+        node.addTerminal(suggestion);
+    }
+
+    private void delete(Suggestion suggestion) {
+        for (String key : indexKeys(suggestion.text)) {
+            List<Node> path = pathTo(key);
+            Node node = path.get(path.size() - 1);
+            if (path.size() == 1 || depthOf(path) != key.length() || !node.removeTerminal(suggestion.id)) {
+                continue;
+            }
+            // Drop a node that no longer leads anywhere and fold away single-child links it leaves
+            Node parent = path.get(path.size() - 2);
+            if (node.terminalCount == 0 && node.childCount == 0) {
+                parent.removeChild(node);
+                path.remove(path.size() - 1);
+                if (path.size() > 1) {
+                    Node grandparent = path.get(path.size() - 2);
+                    if (mergeWithOnlyChild(grandparent, parent)) {
+                        path.remove(path.size() - 1);
+                    }
+                }
+            } else if (mergeWithOnlyChild(parent, node)) {
+                path.remove(path.size() - 1);
+            }
+            refreshTops(path);
+        }
+    }
+
+    // A node without terminals and with one child is replaced by that child under the joined edge
+    private static boolean mergeWithOnlyChild(Node parent, Node node) {
+        if (node.terminalCount > 0 || node.childCount != 1) {
+            return false;
+        }
+        Node child = node.children[0];
+        parent.removeChild(node);
+        child.edge = node.edge + child.edge;
+        parent.addChild(child);
+        return true;
+    }
+
+    // Root and every node whose whole edge lies on the key, deepest last
+    private List<Node> pathTo(String key) {
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        path.add(node);
+        int depth = 0;
+        while (depth < key.length()) {
+            Node child = node.child(key.charAt(depth));
+            if (child == null || !key.startsWith(child.edge, depth)) {
+                break;
+            }
+            node = child;
+            path.add(node);
+            depth += child.edge.length();
+        }
+        return path;
+    }
+
+    private static int depthOf(List<Node> path) {
+        int depth = 0;
+        for (Node node : path) {
+            depth += node.edge.length();
+        }
+        return depth;
+    }
+
+    private static int commonPrefix(String edge, String key, int offset) {
+        int max = Math.min(edge.length(), key.length() - offset);
+        int i = 0;
+        while (i < max && edge.charAt(i) == key.charAt(offset + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private void refreshTops(List<Node> path) {
+        for (int i = path.size() - 1; i >= 0; i--) {
+            refreshTop(path.get(i));
+        }
+    }
+
+    private void refreshTop(Node node) {
+        Map<String, Suggestion> candidates = new LinkedHashMap<>();
+        for (int i = 0; i < node.terminalCount; i++) {
+            candidates.put(node.terminals[i].id, node.terminals[i]);
+        }
+        for (int i = 0; i < node.childCount; i++) {
+            for (Suggestion suggestion : node.children[i].top) {
+                candidates.putIfAbsent(suggestion.id, suggestion);
+            }
+        }
+        List<Suggestion> top = new ArrayList<>(candidates.values());
+        top.sort(RANKING);
+        node.top = top.size() > maxResults ? new ArrayList<>(top.subList(0, maxResults)) : top;
+    }
+
+    private static List<String> indexKeys(String text) {
+        String normalized = normalize(text);
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < normalized.length(); i++) {
+            if (i == 0 || (normalized.charAt(i - 1) == ' ' && normalized.charAt(i) != ' ')) {
+                String key = normalized.substring(i);
+                keys.add(key.length() > MAX_KEY_LENGTH ? key.substring(0, MAX_KEY_LENGTH) : key);
+            }
+        }
+        return keys;
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT).replaceAll("\\s+", " ").trim();
+    }
+
+    private static final Node[] NO_CHILDREN = new Node[0];
+    private static final Suggestion[] NO_TERMINALS = new Suggestion[0];
+
+    // Children are kept sorted by the first character of their edge
+    private static final class Node {
+        private String edge;
+        private Node[] children = NO_CHILDREN;
+        private int childCount;
+        private Suggestion[] terminals = NO_TERMINALS;
+        private int terminalCount;
+        private List<Suggestion> top = new ArrayList<>(0);
+
+        private Node() {
+            this("");
+        }
+
+        private Node(String edge) {
+            this.edge = edge;
+        }
+
+        private Node child(char first) {
+            int i = indexOf(first);
+            return i >= 0 ? children[i] : null;
+        }
+
+        private void addChild(Node child) {
+            int i = -indexOf(child.edge.charAt(0)) - 1;
+            if (childCount == children.length) {
+                children = Arrays.copyOf(children, Math.max(2, childCount * 2));
+            }
+            System.arraycopy(children, i, children, i + 1, childCount - i);
+            children[i] = child;
+            childCount++;
+        }
+
+        private void removeChild(Node child) {
+            int i = indexOf(child.edge.charAt(0));
+            System.arraycopy(children, i + 1, children, i, childCount - i - 1);
+            children[--childCount] = null;
+        }
+
+        private int indexOf(char first) {
+            int low = 0;
+            int high = childCount - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                char c = children[mid].edge.charAt(0);
+                if (c < first) {
+                    low = mid + 1;
+                } else if (c > first) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+
+        private void addTerminal(Suggestion suggestion) {
+            for (int i = 0; i < terminalCount; i++) {
+                if (terminals[i].id.equals(suggestion.id)) {
+                    terminals[i] = suggestion;
+                    return;
+                }
+            }
+            if (terminalCount == terminals.length) {
+                terminals = Arrays.copyOf(terminals, Math.max(1, terminalCount * 2));
+            }
+            terminals[terminalCount++] = suggestion;
+        }
+
+        private boolean removeTerminal(String id) {
+            for (int i = 0; i < terminalCount; i++) {
+                if (terminals[i].id.equals(id)) {
+                    terminals[i] = terminals[--terminalCount];
+                    terminals[terminalCount] = null;
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static final class Suggestion {
+        private final String id;
+        private final String type;
+        private final String text;
+        private final Long productId;
+        private final String category;
+        private long weight;
+
+        private Suggestion(String id, String type, String text, Long productId, String category, long weight) {
+            this.id = id;
+            this.type = type;
+            this.text = text;
+            this.productId = productId;
+            this.category = category;
+            this.weight = weight;
+        }
+
+        private static Suggestion forProduct(Product product) {
+            long stock = product.getStock() != null ? Math.max(product.getStock(), 0) : 0;
+            return new Suggestion("p:" + product.getId(), "product", product.getName(), product.getId(),
+                    product.getCategory(), stock);
+        }
+
+        private static Suggestion forCategory(String category, long weight) {
+            return new Suggestion("c:" + normalize(category), "category", category, null, category, weight);
+        }
+
+        private Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("text", text);
+            map.put("type", type);
+            if (productId != null) {
+                map.put("productId", productId);
+            }
+            map.put("category", category);
+            return map;
+        }
+    }
+}
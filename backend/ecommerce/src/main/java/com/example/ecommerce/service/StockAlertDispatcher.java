@@ -0,0 +1,275 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.config.InventoryAlertConfig;
+import com.example.ecommerce.dto.StockAlert;
+import com.example.ecommerce.model.User;
+import com.example.ecommerce.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Delivers stock alerts off the request threads: alerts are queued and a single
+ * dispatcher thread pushes them to the admin SSE feeds and mails whatever has
+ * piled up as one digest. When the queue is full new alerts are dropped and
+ * counted rather than slowing down checkouts.
+ *
+ * As in {@link StockStreamBroadcaster}, feed writes never happen on the dispatcher
+ * or the shared scheduler thread: each feed is pinned to one of a few
+ * single-threaded senders, so a slow admin browser only holds up its own sender
+ * and its events stay in order.
+ */
+@Service
+public class StockAlertDispatcher {
+    private static final Logger logger = LoggerFactory.getLogger(StockAlertDispatcher.class);
+    private static final int MAX_DIGEST_SIZE = 100;
+
+    private final JavaMailSender emailSender;
+    private final UserRepository userRepository;
+    private final InventoryAlertConfig config;
+
+    private final BlockingQueue<StockAlert> queue;
+    private final ExecutorService[] senders;
+    private final AtomicInteger nextSender = new AtomicInteger();
+    private final Set<Feed> feeds = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger feedCount = new AtomicInteger();
+    private final AtomicLong queued = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong emailsSent = new AtomicLong();
+    private final AtomicLong emailFailures = new AtomicLong();
+    private final AtomicLong sendFailures = new AtomicLong();
+    private volatile boolean running;
+    private Thread worker;
+
+    public StockAlertDispatcher(JavaMailSender emailSender, UserRepository userRepository, InventoryAlertConfig config) {
+        this.emailSender = emailSender;
+        this.userRepository = userRepository;
+        this.config = config;
+        this.queue = new LinkedBlockingQueue<>(Math.max(config.getQueueCapacity(), 1));
+        this.senders = new ExecutorService[Math.max(config.getSenderThreads(), 1)];
+        for (int i = 0; i < senders.length; i++) {
+            String name = "stock-alert-sender-" + i;
+            senders[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(Math.max(config.getSenderQueueCapacity(), 1)), runnable -> {
+                        Thread thread = new Thread(runnable, name);
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        worker = new Thread(this::runWorker, "stock-alert-dispatcher");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        worker.join(TimeUnit.SECONDS.toMillis(10));
+        for (ExecutorService sender : senders) {
+            sender.shutdownNow();
+        }
+    }
+
+    public void enqueue(StockAlert alert) {
+        if (queue.offer(alert)) {
+            queued.incrementAndGet();
+        } else {
+            dropped.incrementAndGet();
+            logger.warn("Stock alert queue full, dropped {} alert for product {}", alert.getLevel(), alert.getProductId());
+        }
+    }
+
+    /** Opens an admin feed; the currently active alerts are sent first. */
+    public SseEmitter subscribe(List<StockAlert> active) {
+        if (!reserveFeed()) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many stock alert feeds open");
+        }
+        ExecutorService sender = senders[Math.floorMod(nextSender.getAndIncrement(), senders.length)];
+        Feed feed = new Feed(new SseEmitter(config.getFeedTimeoutMs()), sender);
+        feed.emitter.onCompletion(() -> unsubscribe(feed));
+        feed.emitter.onTimeout(() -> unsubscribe(feed));
+        feed.emitter.onError(e -> unsubscribe(feed));
+        feeds.add(feed);
+        List<StockAlert> snapshot = new ArrayList<>(active);
+        dispatch(feed, () -> sendAll(feed, snapshot));
+        return feed.emitter;
+    }
+
+    // Only builds the writes; the senders do them, see the class comment
+    @Scheduled(fixedDelayString = "${inventory.alerts.heartbeat-interval-ms:15000}")
+    public void heartbeat() {
+        for (Feed feed : new ArrayList<>(feeds)) {
+            dispatch(feed, () -> send(feed, SseEmitter.event().comment("keepalive")));
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("queued", queued.get());
+        stats.put("dropped", dropped.get());
+        stats.put("pending", queue.size());
+        stats.put("feeds", feedCount.get());
+        stats.put("sendFailures", sendFailures.get());
+        stats.put("emailsSent", emailsSent.get());
+        stats.put("emailFailures", emailFailures.get());
+        return stats;
+    }
+
+    private void runWorker() {
+        List<StockAlert> batch = new ArrayList<>(MAX_DIGEST_SIZE);
+        while (running) {
+            try {
+                StockAlert first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, MAX_DIGEST_SIZE - 1);
+                deliver(batch);
+                batch.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                logger.error("Failed to deliver {} stock alerts: {}", batch.size(), e.getMessage());
+                batch.clear();
+            }
+        }
+    }
+
+    private void deliver(List<StockAlert> alerts) {
+        // The batch is reused by the worker, so each sender gets its own copy
+        List<StockAlert> copy = new ArrayList<>(alerts);
+        for (Feed feed : new ArrayList<>(feeds)) {
+            dispatch(feed, () -> sendAll(feed, copy));
+        }
+        if (config.isEmailEnabled()) {
+            sendDigest(alerts);
+        }
+    }
+
+    private void sendDigest(List<StockAlert> alerts) {
+        List<String> recipients = recipients();
+        if (recipients.isEmpty()) {
+            return;
+        }
+        StringBuilder text = new StringBuilder("The following products need restocking:\n\n");
+        for (StockAlert alert : alerts) {
+            text.append(alert.getLevel() == StockAlert.Level.OUT_OF_STOCK ? "OUT OF STOCK" : "LOW STOCK")
+                    .append(" - ").append(alert.getProductName())
+                    .append(" (ID ").append(alert.getProductId()).append(", ").append(alert.getCategory()).append("): ")
+                    .append(alert.getStock()).append(" left, threshold ").append(alert.getThreshold()).append('\n');
+        }
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setTo(recipients.toArray(new String[0]));
+        message.setSubject("Stock alert: " + alerts.size() + (alerts.size() == 1 ? " product needs" : " products need")
+                + " restocking");
+        message.setText(text.toString());
+        try {
+            emailSender.send(message);
+            emailsSent.incrementAndGet();
+        } catch (RuntimeException e) {
+            emailFailures.incrementAndGet();
+            logger.warn("Failed to email {} stock alerts: {}", alerts.size(), e.getMessage());
+        }
+    }
+
+    private List<String> recipients() {
+        if (!config.getEmailTo().isEmpty()) {
+            return config.getEmailTo();
+        }
+        List<String> admins = new ArrayList<>();
+        for (User admin : userRepository.findByRole(User.Role.ADMIN)) {
+            admins.add(admin.getEmail());
+        }
+        return admins;
+    }
+
+    private void dispatch(Feed feed, Runnable write) {
+        try {
+            feed.sender.execute(write);
+        } catch (RejectedExecutionException e) {
+            sendFailures.incrementAndGet();
+        }
+    }
+
+    private void sendAll(Feed feed, List<StockAlert> alerts) {
+        for (StockAlert alert : alerts) {
+            if (!send(feed, SseEmitter.event().name("stock-alert").data(alert))) {
+                return;
+            }
+        }
+    }
+
+    // Runs on the feed's sender; the lock keeps a write from racing the emitter's completion
+    private boolean send(Feed feed, SseEmitter.SseEventBuilder event) {
+        synchronized (feed) {
+            try {
+                feed.emitter.send(event);
+                return true;
+            } catch (IOException | IllegalStateException e) {
+                sendFailures.incrementAndGet();
+                unsubscribe(feed);
+                feed.emitter.complete();
+                return false;
+            }
+        }
+    }
+
+    private void unsubscribe(Feed feed) {
+        if (feeds.remove(feed)) {
+            feedCount.decrementAndGet();
+        }
+    }
+
+    private boolean reserveFeed() {
+        while (true) {
+            int current = feedCount.get();
+            if (current >= config.getMaxFeedConnections()) {
+                return false;
+            }
+            if (feedCount.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private static final class Feed {
+        private final SseEmitter emitter;
+        private final ExecutorService sender;
+
+        private Feed(SseEmitter emitter, ExecutorService sender) {
+            this.emitter = emitter;
+            this.sender = sender;
+        }
+    }
+}
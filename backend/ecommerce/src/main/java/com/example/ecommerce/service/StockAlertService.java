@@ -0,0 +1,178 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.config.InventoryAlertConfig;
+import com.example.ecommerce.dto.StockAlert;
+import com.example.ecommerce.event.ProductChangeEvent;
+import com.example.ecommerce.model.Product;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Low-stock and out-of-stock detection, evaluated per product as stock change
+ * events arrive instead of by scanning the catalog.
+ *
+ * A product's threshold is its own low_stock_threshold, else the threshold of
+ * its category, else the default. An alert is raised only when a product moves
+ * to a worse level (fine, low, out), so a run of decrements below the threshold
+ * raises one alert; climbing back above the threshold re-arms it. The levels
+ * seeded at startup raise nothing, the active ones are listed on demand instead.
+ */
+@Service
+public class StockAlertService {
+    private static final Logger logger = LoggerFactory.getLogger(StockAlertService.class);
+
+    private final StockAlertDispatcher dispatcher;
+    private final InventoryAlertConfig config;
+    private final Map<String, Integer> categoryThresholds = new HashMap<>();
+
+    private final Map<Long, Watch> watches = new ConcurrentHashMap<>();
+
+    public StockAlertService(StockAlertDispatcher dispatcher, InventoryAlertConfig config) {
+        this.dispatcher = dispatcher;
+        this.config = config;
+        for (Map.Entry<String, Integer> threshold : config.getCategoryThresholds().entrySet()) {
+            categoryThresholds.put(categoryKey(threshold.getKey()), threshold.getValue());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChange(ProductChangeEvent event) {
+        switch (event.getType()) {
+            case SAVED:
+                track(event.getProduct());
+                break;
+            case STOCK_CHANGED:
+                stockChanged(event.getProductId(), event.getStock());
+                break;
+            case BULK_UPDATED:
+                for (Product product : event.getProducts()) {
+                    track(product);
+                }
+                break;
+            case DELETED:
+                watches.remove(event.getProductId());
+                break;
+            case RELOADED:
+                reload(event.getProducts());
+                break;
+        }
+    }
+
+    public void reload(List<Product> products) {
+        Map<Long, Watch> loaded = new HashMap<>();
+        for (Product product : products) {
+            if (product.getId() != null && product.getStock() != null) {
+                loaded.put(product.getId(), watchOf(product));
+            }
+        }
+        watches.clear();
+        watches.putAll(loaded);
+        logger.info("Stock alerts watching {} products, {} currently low or out of stock",
+                loaded.size(), getActiveAlerts().size());
+    }
+
+    /** Products currently below their threshold, emptiest first. */
+    public List<StockAlert> getActiveAlerts() {
+        List<StockAlert> active = new ArrayList<>();
+        for (Watch watch : watches.values()) {
+            if (watch.level != null) {
+                active.add(watch.toAlert());
+            }
+        }
+        active.sort(Comparator.comparingInt(StockAlert::getStock).thenComparing(StockAlert::getProductId));
+        return active;
+    }
+
+    public SseEmitter subscribe() {
+        return dispatcher.subscribe(getActiveAlerts());
+    }
+
+    private void track(Product product) {
+        if (product == null || product.getId() == null || product.getStock() == null) {
+            return;
+        }
+        Watch current = watchOf(product);
+        raiseIfWorse(watches.put(product.getId(), current), current);
+    }
+
+    private void stockChanged(Long productId, Integer stock) {
+        if (productId == null || stock == null) {
+            return;
+        }
+        Watch[] previous = new Watch[1];
+        Watch current = watches.computeIfPresent(productId, (id, watch) -> {
+            previous[0] = watch;
+            return watch.withStock(stock);
+        });
+        if (current != null) {
+            raiseIfWorse(previous[0], current);
+        }
+    }
+
+    private void raiseIfWorse(Watch previous, Watch current) {
+        if (current.level == null) {
+            return;
+        }
+        if (previous == null || previous.level == null || current.level.compareTo(previous.level) > 0) {
+            dispatcher.enqueue(current.toAlert());
+        }
+    }
+
+    private Watch watchOf(Product product) {
+        int threshold;
+        if (product.getLowStockThreshold() != null) {
+            threshold = product.getLowStockThreshold();
+        } else {
+            threshold = categoryThresholds.getOrDefault(categoryKey(product.getCategory()), config.getDefaultThreshold());
+        }
+        return new Watch(product.getId(), product.getName(), product.getCategory(), threshold, product.getStock());
+    }
+
+    private static String categoryKey(String category) {
+        return category == null ? "" : category.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Watch {
+        private final Long productId;
+        private final String name;
+        private final String category;
+        private final int threshold;
+        private final int stock;
+        private final StockAlert.Level level; // null while above the threshold
+
+        private Watch(Long productId, String name, String category, int threshold, int stock) {
+            this.productId = productId;
+            this.name = name;
+            this.category = category;
+            this.threshold = threshold;
+            this.stock = stock;
+            if (stock <= 0) {
+                this.level = StockAlert.Level.OUT_OF_STOCK;
+            } else if (stock <= threshold) {
+                this.level = StockAlert.Level.LOW_STOCK;
+            } else {
+                this.level = null;
+            }
+        }
+
+        private Watch withStock(int stock) {
+            return new Watch(productId, name, category, threshold, stock);
+        }
+
+        private StockAlert toAlert() {
+            return new StockAlert(productId, name, category, level, stock, threshold, LocalDateTime.now());
+        }
+    }
+}
@@ -0,0 +1,341 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.event.ProductChangeEvent;
+import com.example.ecommerce.model.Product;
+import com.example.ecommerce.repository.ProductStockBucketRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bucketed stock for hot products: the stock of a selected product is split over
+ * several product_stock_buckets rows, so concurrent checkouts of it usually lock
+ * different rows instead of queueing on one.
+ *
+ * A decrement takes from a random bucket that can cover it, skipping buckets that
+ * other transactions hold. When no bucket can (they ran dry or are all busy), the
+ * product's buckets are locked together, the quantity is taken from their total
+ * and what is left is spread evenly again. Total stock is the sum of the buckets;
+ * products.stock is a cached aggregate refreshed on a schedule for listings and
+ * search, and plain stock statements skip bucketed rows.
+ *
+ * Only the database inventory engine uses buckets; under another engine they are
+ * left alone and products.stock, their last synced total, is the product's stock.
+ * A stock value written to a bucketed product directly (admin edit, bulk update,
+ * import) is spread over its buckets.
+ */
+@Service
+public class StockBucketService {
+    private static final Logger logger = LoggerFactory.getLogger(StockBucketService.class);
+
+    private final ProductStockBucketRepository bucketRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ProductCatalogVersion catalogVersion;
+    private final boolean enabled;
+    private final int maxBuckets;
+
+    private final Set<Long> bucketed = ConcurrentHashMap.newKeySet();
+    // Last known products.stock, to tell direct stock writes from other product edits
+    private final Map<Long, Integer> aggregates = new ConcurrentHashMap<>();
+    private final AtomicLong rebalances = new AtomicLong();
+
+    public StockBucketService(ProductStockBucketRepository bucketRepository,
+                              PlatformTransactionManager transactionManager,
+                              ProductCatalogVersion catalogVersion,
+                              @Value("${inventory.engine:database}") String engine,
+                              @Value("${inventory.buckets.max:64}") int maxBuckets) {
+        this.bucketRepository = bucketRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.catalogVersion = catalogVersion;
+        this.enabled = "database".equals(engine);
+        this.maxBuckets = maxBuckets;
+    }
+
+    /** This node's view, which another node may have made stale; see {@link #refreshBucketed}. */
+    public boolean isBucketed(Long productId) {
+        return bucketed.contains(productId);
+    }
+
+    /**
+     * Re-reads products.stock_buckets, which another node may have changed since this
+     * node last loaded it, and brings this node's view in line.
+     */
+    public boolean refreshBucketed(Long productId) {
+        if (!enabled) {
+            return false;
+        }
+        Integer rowStock = bucketRepository.findBucketedRowStock(productId);
+        if (rowStock == null) {
+            bucketed.remove(productId);
+            aggregates.remove(productId);
+            return false;
+        }
+        aggregates.putIfAbsent(productId, rowStock);
+        bucketed.add(productId);
+        return true;
+    }
+
+    /** Splits the product's current stock evenly over the given number of buckets. */
+    @Transactional
+    public Map<String, Object> enable(Long productId, int buckets) {
+        if (!enabled) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Stock buckets require inventory.engine=database");
+        }
+        if (buckets < 2 || buckets > maxBuckets) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Bucket count must be between 2 and " + maxBuckets);
+        }
+        OptionalInt rowStock = bucketRepository.lockProductStock(productId);
+        if (rowStock.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found with ID: " + productId);
+        }
+        List<Integer> current = bucketRepository.lockBuckets(productId);
+        int total = current.isEmpty() ? rowStock.getAsInt() : sum(current);
+        bucketRepository.writeBuckets(productId, spread(total, buckets));
+        if (current.size() > buckets) {
+            bucketRepository.deleteBucketsFrom(productId, buckets);
+        }
+        bucketRepository.setStockBuckets(productId, buckets, total);
+        afterCommit(() -> {
+            aggregates.put(productId, total);
+            bucketed.add(productId);
+        });
+        logger.info("Stock of product {} split into {} buckets", productId, buckets);
+        return status(productId, buckets, total);
+    }
+
+    /** Folds the buckets back into products.stock. */
+    @Transactional
+    public Map<String, Object> disable(Long productId) {
+        OptionalInt rowStock = bucketRepository.lockProductStock(productId);
+        if (rowStock.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found with ID: " + productId);
+        }
+        List<Integer> current = bucketRepository.lockBuckets(productId);
+        if (current.isEmpty()) {
+            return status(productId, 0, rowStock.getAsInt());
+        }
+        int total = merge(productId, current);
+        afterCommit(() -> {
+            bucketed.remove(productId);
+            aggregates.remove(productId);
+        });
+        logger.info("Stock buckets of product {} merged back", productId);
+        return status(productId, 0, total);
+    }
+
+    /**
+     * Takes quantity units from the product's buckets.
+     *
+     * @return the remaining total, or empty if the product has no buckets or too little stock
+     */
+    @Transactional
+    public OptionalInt take(Long productId, int quantity) {
+        if (bucketRepository.takeFromBucket(productId, quantity).isPresent()) {
+            return OptionalInt.of(bucketRepository.totalStock(productId));
+        }
+        return rebalance(productId, -quantity);
+    }
+
+    /** @return the new total, or empty if the product has no buckets */
+    @Transactional
+    public OptionalInt add(Long productId, int quantity) {
+        if (bucketRepository.addToBucket(productId, quantity).isPresent()) {
+            return OptionalInt.of(bucketRepository.totalStock(productId));
+        }
+        return rebalance(productId, quantity);
+    }
+
+    /** Sum of the buckets for a bucketed product, empty otherwise. */
+    public OptionalInt currentStock(Long productId) {
+        if (!bucketed.contains(productId)) {
+            return OptionalInt.empty();
+        }
+        Integer total = bucketRepository.totalStock(productId);
+        return total != null ? OptionalInt.of(total) : OptionalInt.empty();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("bucketedProducts", bucketed.size());
+        stats.put("rebalances", rebalances.get());
+        return stats;
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.buckets.sync-interval-ms:1000}")
+    public void syncAggregates() {
+        if (!enabled || bucketed.isEmpty()) {
+            return;
+        }
+        Map<Long, Integer> changed = transactionTemplate.execute(status -> bucketRepository.syncAggregates());
+        if (changed != null && !changed.isEmpty()) {
+            aggregates.putAll(changed);
+            // products.stock moved without a change event
+            catalogVersion.changed();
+        }
+    }
+
+    // Runs before the inventory engines so a ledger engine recovers from merged stock
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChange(ProductChangeEvent event) {
+        switch (event.getType()) {
+            case SAVED:
+                stockWritten(event.getProduct());
+                break;
+            case BULK_UPDATED:
+                for (Product product : event.getProducts()) {
+                    stockWritten(product);
+                }
+                break;
+            case DELETED:
+                bucketed.remove(event.getProductId());
+                aggregates.remove(event.getProductId());
+                break;
+            case STOCK_CHANGED:
+                // Published for movements that already went through the buckets
+                break;
+            case RELOADED:
+                reload();
+                break;
+        }
+    }
+
+    // Runs at startup, so a failure is logged instead of stopping the application; a miss on
+    // a bucketed row still finds its buckets through refreshBucketed
+    public void reload() {
+        if (!enabled) {
+            bucketed.clear();
+            aggregates.clear();
+            return;
+        }
+        try {
+            load();
+        } catch (RuntimeException e) {
+            logger.error("Failed to load bucketed stock: {}", e.getMessage());
+        }
+    }
+
+    private void load() {
+        Map<Long, Integer> rowStocks = bucketRepository.findBucketedRowStocks();
+        // A stock column that moved away from the last synced value was written directly, e.g. by an import
+        for (Map.Entry<Long, Integer> row : rowStocks.entrySet()) {
+            Integer known = aggregates.get(row.getKey());
+            if (known != null && !known.equals(row.getValue())) {
+                redistribute(row.getKey(), row.getValue());
+            }
+        }
+        bucketed.addAll(rowStocks.keySet());
+        bucketed.retainAll(rowStocks.keySet());
+        aggregates.keySet().retainAll(rowStocks.keySet());
+        for (Map.Entry<Long, Integer> row : rowStocks.entrySet()) {
+            aggregates.putIfAbsent(row.getKey(), row.getValue());
+        }
+        syncAggregates();
+        logger.info("Loaded {} products with bucketed stock", rowStocks.size());
+    }
+
+    // Slow path: waits for every bucket of the product and spreads the new total evenly
+    private OptionalInt rebalance(Long productId, int delta) {
+        List<Integer> current = bucketRepository.lockBuckets(productId);
+        if (current.isEmpty()) {
+            return OptionalInt.empty();
+        }
+        int total = sum(current) + delta;
+        if (total < 0) {
+            return OptionalInt.empty();
+        }
+        bucketRepository.writeBuckets(productId, spread(total, current.size()));
+        rebalances.incrementAndGet();
+        return OptionalInt.of(total);
+    }
+
+    private int merge(Long productId, List<Integer> current) {
+        int total = sum(current);
+        bucketRepository.deleteBuckets(productId);
+        bucketRepository.setStockBuckets(productId, 0, total);
+        return total;
+    }
+
+    private void stockWritten(Product product) {
+        if (product == null || product.getId() == null || product.getStock() == null
+                || !bucketed.contains(product.getId())) {
+            return;
+        }
+        Integer known = aggregates.get(product.getId());
+        if (known != null && known.equals(product.getStock())) {
+            return;
+        }
+        redistribute(product.getId(), product.getStock());
+    }
+
+    private void redistribute(Long productId, int stock) {
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Integer> current = bucketRepository.lockBuckets(productId);
+            if (!current.isEmpty()) {
+                bucketRepository.writeBuckets(productId, spread(Math.max(stock, 0), current.size()));
+            }
+        });
+        aggregates.put(productId, stock);
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    // Even split; the first total % buckets buckets get one unit more
+    static int[] spread(int total, int buckets) {
+        int[] stocks = new int[buckets];
+        for (int i = 0; i < buckets; i++) {
+            stocks[i] = total / buckets + (i < total % buckets ? 1 : 0);
+        }
+        return stocks;
+    }
+
+    private static int sum(List<Integer> stocks) {
+        int total = 0;
+        for (int stock : stocks) {
+            total += stock;
+        }
+        return total;
+    }
+
+    private static Map<String, Object> status(Long productId, int buckets, int stock) {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("productId", productId);
+        status.put("buckets", buckets);
+        status.put("stock", stock);
+        return status;
+    }
+}
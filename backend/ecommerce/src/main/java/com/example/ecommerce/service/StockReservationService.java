@@ -0,0 +1,280 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.config.InventoryReservationConfig;
+import com.example.ecommerce.model.StockReservation;
+import com.example.ecommerce.repository.ProductJdbcRepository;
+import com.example.ecommerce.repository.StockReservationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Time-bounded stock holds between payment intent creation and order creation.
+ *
+ * A checkout reserves its lines when the payment intent is created. The check and
+ * the hold are enforced by the database: the product rows are locked, the units
+ * held by every node's unexpired reservations in stock_reservations are taken off
+ * the stock, and the new rows are inserted in the same transaction, so two nodes
+ * cannot hand out the same units. A user has at most one hold: a new checkout
+ * replaces the previous one in the same transaction, so retried or abandoned
+ * checkouts do not pile up holds. A successful payment turns its holds into real
+ * decrements, and a sweeper deletes expired rows from the table, whichever node
+ * took them.
+ *
+ * The holds are also mirrored in memory so available-to-sell (stock minus active
+ * holds) can be shown without a query. That view is only a read cache: it is per
+ * instance, rebuilt from the table on startup, and never used to admit a hold.
+ */
+@Service
+public class StockReservationService {
+    private static final Logger logger = LoggerFactory.getLogger(StockReservationService.class);
+
+    private final StockReservationRepository reservationRepository;
+    private final ProductJdbcRepository productJdbcRepository;
+    private final ProductService productService;
+    private final InventoryReservationConfig config;
+
+    // Writes are serialized on this; reads of the held quantities are lock free
+    private final Map<Long, Integer> heldByProduct = new ConcurrentHashMap<>();
+    private final Map<String, Hold> holds = new HashMap<>();
+
+    public StockReservationService(StockReservationRepository reservationRepository,
+                                   ProductJdbcRepository productJdbcRepository, ProductService productService,
+                                   InventoryReservationConfig config) {
+        this.reservationRepository = reservationRepository;
+        this.productJdbcRepository = productJdbcRepository;
+        this.productService = productService;
+        this.config = config;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void recover() {
+        LocalDateTime now = LocalDateTime.now();
+        int expired = reservationRepository.deleteExpired(now);
+        Map<String, Hold> recovered = new HashMap<>();
+        for (StockReservation row : reservationRepository.findByExpiresAtAfter(now)) {
+            Hold hold = recovered.computeIfAbsent(row.getReservationId(), id -> new Hold(id, row.getExpiresAt()));
+            hold.quantities.merge(row.getProductId(), row.getQuantity(), Integer::sum);
+        }
+        synchronized (this) {
+            for (Hold hold : recovered.values()) {
+                addHold(hold);
+            }
+        }
+        logger.info("Recovered {} active stock reservations, removed {} expired rows", recovered.size(), expired);
+    }
+
+    /** Units held on this instance's view; for display only, see the class comment. */
+    public int getHeldQuantity(Long productId) {
+        return heldByProduct.getOrDefault(productId, 0);
+    }
+
+    /**
+     * Holds the given quantities for the configured TTL, replacing the user's previous
+     * hold, whose units count as available again. The product rows stay locked until
+     * the reservation rows are committed, which serializes concurrent reserves of a
+     * product across all nodes; two checkouts of the same cart therefore run one after
+     * the other, and the later one replaces the hold of the earlier.
+     *
+     * @param userId user the checkout belongs to
+     * @param quantities units per product id
+     * @return reservation id to attach the payment intent to
+     * @throws RuntimeException if a product is missing or not enough of it is available
+     */
+    @Transactional
+    public String reserve(Long userId, Map<Long, Integer> quantities) {
+        productJdbcRepository.lockInIdOrder(quantities.keySet());
+        Set<String> replaced = new LinkedHashSet<>();
+        List<StockReservation> previous = reservationRepository.findByUserId(userId);
+        if (!previous.isEmpty()) {
+            reservationRepository.deleteAllInBatch(previous);
+            for (StockReservation row : previous) {
+                replaced.add(row.getReservationId());
+            }
+        }
+        Map<Long, Integer> stock = productService.getStockLevels(quantities.keySet());
+        LocalDateTime now = LocalDateTime.now();
+        Map<Long, Integer> held = new HashMap<>();
+        for (Object[] row : reservationRepository.sumActiveByProductIds(quantities.keySet(), now)) {
+            held.put((Long) row[0], ((Number) row[1]).intValue());
+        }
+        for (Map.Entry<Long, Integer> line : quantities.entrySet()) {
+            Integer onHand = stock.get(line.getKey());
+            if (onHand == null) {
+                throw new RuntimeException("Product not found with ID: " + line.getKey());
+            }
+            if (onHand - held.getOrDefault(line.getKey(), 0) < line.getValue()) {
+                throw new RuntimeException("Insufficient stock for product ID: " + line.getKey());
+            }
+        }
+
+        Hold hold = new Hold(UUID.randomUUID().toString(), now.plusSeconds(config.getTtlSeconds()));
+        hold.quantities.putAll(quantities);
+        List<StockReservation> rows = new ArrayList<>();
+        for (Map.Entry<Long, Integer> line : quantities.entrySet()) {
+            StockReservation row = new StockReservation();
+            row.setReservationId(hold.reservationId);
+            row.setUserId(userId);
+            row.setProductId(line.getKey());
+            row.setQuantity(line.getValue());
+            row.setExpiresAt(hold.expiresAt);
+            rows.add(row);
+        }
+        reservationRepository.saveAll(rows);
+        afterCommit(() -> {
+            synchronized (this) {
+                for (String reservationId : replaced) {
+                    removeHold(reservationId);
+                }
+                addHold(hold);
+            }
+        });
+        return hold.reservationId;
+    }
+
+    @Transactional
+    public void attachPaymentIntent(String reservationId, String paymentIntentId) {
+        reservationRepository.attachPaymentIntent(reservationId, paymentIntentId);
+    }
+
+    @Transactional
+    public void release(String reservationId) {
+        reservationRepository.deleteByReservationId(reservationId);
+        synchronized (this) {
+            removeHold(reservationId);
+        }
+    }
+
+    /**
+     * Converts the holds of a paid intent into stock decrements, in the caller's
+     * transaction. The in-memory holds are dropped only after commit, so the units
+     * are never counted as available in between.
+     */
+    @Transactional
+    public void commit(String paymentIntentId, Map<Long, Integer> quantities) {
+        List<StockReservation> rows = reservationRepository.findByPaymentIntentId(paymentIntentId);
+        productService.reduceStockAll(quantities);
+        if (rows.isEmpty()) {
+            return;
+        }
+        reservationRepository.deleteAllInBatch(rows);
+
+        Set<String> reservationIds = new LinkedHashSet<>();
+        for (StockReservation row : rows) {
+            reservationIds.add(row.getReservationId());
+        }
+        afterCommit(() -> {
+            synchronized (this) {
+                for (String reservationId : reservationIds) {
+                    removeHold(reservationId);
+                }
+            }
+        });
+    }
+
+    /**
+     * Deletes expired rows from the table in batches, including those of holds taken
+     * by another node or before a restart, then drops the expired holds of this
+     * node's view. Nodes sweeping the same rows at once only repeat the deletes.
+     */
+    @Scheduled(fixedDelayString = "${inventory.reservation.sweep-interval-ms:10000}")
+    public void releaseExpired() {
+        LocalDateTime now = LocalDateTime.now();
+        int batchSize = Math.max(config.getSweepBatchSize(), 1);
+        Set<String> released = new LinkedHashSet<>();
+        List<StockReservation> rows;
+        do {
+            try {
+                rows = reservationRepository.findByExpiresAtLessThanEqualOrderById(now, PageRequest.of(0, batchSize));
+                List<Long> rowIds = new ArrayList<>(rows.size());
+                for (StockReservation row : rows) {
+                    rowIds.add(row.getId());
+                }
+                if (!rowIds.isEmpty()) {
+                    reservationRepository.deleteAllByIdInBatch(rowIds);
+                }
+            } catch (RuntimeException e) {
+                // Rows stay behind and are picked up by the next sweep
+                logger.error("Failed to delete expired reservation rows: {}", e.getMessage());
+                break;
+            }
+            for (StockReservation row : rows) {
+                released.add(row.getReservationId());
+            }
+        } while (rows.size() == batchSize);
+
+        synchronized (this) {
+            List<String> expired = new ArrayList<>();
+            for (Hold hold : holds.values()) {
+                if (!hold.expiresAt.isAfter(now)) {
+                    expired.add(hold.reservationId);
+                }
+            }
+            for (String reservationId : expired) {
+                removeHold(reservationId);
+            }
+        }
+        if (!released.isEmpty()) {
+            logger.info("Released {} expired stock reservations", released.size());
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private void addHold(Hold hold) {
+        holds.put(hold.reservationId, hold);
+        for (Map.Entry<Long, Integer> line : hold.quantities.entrySet()) {
+            heldByProduct.merge(line.getKey(), line.getValue(), Integer::sum);
+        }
+    }
+
+    private void removeHold(String reservationId) {
+        Hold hold = holds.remove(reservationId);
+        if (hold == null) {
+            return;
+        }
+        for (Map.Entry<Long, Integer> line : hold.quantities.entrySet()) {
+            heldByProduct.computeIfPresent(line.getKey(), (id, held) -> held > line.getValue() ? held - line.getValue() : null);
+        }
+    }
+
+    private static final class Hold {
+        private final String reservationId;
+        private final LocalDateTime expiresAt;
+        private final Map<Long, Integer> quantities = new HashMap<>();
+
+        private Hold(String reservationId, LocalDateTime expiresAt) {
+            this.reservationId = reservationId;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
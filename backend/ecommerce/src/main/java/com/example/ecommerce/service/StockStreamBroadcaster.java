@@ -0,0 +1,295 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.event.ProductChangeEvent;
+import com.example.ecommerce.model.Product;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pushes live stock levels to product pages over Server-Sent Events.
+ *
+ * Stock changes are only recorded for products someone is watching, and only the
+ * latest value per product is kept until the next flush, so a burst of checkouts
+ * turns into one "stock" event per interval per client. Each event carries the
+ * changed products a client subscribed to, keyed by id.
+ *
+ * A write to a slow client blocks, so flush and heartbeat only build the events
+ * and hand them to a small pool of sender threads instead of writing on the shared
+ * scheduler thread. Each client is pinned to one single-threaded sender, which
+ * keeps its events in order; a sender whose queue is full drops the event and
+ * counts it as a failed send.
+ */
+@Service
+public class StockStreamBroadcaster {
+    private static final Logger logger = LoggerFactory.getLogger(StockStreamBroadcaster.class);
+
+    private final ProductService productService;
+    private final StockReservationService stockReservationService;
+    private final int maxConnections;
+    private final int maxIds;
+    private final long timeoutMs;
+    private final ExecutorService[] senders;
+    private final AtomicInteger nextSender = new AtomicInteger();
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final Map<Long, Set<Subscriber>> watchers = new ConcurrentHashMap<>();
+    // Latest stock per product since the last flush; older values are overwritten
+    private final Map<Long, Integer> pending = new ConcurrentHashMap<>();
+    private final AtomicInteger connections = new AtomicInteger();
+
+    private final AtomicLong connectionsOpened = new AtomicLong();
+    private final AtomicLong connectionsRejected = new AtomicLong();
+    private final AtomicLong changesReceived = new AtomicLong();
+    private final AtomicLong updatesPublished = new AtomicLong();
+    private final AtomicLong eventsSent = new AtomicLong();
+    private final AtomicLong sendFailures = new AtomicLong();
+
+    public StockStreamBroadcaster(ProductService productService, StockReservationService stockReservationService,
+                                  @Value("${product.stock-stream.max-connections:1000}") int maxConnections,
+                                  @Value("${product.stock-stream.max-ids:100}") int maxIds,
+                                  @Value("${product.stock-stream.timeout-ms:1800000}") long timeoutMs,
+                                  @Value("${product.stock-stream.sender-threads:4}") int senderThreads,
+                                  @Value("${product.stock-stream.sender-queue-capacity:10000}") int senderQueueCapacity) {
+        this.productService = productService;
+        this.stockReservationService = stockReservationService;
+        this.maxConnections = maxConnections;
+        this.maxIds = maxIds;
+        this.timeoutMs = timeoutMs;
+        this.senders = new ExecutorService[Math.max(senderThreads, 1)];
+        for (int i = 0; i < senders.length; i++) {
+            String name = "stock-stream-sender-" + i;
+            senders[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(Math.max(senderQueueCapacity, 1)), runnable -> {
+                        Thread thread = new Thread(runnable, name);
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        for (ExecutorService sender : senders) {
+            sender.shutdownNow();
+        }
+    }
+
+    /**
+     * Opens a stream for the given products. The current levels are sent right
+     * away, later events only carry products whose stock changed.
+     */
+    public SseEmitter subscribe(Set<Long> productIds) {
+        if (productIds.isEmpty() || productIds.size() > maxIds) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Between 1 and " + maxIds + " product ids are required");
+        }
+        if (!reserveConnection()) {
+            connectionsRejected.incrementAndGet();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many stock streams open");
+        }
+        connectionsOpened.incrementAndGet();
+        ExecutorService sender = senders[Math.floorMod(nextSender.getAndIncrement(), senders.length)];
+        Subscriber subscriber = new Subscriber(new SseEmitter(timeoutMs), new LinkedHashSet<>(productIds), sender);
+        subscriber.emitter.onCompletion(() -> unsubscribe(subscriber));
+        subscriber.emitter.onTimeout(() -> unsubscribe(subscriber));
+        subscriber.emitter.onError(e -> unsubscribe(subscriber));
+        subscribers.add(subscriber);
+        for (Long productId : productIds) {
+            watchers.computeIfAbsent(productId, id -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        }
+
+        try {
+            Map<Long, Object> snapshot = new LinkedHashMap<>();
+            for (Map.Entry<Long, Integer> stock : productService.getStockLevels(productIds).entrySet()) {
+                snapshot.put(stock.getKey(), level(stock.getKey(), stock.getValue()));
+            }
+            send(subscriber, snapshot);
+        } catch (RuntimeException e) {
+            unsubscribe(subscriber);
+            throw e;
+        }
+        return subscriber.emitter;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChange(ProductChangeEvent event) {
+        switch (event.getType()) {
+            case SAVED:
+            case STOCK_CHANGED:
+                record(event.getProductId(), event.getStock());
+                break;
+            case BULK_UPDATED:
+                for (Product product : event.getProducts()) {
+                    record(product.getId(), product.getStock());
+                }
+                break;
+            case DELETED:
+                record(event.getProductId(), 0);
+                break;
+            case RELOADED:
+                // Imports and reloads do not say what changed; clients get it with the next change
+                break;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${product.stock-stream.flush-interval-ms:1000}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        Map<Subscriber, Map<Long, Object>> batches = new HashMap<>();
+        for (Map.Entry<Long, Integer> change : pending.entrySet()) {
+            Long productId = change.getKey();
+            Integer stock = change.getValue();
+            // Only if unchanged since it was read; a newer value stays for the next flush
+            if (!pending.remove(productId, stock)) {
+                continue;
+            }
+            Set<Subscriber> watching = watchers.get(productId);
+            if (watching == null || watching.isEmpty()) {
+                continue;
+            }
+            updatesPublished.incrementAndGet();
+            Map<String, Object> level = level(productId, stock);
+            for (Subscriber subscriber : watching) {
+                batches.computeIfAbsent(subscriber, s -> new LinkedHashMap<>()).put(productId, level);
+            }
+        }
+        for (Map.Entry<Subscriber, Map<Long, Object>> batch : batches.entrySet()) {
+            dispatch(batch.getKey(), () -> send(batch.getKey(), batch.getValue()));
+        }
+    }
+
+    // Idle streams are dropped by proxies, and a write is the only way to notice a gone client
+    @Scheduled(fixedDelayString = "${product.stock-stream.heartbeat-interval-ms:15000}")
+    public void heartbeat() {
+        for (Subscriber subscriber : new ArrayList<>(subscribers)) {
+            dispatch(subscriber, () -> {
+                synchronized (subscriber) {
+                    try {
+                        subscriber.emitter.send(SseEmitter.event().comment("keepalive"));
+                    } catch (IOException | IllegalStateException e) {
+                        drop(subscriber);
+                    }
+                }
+            });
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("connections", connections.get());
+        stats.put("maxConnections", maxConnections);
+        stats.put("watchedProducts", watchers.size());
+        stats.put("connectionsOpened", connectionsOpened.get());
+        stats.put("connectionsRejected", connectionsRejected.get());
+        stats.put("changesReceived", changesReceived.get());
+        stats.put("updatesPublished", updatesPublished.get());
+        stats.put("eventsSent", eventsSent.get());
+        stats.put("sendFailures", sendFailures.get());
+        return stats;
+    }
+
+    private void record(Long productId, Integer stock) {
+        if (productId == null || stock == null || !watchers.containsKey(productId)) {
+            return;
+        }
+        changesReceived.incrementAndGet();
+        pending.put(productId, stock);
+    }
+
+    private Map<String, Object> level(Long productId, int stock) {
+        int availableToSell = Math.max(stock - stockReservationService.getHeldQuantity(productId), 0);
+        Map<String, Object> level = new LinkedHashMap<>();
+        level.put("stock", stock);
+        level.put("availableToSell", availableToSell);
+        level.put("available", availableToSell > 0);
+        return level;
+    }
+
+    private void dispatch(Subscriber subscriber, Runnable write) {
+        try {
+            subscriber.sender.execute(write);
+        } catch (RejectedExecutionException e) {
+            sendFailures.incrementAndGet();
+        }
+    }
+
+    private void send(Subscriber subscriber, Map<Long, Object> levels) {
+        synchronized (subscriber) {
+            try {
+                subscriber.emitter.send(SseEmitter.event().name("stock").data(levels));
+                eventsSent.incrementAndGet();
+            } catch (IOException | IllegalStateException e) {
+                sendFailures.incrementAndGet();
+                logger.debug("Dropping stock stream after failed send: {}", e.getMessage());
+                drop(subscriber);
+            }
+        }
+    }
+
+    private void drop(Subscriber subscriber) {
+        unsubscribe(subscriber);
+        subscriber.emitter.complete();
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        if (!subscribers.remove(subscriber)) {
+            return;
+        }
+        connections.decrementAndGet();
+        for (Long productId : subscriber.productIds) {
+            watchers.computeIfPresent(productId, (id, watching) -> {
+                watching.remove(subscriber);
+                return watching.isEmpty() ? null : watching;
+            });
+        }
+    }
+
+    private boolean reserveConnection() {
+        while (true) {
+            int current = connections.get();
+            if (current >= maxConnections) {
+                return false;
+            }
+            if (connections.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private static final class Subscriber {
+        private final SseEmitter emitter;
+        private final Set<Long> productIds;
+        private final ExecutorService sender;
+
+        private Subscriber(SseEmitter emitter, Set<Long> productIds, ExecutorService sender) {
+            this.emitter = emitter;
+            this.productIds = productIds;
+            this.sender = sender;
+        }
+    }
+}
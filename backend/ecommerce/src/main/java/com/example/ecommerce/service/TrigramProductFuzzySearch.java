@@ -0,0 +1,312 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.event.ProductChangeEvent;
+import com.example.ecommerce.model.Product;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Spelling correction over the catalog vocabulary (tokens of product names,
+ * categories and descriptions, the same text the search engines match), followed
+ * by a regular search for the corrected query.
+ *
+ * Vocabulary terms are indexed by their padded trigrams. A misspelled token only
+ * looks at terms sharing enough trigrams to possibly be within the edit bound
+ * (an edit breaks at most four trigrams, a transposition being the worst case),
+ * and those candidates are verified with a bounded Damerau-Levenshtein distance.
+ * Tokens so short that a term sharing no trigram could still be within the bound
+ * are compared with every term of a close enough length instead. Ties go to the
+ * term used by the most products.
+ */
+@Service
+@ConditionalOnProperty(name = "product.search.fuzzy", havingValue = "memory", matchIfMissing = true)
+public class TrigramProductFuzzySearch implements ProductFuzzySearch {
+    private static final Logger logger = LoggerFactory.getLogger(TrigramProductFuzzySearch.class);
+    private static final int MIN_TOKEN_LENGTH = 3;
+
+    private final ProductSearchEngine searchEngine;
+    private final int maxEdits;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Integer> termFrequency = new HashMap<>();
+    private final Map<String, Set<String>> trigramTerms = new HashMap<>();
+    private final Map<Integer, Set<String>> lengthTerms = new HashMap<>();
+    private final Map<Long, Set<String>> productTerms = new HashMap<>();
+
+    public TrigramProductFuzzySearch(ProductSearchEngine searchEngine,
+                                     @Value("${product.search.fuzzy.max-edits:2}") int maxEdits) {
+        this.searchEngine = searchEngine;
+        this.maxEdits = maxEdits;
+    }
+
+    @Override
+    public Page<Product> search(String query, String category, Pageable pageable) {
+        String corrected = correct(query);
+        if (corrected == null) {
+            return Page.empty(pageable);
+        }
+        logger.debug("Fuzzy search corrected '{}' to '{}'", query, corrected);
+        return searchEngine.search(corrected, category, pageable);
+    }
+
+    /**
+     * Returns the query with every unknown token replaced by its closest vocabulary
+     * term, or null when nothing could be corrected.
+     */
+    public String correct(String query) {
+        List<String> tokens = SearchTokenizer.tokenize(query);
+        List<String> corrected = new ArrayList<>(tokens.size());
+        boolean changed = false;
+        lock.readLock().lock();
+        try {
+            for (String token : tokens) {
+                String replacement = termFrequency.containsKey(token) ? token : closestTerm(token);
+                if (replacement == null) {
+                    replacement = token;
+                } else if (!replacement.equals(token)) {
+                    changed = true;
+                }
+                corrected.add(replacement);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return changed ? String.join(" ", corrected) : null;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChange(ProductChangeEvent event) {
+        switch (event.getType()) {
+            case SAVED:
+                index(event.getProduct());
+                break;
+            case DELETED:
+                remove(event.getProductId());
+                break;
+            case STOCK_CHANGED:
+                break;
+            case BULK_UPDATED:
+                for (Product product : event.getProducts()) {
+                    index(product);
+                }
+                break;
+            case RELOADED:
+                rebuild(event.getProducts());
+                break;
+        }
+    }
+
+    public void rebuild(List<Product> products) {
+        lock.writeLock().lock();
+        try {
+            termFrequency.clear();
+            trigramTerms.clear();
+            lengthTerms.clear();
+            productTerms.clear();
+            for (Product product : products) {
+                addProduct(product.getId(), termsOf(product));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Fuzzy vocabulary rebuilt with {} terms and {} trigrams", termFrequency.size(), trigramTerms.size());
+    }
+
+    private void index(Product product) {
+        if (product == null || product.getId() == null) {
+            return;
+        }
+        Set<String> terms = termsOf(product);
+        lock.writeLock().lock();
+        try {
+            removeProduct(product.getId());
+            addProduct(product.getId(), terms);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            removeProduct(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void addProduct(Long productId, Set<String> terms) {
+        productTerms.put(productId, terms);
+        for (String term : terms) {
+            if (termFrequency.merge(term, 1, Integer::sum) == 1) {
+                for (String trigram : trigrams(term)) {
+                    trigramTerms.computeIfAbsent(trigram, k -> new HashSet<>()).add(term);
+                }
+                lengthTerms.computeIfAbsent(term.length(), k -> new HashSet<>()).add(term);
+            }
+        }
+    }
+
+    private void removeProduct(Long productId) {
+        Set<String> terms = productTerms.remove(productId);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms) {
+            Integer remaining = termFrequency.merge(term, -1, Integer::sum);
+            if (remaining != null && remaining <= 0) {
+                termFrequency.remove(term);
+                for (String trigram : trigrams(term)) {
+                    Set<String> bucket = trigramTerms.get(trigram);
+                    if (bucket != null) {
+                        bucket.remove(term);
+                        if (bucket.isEmpty()) {
+                            trigramTerms.remove(trigram);
+                        }
+                    }
+                }
+                Set<String> sameLength = lengthTerms.get(term.length());
+                if (sameLength != null) {
+                    sameLength.remove(term);
+                    if (sameLength.isEmpty()) {
+                        lengthTerms.remove(term.length());
+                    }
+                }
+            }
+        }
+    }
+
+    private String closestTerm(String token) {
+        if (token.length() < MIN_TOKEN_LENGTH) {
+            return null;
+        }
+        int bound = maxEditsFor(token);
+        List<String> tokenTrigrams = trigrams(token);
+        int minShared = tokenTrigrams.size() - 4 * bound;
+        Set<String> candidates = new HashSet<>();
+        if (minShared <= 0) {
+            for (int length = token.length() - bound; length <= token.length() + bound; length++) {
+                candidates.addAll(lengthTerms.getOrDefault(length, Set.of()));
+            }
+        } else {
+            Map<String, Integer> shared = new HashMap<>();
+            for (String trigram : tokenTrigrams) {
+                Set<String> terms = trigramTerms.get(trigram);
+                if (terms != null) {
+                    for (String term : terms) {
+                        shared.merge(term, 1, Integer::sum);
+                    }
+                }
+            }
+            for (Map.Entry<String, Integer> candidate : shared.entrySet()) {
+                if (candidate.getValue() >= minShared) {
+                    candidates.add(candidate.getKey());
+                }
+            }
+        }
+
+        String best = null;
+        int bestDistance = Integer.MAX_VALUE;
+        int bestFrequency = 0;
+        for (String term : candidates) {
+            if (Math.abs(term.length() - token.length()) > bound) {
+                continue;
+            }
+            int distance = boundedDistance(token, term, bound);
+            if (distance > bound) {
+                continue;
+            }
+            int frequency = termFrequency.getOrDefault(term, 0);
+            if (distance < bestDistance || (distance == bestDistance && frequency > bestFrequency)) {
+                best = term;
+                bestDistance = distance;
+                bestFrequency = frequency;
+            }
+        }
+        return best;
+    }
+
+    // Short words allow a single edit, otherwise "cat" would match half the catalog
+    private int maxEditsFor(String token) {
+        return token.length() <= 4 ? Math.min(1, maxEdits) : maxEdits;
+    }
+
+    private static Set<String> termsOf(Product product) {
+        Set<String> terms = new HashSet<>();
+        for (String token : SearchTokenizer.tokenize(product.getName())) {
+            if (token.length() >= MIN_TOKEN_LENGTH) {
+                terms.add(token);
+            }
+        }
+        for (String token : SearchTokenizer.tokenize(product.getCategory())) {
+            if (token.length() >= MIN_TOKEN_LENGTH) {
+                terms.add(token);
+            }
+        }
+        for (String token : SearchTokenizer.tokenize(product.getDescription())) {
+            if (token.length() >= MIN_TOKEN_LENGTH) {
+                terms.add(token);
+            }
+        }
+        return terms;
+    }
+
+    private static List<String> trigrams(String term) {
+        String padded = "$" + term + "$";
+        List<String> trigrams = new ArrayList<>(padded.length() - 2);
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            trigrams.add(padded.substring(i, i + 3));
+        }
+        return trigrams;
+    }
+
+    /**
+     * Optimal string alignment distance (Levenshtein plus adjacent transpositions,
+     * so "iphnoe" is one edit from "iphone"). Anything farther than the bound is
+     * reported as bound + 1, giving up as soon as a whole row exceeds the bound.
+     */
+    static int boundedDistance(String a, String b, int bound) {
+        int[] previousPrevious = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    value = Math.min(value, previousPrevious[j - 2] + 1);
+                }
+                current[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin > bound) {
+                return bound + 1;
+            }
+            int[] recycled = previousPrevious;
+            previousPrevious = previous;
+            previous = current;
+            current = recycled;
+        }
+        return Math.min(previous[b.length()], bound + 1);
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.ecommerce.service;
 
+import com.example.ecommerce.event.ProductChangeEvent;
 import com.example.ecommerce.model.UserFavorite;
 import com.example.ecommerce.model.User;
 import com.example.ecommerce.model.Product;
@@ -10,11 +11,16 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.annotation.Async;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
@@ -76,21 +82,7 @@ public class UserFavoriteService {
                     continue;
                 }
                 
-                Product product = currentProduct.get();
-                Double currentPrice = product.getPrice().doubleValue();
-                Double lastNotifiedPrice = favorite.getLastNotifiedPrice();
-                
-                logger.debug("Checking product {} - Current price: {}, Last notified price: {}", 
-                    product.getName(), currentPrice, lastNotifiedPrice);
-                
-                if (lastNotifiedPrice != null && currentPrice < lastNotifiedPrice) {
-                    // Price has decreased
-                    logger.info("Price decrease detected for product {} - Old: {}, New: {}", 
-                        product.getName(), lastNotifiedPrice, currentPrice);
-                    sendPriceChangeNotification(favorite, currentPrice, lastNotifiedPrice);
-                    favorite.setLastNotifiedPrice(currentPrice);
-                    userFavoriteRepository.save(favorite);
-                }
+                checkPriceDrop(favorite, currentProduct.get());
             } catch (Exception e) {
                 logger.error("Error checking price for favorite {}: {}", favorite.getId(), e.getMessage(), e);
             }
@@ -98,6 +90,46 @@ public class UserFavoriteService {
         logger.info("Completed scheduled price check for favorites");
     }
 
+    // Bulk repricing already carries the new prices, so only the affected favorites are checked
+    @Async
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onProductChange(ProductChangeEvent event) {
+        if (event.getType() != ProductChangeEvent.Type.BULK_UPDATED) {
+            return;
+        }
+        Map<Long, Product> products = new HashMap<>();
+        for (Product product : event.getProducts()) {
+            products.put(product.getId(), product);
+        }
+        List<UserFavorite> favorites = userFavoriteRepository.findByProductIdIn(products.keySet());
+        logger.info("Checking {} favorites after bulk update of {} products", favorites.size(), products.size());
+        for (UserFavorite favorite : favorites) {
+            try {
+                checkPriceDrop(favorite, products.get(favorite.getProduct().getId()));
+            } catch (Exception e) {
+                logger.error("Error checking price for favorite {}: {}", favorite.getId(), e.getMessage(), e);
+            }
+        }
+    }
+
+    private void checkPriceDrop(UserFavorite favorite, Product product) {
+        Double currentPrice = product.getPrice().doubleValue();
+        Double lastNotifiedPrice = favorite.getLastNotifiedPrice();
+        
+        logger.debug("Checking product {} - Current price: {}, Last notified price: {}", 
+            product.getName(), currentPrice, lastNotifiedPrice);
+        
+        if (lastNotifiedPrice != null && currentPrice < lastNotifiedPrice) {
+            // Price has decreased
+            logger.info("Price decrease detected for product {} - Old: {}, New: {}", 
+                product.getName(), lastNotifiedPrice, currentPrice);
+            sendPriceChangeNotification(favorite, currentPrice, lastNotifiedPrice);
+            favorite.setLastNotifiedPrice(currentPrice);
+            userFavoriteRepository.save(favorite);
+        }
+    }
+
     private void sendPriceChangeNotification(UserFavorite favorite, Double newPrice, Double oldPrice) {
         User user = favorite.getUser();
         Product product = favorite.getProduct();
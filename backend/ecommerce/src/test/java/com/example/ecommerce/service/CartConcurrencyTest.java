@@ -0,0 +1,200 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.model.Cart;
+import com.example.ecommerce.model.CartItem;
+import com.example.ecommerce.model.Product;
+import com.example.ecommerce.model.User;
+import com.example.ecommerce.repository.ProductRepository;
+import com.example.ecommerce.repository.UserRepository;
+import com.example.ecommerce.support.PostgresIntegrationTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * One user's cart hammered from many threads through CartService, once per cart
+ * store. Blind increments must all be kept: the database store only gets there by
+ * retrying the changes its version column rejects, the memory store by applying
+ * them one at a time. Read-modify-write updates sent with If-Match must never apply
+ * to a cart that changed since it was read, so none of them is lost either.
+ */
+@EnabledIfEnvironmentVariable(named = "TEST_DATASOURCE_URL", matches = ".+")
+abstract class CartConcurrencyTest extends PostgresIntegrationTest {
+    private static final int THREADS = 16;
+    private static final int CHANGES_PER_THREAD = 25;
+    private static final int STOCK = 10_000;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User user;
+    private Long productId;
+
+    @BeforeEach
+    void setUp() {
+        User created = new User();
+        created.setFirstName("Cart");
+        created.setLastName("Hammer");
+        created.setEmail("cart-" + UUID.randomUUID().toString().substring(0, 8) + "@example.com");
+        created.setPassword("not-a-real-password");
+        created.setRole(User.Role.USER);
+        user = userRepository.save(created);
+
+        Product product = new Product();
+        product.setName("Contended");
+        product.setPrice(new BigDecimal("4.99"));
+        product.setImage("contended.png");
+        product.setCategory("Stress");
+        product.setStock(STOCK);
+        productId = productRepository.save(product).getId();
+
+        // The cart row exists before the race, as it does once a user has looked at it
+        cartService.getOrCreateCart(user);
+    }
+
+    @AfterEach
+    void tearDown() {
+        cartService.flushCart(user);
+        jdbcTemplate.update("DELETE FROM cart_items WHERE cart_id IN (SELECT id FROM carts WHERE user_id = ?)", user.getId());
+        jdbcTemplate.update("DELETE FROM carts WHERE user_id = ?", user.getId());
+        userRepository.deleteById(user.getId());
+        productRepository.deleteById(productId);
+    }
+
+    @Test
+    void blindIncrementsFromManyThreadsAreAllKept() throws InterruptedException {
+        List<Throwable> errors = hammer(() -> cartService.addToCart(user, productId, "Contended", "contended.png", 4.99, 1, null));
+
+        assertEquals(List.of(), errors);
+        assertEquals(THREADS * CHANGES_PER_THREAD, quantity(cartService.getCart(user)));
+        assertEquals(THREADS * CHANGES_PER_THREAD, storedQuantity());
+    }
+
+    @Test
+    void conditionalReadModifyWritesNeverApplyToAStaleCart() throws InterruptedException {
+        cartService.addToCart(user, productId, "Contended", "contended.png", 4.99, 1, null);
+        AtomicInteger refused = new AtomicInteger();
+
+        List<Throwable> errors = hammer(() -> {
+            while (true) {
+                Cart cart = cartService.getCart(user);
+                try {
+                    cartService.updateCartItemQuantity(user, productId, quantity(cart) + 1, CartService.etag(cart));
+                    return;
+                } catch (ResponseStatusException e) {
+                    if (e.getStatusCode() != HttpStatus.PRECONDITION_FAILED) {
+                        throw e;
+                    }
+                    refused.incrementAndGet();
+                }
+            }
+        });
+
+        assertEquals(List.of(), errors);
+        assertEquals(1 + THREADS * CHANGES_PER_THREAD, quantity(cartService.getCart(user)));
+        assertEquals(1 + THREADS * CHANGES_PER_THREAD, storedQuantity());
+        // Without the check the refused writes would have overwritten newer quantities
+        assertTrue(refused.get() > 0, "no update ever saw a stale cart");
+    }
+
+    @Test
+    void staleETagIsRefusedAndLeavesTheCartAlone() {
+        Cart seen = cartService.addToCart(user, productId, "Contended", "contended.png", 4.99, 1, null);
+        cartService.addToCart(user, productId, "Contended", "contended.png", 4.99, 1, CartService.etag(seen));
+
+        ResponseStatusException error = assertThrows(ResponseStatusException.class, () ->
+                cartService.updateCartItemQuantity(user, productId, 7, CartService.etag(seen)));
+
+        assertEquals(HttpStatus.PRECONDITION_FAILED, error.getStatusCode());
+        assertEquals(2, quantity(cartService.getCart(user)));
+    }
+
+    // Every thread makes CHANGES_PER_THREAD changes; anything thrown is collected
+    private List<Throwable> hammer(Runnable change) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        ConcurrentLinkedQueue<Throwable> errors = new ConcurrentLinkedQueue<>();
+        for (int i = 0; i < THREADS; i++) {
+            pool.execute(() -> {
+                try {
+                    start.await();
+                    for (int c = 0; c < CHANGES_PER_THREAD; c++) {
+                        change.run();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    errors.add(e);
+                } catch (RuntimeException e) {
+                    errors.add(e);
+                }
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(120, TimeUnit.SECONDS), "threads did not finish");
+        return new ArrayList<>(errors);
+    }
+
+    // What a fresh read of the carts tables sees once the store wrote the cart through
+    private int storedQuantity() {
+        cartService.flushCart(user);
+        Integer stored = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(i.quantity), 0) FROM cart_items i JOIN carts c ON c.id = i.cart_id "
+                        + "WHERE c.user_id = ? AND i.product_id = ?", Integer.class, user.getId(), productId);
+        return stored != null ? stored : 0;
+    }
+
+    private int quantity(Cart cart) {
+        return cart.getItems().stream()
+                .filter(item -> item.getProductId().equals(productId))
+                .mapToInt(CartItem::getQuantity)
+                .sum();
+    }
+
+    @EnabledIfEnvironmentVariable(named = "TEST_DATASOURCE_URL", matches = ".+")
+    @TestPropertySource(properties = {
+            "cart.store=memory",
+            "cart.store.journal-path=${java.io.tmpdir}/ecommerce-test-cart-journal.ndjson"
+    })
+    static class MemoryStore extends CartConcurrencyTest {
+    }
+
+    // Enough attempts that every thread gets through however often it loses the race
+    @EnabledIfEnvironmentVariable(named = "TEST_DATASOURCE_URL", matches = ".+")
+    @TestPropertySource(properties = {
+            "cart.store=database",
+            "cart.update.max-attempts=1000"
+    })
+    static class DatabaseStore extends CartConcurrencyTest {
+    }
+}
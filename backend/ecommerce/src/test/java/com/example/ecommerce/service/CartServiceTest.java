@@ -0,0 +1,221 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.dto.CartOperation;
+import com.example.ecommerce.model.Cart;
+import com.example.ecommerce.model.CartItem;
+import com.example.ecommerce.model.Product;
+import com.example.ecommerce.model.User;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CartServiceTest {
+    private static final int MAX_OPERATIONS = 3;
+
+    private final ProductService productService = mock(ProductService.class);
+    private final MapCartStore cartStore = new MapCartStore();
+    private final GuestCartStore guestCartStore = new GuestCartStore("test-secret", 100, 3600, false);
+    private final CartService cartService = new CartService(cartStore, guestCartStore, productService,
+            mock(PriceSnapshot.class), MAX_OPERATIONS, 5);
+    private final User user = user();
+
+    @Test
+    void addThenUpdateOfOneLineIsJudgedByWhereItEndsUp() {
+        when(productService.getStockLevels(any())).thenReturn(Map.of(1L, 3));
+
+        Cart cart = cartService.applyBatch(user, List.of(
+                add(1L, "Lamp", 12.5, 5),
+                operation(CartOperation.Type.UPDATE, 1L, 2)), null);
+
+        assertEquals(1, cart.getItems().size());
+        assertEquals(2, cart.getItems().get(0).getQuantity());
+        assertEquals("Lamp", cart.getItems().get(0).getProductName());
+    }
+
+    @Test
+    void batchOverTheStockLeavesTheCartAsItWas() {
+        when(productService.getStockLevels(any())).thenReturn(Map.of(1L, 3, 2L, 10));
+        cartService.applyBatch(user, List.of(add(2L, "Desk", 80.0, 1)), null);
+
+        RuntimeException error = assertThrows(RuntimeException.class, () -> cartService.applyBatch(user, List.of(
+                operation(CartOperation.Type.REMOVE, 2L, null),
+                add(1L, "Lamp", 12.5, 4)), null));
+
+        assertEquals("Insufficient stock for product: Lamp", error.getMessage());
+        Cart cart = cartStore.get(user);
+        assertEquals(1, cart.getItems().size());
+        assertEquals(2L, cart.getItems().get(0).getProductId());
+    }
+
+    @Test
+    void newLineWithoutNameOrPriceTakesThemFromTheProduct() {
+        when(productService.getStockLevels(any())).thenReturn(Map.of(1L, 3));
+        when(productService.getProductById(any())).thenReturn(Optional.of(product()));
+
+        Cart cart = cartService.applyBatch(user, List.of(operation(CartOperation.Type.ADD, 1L, 2)), null);
+
+        CartItem item = cart.getItems().get(0);
+        assertEquals("Lamp", item.getProductName());
+        assertEquals("lamp.png", item.getProductImage());
+        assertEquals(12.5, item.getPrice());
+        assertEquals(2, item.getQuantity());
+    }
+
+    @Test
+    void addWithoutDetailsOfAMissingProductIsRejected() {
+        when(productService.getStockLevels(any())).thenReturn(Map.of());
+        when(productService.getProductById(any())).thenReturn(Optional.empty());
+
+        ResponseStatusException error = assertThrows(ResponseStatusException.class, () ->
+                cartService.applyBatch(user, List.of(operation(CartOperation.Type.ADD, 9L, 1)), null));
+
+        assertEquals(HttpStatus.BAD_REQUEST, error.getStatusCode());
+        assertEquals(0, cartStore.get(user).getItems().size());
+    }
+
+    @Test
+    void malformedBatchesAreRejectedBeforeTheCartIsTouched() {
+        assertBadRequest(List.of());
+        assertBadRequest(List.of(add(1L, "a", 1.0, 1), add(2L, "b", 1.0, 1), add(3L, "c", 1.0, 1), add(4L, "d", 1.0, 1)));
+        assertBadRequest(List.of(add(1L, "Lamp", 12.5, 0)));
+        assertBadRequest(List.of(operation(CartOperation.Type.UPDATE, 1L, null)));
+        assertBadRequest(List.of(operation(null, 1L, 1)));
+        assertEquals(0, cartStore.updates);
+    }
+
+    @Test
+    void staleIfMatchRefusesTheWholeBatch() {
+        when(productService.getStockLevels(any())).thenReturn(Map.of(1L, 10, 2L, 10));
+        Cart before = cartService.applyBatch(user, List.of(add(1L, "Lamp", 12.5, 1)), null);
+        String etag = CartService.etag(before);
+        cartService.applyBatch(user, List.of(add(1L, "Lamp", 12.5, 1)), etag);
+
+        ResponseStatusException error = assertThrows(ResponseStatusException.class, () ->
+                cartService.applyBatch(user, List.of(add(2L, "Desk", 80.0, 1)), etag));
+
+        assertEquals(HttpStatus.PRECONDITION_FAILED, error.getStatusCode());
+        assertEquals(1, cartStore.get(user).getItems().size());
+        assertEquals(2, cartStore.get(user).getItems().get(0).getQuantity());
+    }
+
+    @Test
+    void mergeAddsUpQuantitiesCappedAtTheStockAndRemovesTheGuestCart() {
+        when(productService.getStockLevels(any())).thenReturn(Map.of(1L, 3, 2L, 10));
+        cartService.applyBatch(user, List.of(add(1L, "Lamp", 12.5, 2)), null);
+        cartService.applyGuestBatch("guest", List.of(add(1L, "Lamp", 12.5, 2), add(2L, "Desk", 80.0, 1)));
+
+        cartService.mergeGuestCart(user, "guest");
+
+        Cart cart = cartStore.get(user);
+        assertEquals(2, cart.getItems().size());
+        assertEquals(3, cart.getItems().get(0).getQuantity());
+        assertEquals(1, cart.getItems().get(1).getQuantity());
+        assertEquals(0, guestCartStore.get("guest").getItems().size());
+    }
+
+    @Test
+    void failedMergeKeepsTheGuestCart() {
+        when(productService.getStockLevels(any())).thenReturn(Map.of(1L, 3));
+        cartService.applyGuestBatch("guest", List.of(add(1L, "Lamp", 12.5, 2)));
+        cartStore.failure = new RuntimeException("Cart database unavailable");
+
+        assertThrows(RuntimeException.class, () -> cartService.mergeGuestCart(user, "guest"));
+
+        assertEquals(2, guestCartStore.get("guest").getItems().get(0).getQuantity());
+        cartStore.failure = null;
+        cartService.mergeGuestCart(user, "guest");
+        assertEquals(2, cartStore.get(user).getItems().get(0).getQuantity());
+        assertEquals(0, guestCartStore.get("guest").getItems().size());
+    }
+
+    private void assertBadRequest(List<CartOperation> operations) {
+        ResponseStatusException error = assertThrows(ResponseStatusException.class, () ->
+                cartService.applyBatch(user, operations, null));
+        assertEquals(HttpStatus.BAD_REQUEST, error.getStatusCode());
+    }
+
+    private static CartOperation add(Long productId, String name, Double price, Integer quantity) {
+        CartOperation operation = operation(CartOperation.Type.ADD, productId, quantity);
+        operation.setProductName(name);
+        operation.setPrice(price);
+        return operation;
+    }
+
+    private static CartOperation operation(CartOperation.Type type, Long productId, Integer quantity) {
+        CartOperation operation = new CartOperation();
+        operation.setType(type);
+        operation.setProductId(productId);
+        operation.setQuantity(quantity);
+        return operation;
+    }
+
+    private static Product product() {
+        Product product = new Product();
+        product.setId(1L);
+        product.setName("Lamp");
+        product.setImage("lamp.png");
+        product.setPrice(new BigDecimal("12.50"));
+        return product;
+    }
+
+    private static User user() {
+        User user = new User();
+        user.setId(1L);
+        return user;
+    }
+
+    // Applies each change to a copy and keeps it only if the change went through
+    private static final class MapCartStore implements CartStore {
+        private final Map<Long, Cart> carts = new HashMap<>();
+        private int updates;
+        private RuntimeException failure;
+
+        @Override
+        public Cart get(User user) {
+            return carts.computeIfAbsent(user.getId(), id -> {
+                Cart cart = new Cart();
+                cart.setUser(user);
+                return cart;
+            });
+        }
+
+        @Override
+        public Cart update(User user, Consumer<Cart> mutation) {
+            if (failure != null) {
+                throw failure;
+            }
+            Cart next = CartStore.copy(get(user));
+            mutation.accept(next);
+            carts.put(user.getId(), next);
+            updates++;
+            return next;
+        }
+
+        @Override
+        public void flush(User user) {
+        }
+
+        @Override
+        public boolean isCached(Long userId) {
+            return true;
+        }
+
+        @Override
+        public Map<String, Object> getStats() {
+            return Map.of();
+        }
+    }
+}
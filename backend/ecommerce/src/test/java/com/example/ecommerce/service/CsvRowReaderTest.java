@@ -0,0 +1,106 @@
+package com.example.ecommerce.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CsvRowReaderTest {
+    private static final int LIMIT = 16;
+
+    @Test
+    void splitsPlainFieldsAndKeepsEmptyOnes() throws IOException {
+        assertEquals(List.of(List.of("name", "price", "stock"), List.of("Lamp", "", "3"), List.of("", "", "")),
+                readAll("name,price,stock\nLamp,,3\n,,\n"));
+    }
+
+    @Test
+    void readsTheLastRecordWithoutATrailingNewline() throws IOException {
+        assertEquals(List.of(List.of("a", "b"), List.of("c", "d")), readAll("a,b\nc,d"));
+    }
+
+    @Test
+    void unquotesFieldsWithCommasEscapedQuotesAndLineBreaks() throws IOException {
+        assertEquals(List.of(List.of("Desk, oak", "The \"Big\" one", "two\nlines", "")),
+                readAll("\"Desk, oak\",\"The \"\"Big\"\" one\",\"two\nlines\",\"\"\n"));
+    }
+
+    @Test
+    void keepsQuotesInsideAnUnquotedField() throws IOException {
+        assertEquals(List.of(List.of("12\" screen", "a\"b")), readAll("12\" screen,a\"b\n"));
+    }
+
+    @Test
+    void acceptsCrLfAndSkipsBlankLines() throws IOException {
+        assertEquals(List.of(List.of("a", "b"), List.of("c", "d")), readAll("\r\n\na,b\r\n\r\n\nc,d\r\n\r\n"));
+    }
+
+    @Test
+    void reportsTheLineEachRecordStartsOn() throws IOException {
+        CsvRowReader reader = new CsvRowReader(new StringReader("a\n\"multi\nline\",x\n\nb\r\nc"), LIMIT);
+
+        reader.next();
+        assertEquals(1, reader.getRecordLine());
+        reader.next();
+        assertEquals(2, reader.getRecordLine());
+        reader.next();
+        assertEquals(5, reader.getRecordLine());
+        reader.next();
+        assertEquals(6, reader.getRecordLine());
+        assertNull(reader.next());
+    }
+
+    @Test
+    void returnsNullForEmptyInput() throws IOException {
+        assertNull(new CsvRowReader(new StringReader(""), LIMIT).next());
+        assertNull(new CsvRowReader(new StringReader("\n\r\n"), LIMIT).next());
+    }
+
+    @Test
+    void rejectsAnUnterminatedQuotedFieldOnTheLineItStarts() throws IOException {
+        CsvRowReader reader = new CsvRowReader(new StringReader("ok\n\"open,\nstill"), LIMIT);
+        reader.next();
+
+        ProductImportService.RowException error = assertThrows(ProductImportService.RowException.class, reader::next);
+        assertEquals("unterminated quoted field", error.getMessage());
+        assertEquals(2, reader.getRecordLine());
+        assertNull(reader.next());
+    }
+
+    @Test
+    void rejectsATooLongFieldAndGoesOnWithTheNextLine() throws IOException {
+        CsvRowReader reader = new CsvRowReader(new StringReader("a,b\nok,0123456789abcdefXYZ,z\nc,d\n"), LIMIT);
+        reader.next();
+
+        ProductImportService.RowException error = assertThrows(ProductImportService.RowException.class, reader::next);
+        assertEquals("field longer than 16 characters", error.getMessage());
+        assertEquals(2, reader.getRecordLine());
+        assertEquals(List.of("c", "d"), reader.next());
+    }
+
+    @Test
+    void givesUpOnTheRestOfTheInputWhenAQuotedFieldRunsPastTheLimit() throws IOException {
+        CsvRowReader reader = new CsvRowReader(new StringReader("a\n\"open,\nb\nc\nd\ne\nf\ng\nh\ni\n"), LIMIT);
+        reader.next();
+
+        ProductImportService.RowException error = assertThrows(ProductImportService.RowException.class, reader::next);
+        assertEquals("quoted field longer than 16 characters, the rest of the input was skipped", error.getMessage());
+        assertEquals(2, reader.getRecordLine());
+        assertNull(reader.next());
+    }
+
+    private static List<List<String>> readAll(String csv) throws IOException {
+        CsvRowReader reader = new CsvRowReader(new StringReader(csv), LIMIT);
+        List<List<String>> records = new ArrayList<>();
+        for (List<String> record = reader.next(); record != null; record = reader.next()) {
+            records.add(record);
+        }
+        return records;
+    }
+}
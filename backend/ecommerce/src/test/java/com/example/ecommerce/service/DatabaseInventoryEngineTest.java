@@ -0,0 +1,80 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.repository.ProductJdbcRepository;
+import com.example.ecommerce.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.OptionalInt;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class DatabaseInventoryEngineTest {
+    private final ProductJdbcRepository productJdbcRepository = mock(ProductJdbcRepository.class);
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+    private final StockBucketService stockBucketService = mock(StockBucketService.class);
+    private final DatabaseInventoryEngine engine =
+            new DatabaseInventoryEngine(productJdbcRepository, productRepository, stockBucketService);
+
+    @Test
+    void plainMissOnARowBucketedElsewhereTakesFromTheBuckets() {
+        when(productJdbcRepository.decrementStock(1L, 2)).thenReturn(OptionalInt.empty());
+        when(stockBucketService.refreshBucketed(1L)).thenReturn(true);
+        when(stockBucketService.take(1L, 2)).thenReturn(OptionalInt.of(8));
+
+        assertEquals(OptionalInt.of(8), engine.decrement(1L, 2));
+    }
+
+    @Test
+    void bucketMissOnARowMergedElsewhereUsesTheStockColumn() {
+        when(stockBucketService.isBucketed(1L)).thenReturn(true);
+        when(stockBucketService.take(1L, 2)).thenReturn(OptionalInt.empty());
+        when(stockBucketService.refreshBucketed(1L)).thenReturn(false);
+        when(productJdbcRepository.decrementStock(1L, 2)).thenReturn(OptionalInt.of(3));
+
+        assertEquals(OptionalInt.of(3), engine.decrement(1L, 2));
+    }
+
+    @Test
+    void aMissOnTheRightPathIsShort() {
+        when(productJdbcRepository.decrementStock(1L, 2)).thenReturn(OptionalInt.empty());
+        when(stockBucketService.refreshBucketed(1L)).thenReturn(false);
+
+        assertEquals(OptionalInt.empty(), engine.decrement(1L, 2));
+    }
+
+    @Test
+    void incrementFollowsTheRowToo() {
+        when(productJdbcRepository.incrementStock(1L, 4)).thenReturn(OptionalInt.empty());
+        when(stockBucketService.refreshBucketed(1L)).thenReturn(true);
+        when(stockBucketService.add(1L, 4)).thenReturn(OptionalInt.of(14));
+
+        assertEquals(OptionalInt.of(14), engine.increment(1L, 4));
+    }
+
+    @Test
+    void batchRetriesOnlyTheLinesThatMissed() {
+        Map<Long, Integer> taken = new HashMap<>();
+        taken.put(1L, 9);
+        when(productJdbcRepository.decrementStockAll(anyMap())).thenReturn(taken);
+        when(stockBucketService.refreshBucketed(2L)).thenReturn(true);
+        when(stockBucketService.take(2L, 1)).thenReturn(OptionalInt.of(4));
+
+        assertEquals(Map.of(1L, 9, 2L, 4), engine.decrementAll(Map.of(1L, 1, 2L, 1)));
+    }
+
+    @Test
+    void batchStillRejectsAShortLine() {
+        when(productJdbcRepository.decrementStockAll(anyMap())).thenReturn(new HashMap<>());
+        when(stockBucketService.refreshBucketed(1L)).thenReturn(false);
+        when(productRepository.existsById(1L)).thenReturn(true);
+
+        RuntimeException error = assertThrows(RuntimeException.class, () -> engine.decrementAll(Map.of(1L, 1)));
+        assertEquals("Insufficient stock for product ID: 1", error.getMessage());
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.model.Product;
+import com.example.ecommerce.repository.ProductRepository;
+import com.example.ecommerce.support.PostgresIntegrationTest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The full-text engine against the LIKE queries it replaced, over the seeded catalog:
+ * it finds every product LIKE finds by a whole or leading word, also matches words
+ * in any order, and puts name matches first.
+ */
+@EnabledIfEnvironmentVariable(named = "TEST_DATASOURCE_URL", matches = ".+")
+@TestPropertySource(properties = "product.search.engine=fulltext")
+class FullTextSearchComparisonTest extends PostgresIntegrationTest {
+    private static final Pageable ALL = PageRequest.of(0, 1000);
+
+    @Autowired
+    private ProductSearchEngine searchEngine;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Test
+    void usesTheFullTextEngine() {
+        assertInstanceOf(FullTextProductSearchEngine.class, searchEngine);
+    }
+
+    @Test
+    void findsEveryWordMatchThatLikeFinds() {
+        for (String query : List.of("laptop", "gaming", "noise", "samsung", "smartwatch", "camera", "pro")) {
+            Set<Long> fullText = ids(searchEngine.search(query, null, ALL).getContent());
+            Set<Long> like = productRepository.searchProducts(query, ALL).getContent().stream()
+                    .filter(product -> startsAWord(product, query))
+                    .map(Product::getId)
+                    .collect(Collectors.toSet());
+            assertFalse(like.isEmpty(), "seed data has no match for " + query);
+            assertTrue(fullText.containsAll(like), query + ": full-text " + fullText + " misses LIKE hits " + like);
+        }
+    }
+
+    @Test
+    void matchesWordsInAnyOrder() {
+        assertTrue(productRepository.searchProducts("headphones wireless", ALL).isEmpty());
+
+        List<Product> found = searchEngine.search("headphones wireless", null, ALL).getContent();
+        assertEquals(List.of("Sennheiser Momentum 4"), found.stream().map(Product::getName).toList());
+    }
+
+    @Test
+    void matchesStemmedForms() {
+        // "Laptops" is the category and "laptop" is in the descriptions; LIKE on "laptops" finds neither
+        assertTrue(productRepository.searchProducts("laptops", ALL).isEmpty());
+        assertFalse(searchEngine.search("laptops", null, ALL).isEmpty());
+    }
+
+    @Test
+    void ranksNameMatchesFirst() {
+        List<Product> found = searchEngine.search("pro", null, ALL).getContent();
+        int lastNameMatch = -1;
+        int firstOtherMatch = found.size();
+        for (int i = 0; i < found.size(); i++) {
+            if (SearchTokenizer.tokenize(found.get(i).getName()).stream().anyMatch(token -> token.startsWith("pro"))) {
+                lastNameMatch = i;
+            } else {
+                firstOtherMatch = Math.min(firstOtherMatch, i);
+            }
+        }
+        assertTrue(lastNameMatch >= 0);
+        assertTrue(firstOtherMatch < found.size(), "expected description-only matches for pro");
+        assertTrue(lastNameMatch < firstOtherMatch, "a description-only match ranks above a name match");
+    }
+
+    @Test
+    void categoryFilterNarrowsTheSameMatches() {
+        Set<Long> all = ids(searchEngine.search("premium", null, ALL).getContent());
+        List<Product> phones = searchEngine.search("premium", "smartphones", ALL).getContent();
+
+        assertFalse(phones.isEmpty());
+        assertTrue(phones.size() < all.size());
+        for (Product product : phones) {
+            assertEquals("Smartphones", product.getCategory());
+            assertTrue(all.contains(product.getId()));
+        }
+        assertEquals(ids(productRepository.searchProductsByCategory("premium", "smartphones", ALL).getContent()),
+                ids(phones));
+    }
+
+    private static boolean startsAWord(Product product, String query) {
+        return SearchTokenizer.tokenize(product.getName() + " " + product.getDescription()).stream()
+                .anyMatch(token -> token.startsWith(query));
+    }
+
+    private static Set<Long> ids(List<Product> products) {
+        return products.stream().map(Product::getId).collect(Collectors.toSet());
+    }
+}
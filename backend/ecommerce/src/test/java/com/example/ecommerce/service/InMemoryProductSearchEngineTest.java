@@ -0,0 +1,125 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.event.ProductChangeEvent;
+import com.example.ecommerce.model.Product;
+import com.example.ecommerce.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class InMemoryProductSearchEngineTest {
+    private final Map<Long, Product> catalog = new HashMap<>();
+    private InMemoryProductSearchEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        ProductRepository repository = mock(ProductRepository.class);
+        when(repository.findAllById(anyIterable())).thenAnswer(invocation -> {
+            List<Product> found = new ArrayList<>();
+            for (Object id : (Iterable<?>) invocation.getArgument(0)) {
+                Product product = catalog.get((Long) id);
+                if (product != null) {
+                    found.add(product);
+                }
+            }
+            return found;
+        });
+        engine = new InMemoryProductSearchEngine(repository);
+
+        add(1L, "MacBook Pro 14", "Laptops", "Apple laptop with M3 chip", "1999.00");
+        add(2L, "ThinkPad X1 Carbon", "Laptops", "Lightweight business laptop", "1499.00");
+        add(3L, "Magic Mouse", "Accessories", "Wireless mouse for Mac", "79.00");
+        add(4L, "USB-C Cable", "Accessories", "Charging cable for laptops", "19.00");
+        engine.onProductChange(ProductChangeEvent.reloaded(new ArrayList<>(catalog.values())));
+    }
+
+    @Test
+    void everyTermMustMatch() {
+        assertEquals(List.of(2L), ids(engine.search("business laptop", null, PageRequest.of(0, 10))));
+    }
+
+    @Test
+    void termsMatchAsPrefixes() {
+        assertEquals(List.of(1L), ids(engine.search("macb", null, PageRequest.of(0, 10))));
+    }
+
+    @Test
+    void nameMatchesOutrankDescriptionMatches() {
+        List<Long> laptops = ids(engine.search("laptop", null, PageRequest.of(0, 10)));
+        assertEquals(3, laptops.size());
+        List<Long> mac = ids(engine.search("mac", null, PageRequest.of(0, 10)));
+        assertEquals(1L, mac.get(0), "name prefix match ranks above description match");
+        assertTrue(mac.contains(3L));
+    }
+
+    @Test
+    void categoryFilterIsCaseInsensitive() {
+        assertEquals(List.of(4L), ids(engine.search("cable", "ACCESSORIES", PageRequest.of(0, 10))));
+        assertTrue(engine.search("cable", "laptops", PageRequest.of(0, 10)).isEmpty());
+    }
+
+    @Test
+    void sortBreaksScoreTiesAndPagesAreCounted() {
+        // 1 and 2 score the same on their category, price decides
+        Page<Product> first = engine.search("laptops", "Laptops", PageRequest.of(0, 1, Sort.by("price")));
+        assertEquals(2, first.getTotalElements());
+        assertEquals(List.of(2L), ids(first));
+        Page<Product> second = engine.search("laptops", "Laptops", PageRequest.of(1, 1, Sort.by("price")));
+        assertEquals(List.of(1L), ids(second));
+    }
+
+    @Test
+    void followsSavesAndDeletes() {
+        Product renamed = product(3L, "Trackpad", "Accessories", "Wireless trackpad", "129.00");
+        catalog.put(3L, renamed);
+        engine.onProductChange(ProductChangeEvent.saved(renamed));
+        assertTrue(engine.search("mouse", null, PageRequest.of(0, 10)).isEmpty());
+        assertEquals(List.of(3L), ids(engine.search("trackpad", null, PageRequest.of(0, 10))));
+
+        catalog.remove(4L);
+        engine.onProductChange(ProductChangeEvent.deleted(4L));
+        assertTrue(engine.search("cable", null, PageRequest.of(0, 10)).isEmpty());
+    }
+
+    @Test
+    void blankQueryFindsNothing() {
+        assertTrue(engine.search(" ", null, PageRequest.of(0, 10)).isEmpty());
+    }
+
+    private void add(Long id, String name, String category, String description, String price) {
+        catalog.put(id, product(id, name, category, description, price));
+    }
+
+    private static Product product(Long id, String name, String category, String description, String price) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName(name);
+        product.setCategory(category);
+        product.setDescription(description);
+        product.setPrice(new BigDecimal(price));
+        product.setStock(10);
+        return product;
+    }
+
+    private static List<Long> ids(Page<Product> page) {
+        List<Long> ids = new ArrayList<>();
+        for (Product product : page.getContent()) {
+            ids.add(product.getId());
+        }
+        return ids;
+    }
+}
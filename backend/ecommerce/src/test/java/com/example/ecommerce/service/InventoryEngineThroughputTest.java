@@ -0,0 +1,199 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.model.Product;
+import com.example.ecommerce.repository.ProductRepository;
+import com.example.ecommerce.support.PostgresIntegrationTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checkout throughput of the inventory engines on one hot SKU: the plain database
+ * engine (every buyer queues on one products row), the ledger engine (in-memory
+ * compare-and-set with group-committed movements) and the database engine with
+ * the product's stock split over buckets. Each run has the same buyers, duration
+ * and starting stock, and checks that every sale is accounted for.
+ *
+ * Needs PostgreSQL like the other integration tests; run with
+ * {@code TEST_DATASOURCE_URL=... ./gradlew benchmark}.
+ */
+@Tag("benchmark")
+@EnabledIfEnvironmentVariable(named = "TEST_DATASOURCE_URL", matches = ".+")
+abstract class InventoryEngineThroughputTest extends PostgresIntegrationTest {
+    private static final int BUYERS = 32;
+    private static final int STOCK = 10_000_000;
+    private static final long WARM_UP_MILLIS = 2_000;
+    private static final long MEASURE_MILLIS = 10_000;
+    private static final int BUCKETS = 16;
+    private static final int LATENCY_SAMPLES = 1 << 16; // per buyer
+
+    @Autowired
+    protected ProductService productService;
+
+    @Autowired
+    protected ProductRepository productRepository;
+
+    @Autowired
+    protected StockBucketService stockBucketService;
+
+    private Long productId;
+
+    @AfterEach
+    void tearDown() {
+        if (productId != null) {
+            productRepository.deleteById(productId);
+        }
+    }
+
+    @Test
+    void oneHotProduct() throws InterruptedException {
+        productId = hotProduct();
+        prepare(productId);
+
+        run(WARM_UP_MILLIS);
+        int before = productService.getProductStock(productId);
+        Result result = run(MEASURE_MILLIS);
+
+        assertEquals(List.of(), result.errors);
+        assertEquals(before - result.sold, productService.getProductStock(productId).intValue());
+        assertTrue(result.sold > 0);
+        System.out.printf("%s: %d buyers, %d checkouts in %d ms = %.0f/s, latency p50 %.2f ms, p99 %.2f ms%n",
+                name(), BUYERS, result.sold, MEASURE_MILLIS, result.sold * 1000.0 / MEASURE_MILLIS,
+                result.percentile(0.50), result.percentile(0.99));
+    }
+
+    protected abstract String name();
+
+    protected void prepare(Long productId) {
+    }
+
+    // Every buyer takes one unit at a time until the time is up
+    private Result run(long millis) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(BUYERS);
+        CountDownLatch start = new CountDownLatch(1);
+        ConcurrentLinkedQueue<Throwable> errors = new ConcurrentLinkedQueue<>();
+        List<long[]> latencies = new ArrayList<>();
+        long[] counts = new long[BUYERS];
+        for (int i = 0; i < BUYERS; i++) {
+            long[] own = new long[LATENCY_SAMPLES];
+            latencies.add(own);
+            int buyer = i;
+            pool.execute(() -> {
+                try {
+                    start.await();
+                    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+                    int sold = 0;
+                    while (System.nanoTime() < deadline) {
+                        long began = System.nanoTime();
+                        productService.reduceStock(productId, 1);
+                        if (sold < own.length) {
+                            own[sold] = System.nanoTime() - began;
+                        }
+                        sold++;
+                    }
+                    counts[buyer] = sold;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    errors.add(e);
+                } catch (RuntimeException e) {
+                    errors.add(e);
+                }
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(millis + 60_000, TimeUnit.MILLISECONDS), "buyers did not finish");
+
+        long sold = Arrays.stream(counts).sum();
+        long[] all = new long[(int) Math.min(sold, Integer.MAX_VALUE)];
+        int at = 0;
+        for (int i = 0; i < BUYERS; i++) {
+            int recorded = (int) Math.min(counts[i], latencies.get(i).length);
+            System.arraycopy(latencies.get(i), 0, all, at, recorded);
+            at += recorded;
+        }
+        long[] recorded = Arrays.copyOf(all, at);
+        Arrays.sort(recorded);
+        return new Result((int) sold, recorded, new ArrayList<>(errors));
+    }
+
+    private Long hotProduct() {
+        Product product = new Product();
+        product.setName("Throughput Hot SKU");
+        product.setPrice(new BigDecimal("1.00"));
+        product.setImage("hot.png");
+        product.setCategory("Benchmark");
+        product.setStock(STOCK);
+        return productService.saveProduct(product).getId();
+    }
+
+    private static final class Result {
+        private final int sold;
+        private final long[] latencies;
+        private final List<Throwable> errors;
+
+        private Result(int sold, long[] latencies, List<Throwable> errors) {
+            this.sold = sold;
+            this.latencies = latencies;
+            this.errors = errors;
+        }
+
+        private double percentile(double p) {
+            if (latencies.length == 0) {
+                return 0;
+            }
+            return latencies[(int) Math.min(latencies.length - 1, Math.floor(p * latencies.length))] / 1e6;
+        }
+    }
+
+    @Tag("benchmark")
+    @EnabledIfEnvironmentVariable(named = "TEST_DATASOURCE_URL", matches = ".+")
+    @TestPropertySource(properties = "inventory.engine=database")
+    static class DatabaseEngine extends InventoryEngineThroughputTest {
+        @Override
+        protected String name() {
+            return "database";
+        }
+    }
+
+    @Tag("benchmark")
+    @EnabledIfEnvironmentVariable(named = "TEST_DATASOURCE_URL", matches = ".+")
+    @TestPropertySource(properties = "inventory.engine=ledger")
+    static class LedgerEngine extends InventoryEngineThroughputTest {
+        @Override
+        protected String name() {
+            return "ledger";
+        }
+    }
+
+    @Tag("benchmark")
+    @EnabledIfEnvironmentVariable(named = "TEST_DATASOURCE_URL", matches = ".+")
+    @TestPropertySource(properties = "inventory.engine=database")
+    static class BucketedDatabaseEngine extends InventoryEngineThroughputTest {
+        @Override
+        protected String name() {
+            return "database with " + BUCKETS + " buckets";
+        }
+
+        @Override
+        protected void prepare(Long productId) {
+            stockBucketService.enable(productId, BUCKETS);
+        }
+    }
+}
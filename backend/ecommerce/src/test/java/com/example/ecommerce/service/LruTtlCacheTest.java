@@ -0,0 +1,110 @@
+package com.example.ecommerce.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LruTtlCacheTest {
+
+    @Test
+    void dropsTheLeastRecentlyUsedEntryWhenFull() {
+        LruTtlCache<String, Integer> cache = new LruTtlCache<>(2, 60_000);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.get("a");
+        cache.put("c", 3);
+
+        assertEquals(1, cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals(3, cache.get("c"));
+        assertEquals(1L, cache.getStats().get("evictions"));
+    }
+
+    @Test
+    void expiredEntriesAreMisses() throws InterruptedException {
+        LruTtlCache<String, Integer> cache = new LruTtlCache<>(10, 1);
+        cache.put("a", 1);
+        Thread.sleep(5);
+
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.size());
+        assertEquals(1L, cache.getStats().get("expirations"));
+    }
+
+    @Test
+    void zeroSizeCachesNothing() {
+        LruTtlCache<String, Integer> cache = new LruTtlCache<>(0, 60_000);
+        cache.put("a", 1);
+
+        assertNull(cache.get("a"));
+    }
+
+    @Test
+    void refusesALoadWhoseKeyWasInvalidatedMeanwhile() {
+        LruTtlCache<String, Integer> cache = new LruTtlCache<>(10, 60_000);
+        long generation = cache.generation();
+        cache.invalidate("a");
+
+        assertFalse(cache.putIfUnchanged("a", 1, generation));
+        assertNull(cache.get("a"));
+    }
+
+    @Test
+    void acceptsALoadWhenOnlyOtherKeysWereInvalidated() {
+        LruTtlCache<String, Integer> cache = new LruTtlCache<>(10, 60_000);
+        long generation = cache.generation();
+        cache.invalidate("b");
+        cache.invalidate("c");
+
+        assertTrue(cache.putIfUnchanged("a", 1, generation));
+        assertEquals(1, cache.get("a"));
+    }
+
+    @Test
+    void acceptsALoadStartedAfterTheInvalidation() {
+        LruTtlCache<String, Integer> cache = new LruTtlCache<>(10, 60_000);
+        cache.invalidate("a");
+        long generation = cache.generation();
+
+        assertTrue(cache.putIfUnchanged("a", 1, generation));
+    }
+
+    @Test
+    void invalidateAllRefusesEveryLoadInFlight() {
+        LruTtlCache<String, Integer> cache = new LruTtlCache<>(10, 60_000);
+        cache.put("b", 2);
+        long generation = cache.generation();
+        cache.invalidateAll();
+
+        assertFalse(cache.putIfUnchanged("a", 1, generation));
+        assertNull(cache.get("b"));
+        assertTrue(cache.putIfUnchanged("a", 1, cache.generation()));
+    }
+
+    @Test
+    void forgettingInvalidatedKeysStaysOnTheSafeSide() {
+        LruTtlCache<Integer, Integer> cache = new LruTtlCache<>(2, 60_000);
+        long generation = cache.generation();
+        for (int key = 0; key < 100; key++) {
+            cache.invalidate(key);
+        }
+
+        assertFalse(cache.putIfUnchanged(0, 1, generation));
+        assertFalse(cache.putIfUnchanged(1000, 1, generation));
+    }
+
+    @Test
+    void countsHitsAndMisses() {
+        LruTtlCache<String, Integer> cache = new LruTtlCache<>(10, 60_000);
+        cache.put("a", 1);
+        cache.get("a");
+        cache.get("b");
+
+        assertEquals(1L, cache.getStats().get("hits"));
+        assertEquals(1L, cache.getStats().get("misses"));
+        assertEquals(0.5, cache.getStats().get("hitRate"));
+    }
+}
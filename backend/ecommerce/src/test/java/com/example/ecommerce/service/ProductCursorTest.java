@@ -0,0 +1,86 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.model.Product;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProductCursorTest {
+
+    @Test
+    void roundTripsANameCursor() {
+        ProductCursor decoded = ProductCursor.decode(ProductCursor.after(product(), "name", true).encode());
+
+        assertEquals("name", decoded.getSortBy());
+        assertTrue(decoded.isAscending());
+        assertEquals(42L, decoded.getId());
+        assertEquals("Pipe | Wrench", decoded.typedValue());
+    }
+
+    @Test
+    void roundTripsAPriceCursorAsBigDecimal() {
+        ProductCursor decoded = ProductCursor.decode(ProductCursor.after(product(), "price", false).encode());
+
+        assertFalse(decoded.isAscending());
+        assertEquals(new BigDecimal("19.90"), decoded.typedValue());
+    }
+
+    @Test
+    void keepsSubMillisecondPrecisionOfCreatedAt() {
+        Product product = product();
+        Timestamp createdAt = Timestamp.valueOf("2024-05-01 10:15:30.123456789");
+        product.setCreatedAt(createdAt);
+
+        ProductCursor decoded = ProductCursor.decode(ProductCursor.after(product, "createdAt", true).encode());
+
+        assertEquals(createdAt, decoded.typedValue());
+    }
+
+    @Test
+    void tokensAreUrlSafe() {
+        String token = ProductCursor.after(product(), "name", true).encode();
+
+        assertTrue(token.matches("[A-Za-z0-9_-]+"), token);
+    }
+
+    @Test
+    void rejectsUnsupportedSortKeys() {
+        assertThrows(IllegalArgumentException.class, () -> ProductCursor.after(product(), "stock", true));
+    }
+
+    @Test
+    void rejectsMalformedTokens() {
+        assertThrows(IllegalArgumentException.class, () -> ProductCursor.decode("not a cursor"));
+        assertThrows(IllegalArgumentException.class, () -> ProductCursor.decode(encode("v1|name|asc|42")));
+        assertThrows(IllegalArgumentException.class, () -> ProductCursor.decode(encode("v0|name|asc|42|Pipe")));
+        assertThrows(IllegalArgumentException.class, () -> ProductCursor.decode(encode("v1|name|asc|x|Pipe")));
+    }
+
+    @Test
+    void rejectsTamperedValues() {
+        assertThrows(IllegalArgumentException.class, () -> ProductCursor.decode(encode("v1|price|asc|42|cheap")));
+        assertThrows(IllegalArgumentException.class, () -> ProductCursor.decode(encode("v1|createdAt|asc|42|yesterday")));
+        assertThrows(IllegalArgumentException.class, () -> ProductCursor.decode(encode("v1|stock|asc|42|7")));
+    }
+
+    private static Product product() {
+        Product product = new Product();
+        product.setId(42L);
+        product.setName("Pipe | Wrench");
+        product.setPrice(new BigDecimal("19.90"));
+        product.setCreatedAt(new Timestamp(1_700_000_000_000L));
+        return product;
+    }
+
+    private static String encode(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
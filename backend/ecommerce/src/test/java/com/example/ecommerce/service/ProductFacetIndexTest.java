@@ -0,0 +1,186 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.event.ProductChangeEvent;
+import com.example.ecommerce.model.Product;
+import com.example.ecommerce.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ProductFacetIndexTest {
+    private final List<Product> catalog = new ArrayList<>();
+    private ProductRepository repository;
+    private ProductFacetIndex index;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(ProductRepository.class);
+        index = new ProductFacetIndex(repository,
+                List.of(new BigDecimal("250"), new BigDecimal("50"), new BigDecimal("100")));
+
+        catalog.add(product(1L, "Laptops", "1299.00", 5));
+        catalog.add(product(2L, "Laptops", "99.00", 0));
+        catalog.add(product(3L, "Audio", "49.99", 3));
+        catalog.add(product(4L, "Audio", "50.00", 1));
+        index.onProductChange(ProductChangeEvent.reloaded(new ArrayList<>(catalog)));
+    }
+
+    @Test
+    void countsEveryProductByCategoryAndPriceBucket() {
+        Map<String, Object> facets = index.getFacets(null);
+
+        assertEquals(4L, facets.get("total"));
+        assertEquals(3L, facets.get("inStock"));
+        assertEquals(List.of(1L, 2L, 0L, 1L), bucketCounts(facets));
+        assertEquals(List.of("Audio", "Laptops"), categoryNames(facets));
+    }
+
+    @Test
+    void bucketBoundsAreSortedAndLowerInclusive() {
+        List<Map<String, Object>> buckets = buckets(index.getFacets(null));
+
+        assertEquals(BigDecimal.ZERO, buckets.get(0).get("min"));
+        assertEquals(new BigDecimal("50"), buckets.get(0).get("max"));
+        assertEquals(new BigDecimal("250"), buckets.get(3).get("min"));
+        assertEquals(null, buckets.get(3).get("max"));
+    }
+
+    @Test
+    void scopesPriceBucketsToTheCategory() {
+        Map<String, Object> facets = index.getFacets("laptops");
+
+        assertEquals(2L, facets.get("total"));
+        assertEquals(1L, facets.get("inStock"));
+        assertEquals(List.of(0L, 1L, 0L, 1L), bucketCounts(facets));
+        assertEquals(2, categoryNames(facets).size());
+    }
+
+    @Test
+    void unknownCategoryHasEmptyScope() {
+        Map<String, Object> facets = index.getFacets("Cameras");
+
+        assertEquals(0L, facets.get("total"));
+        assertEquals(List.of(0L, 0L, 0L, 0L), bucketCounts(facets));
+    }
+
+    @Test
+    void savedProductMovesBetweenCategoriesAndBuckets() {
+        index.onProductChange(ProductChangeEvent.saved(product(3L, "Phones", "699.00", 3)));
+
+        Map<String, Object> facets = index.getFacets(null);
+        assertEquals(4L, facets.get("total"));
+        assertEquals(List.of(0L, 2L, 0L, 2L), bucketCounts(facets));
+        assertEquals(List.of("Audio", "Laptops", "Phones"), categoryNames(facets));
+        assertEquals(1L, index.getFacets("Audio").get("total"));
+    }
+
+    @Test
+    void deletingTheLastProductDropsTheCategory() {
+        String etag = index.getCategorySnapshot().getEtag();
+        index.onProductChange(ProductChangeEvent.deleted(3L));
+        index.onProductChange(ProductChangeEvent.deleted(4L));
+
+        assertEquals(List.of("Laptops"), index.getCategorySnapshot().getNames());
+        assertNotEquals(etag, index.getCategorySnapshot().getEtag());
+        assertEquals(2L, index.getFacets(null).get("total"));
+    }
+
+    @Test
+    void stockChangesOnlyMoveTheInStockCount() {
+        index.onProductChange(ProductChangeEvent.stockChanged(2L, 7));
+        index.onProductChange(ProductChangeEvent.stockChanged(1L, 0));
+
+        Map<String, Object> facets = index.getFacets("Laptops");
+        assertEquals(2L, facets.get("total"));
+        assertEquals(1L, facets.get("inStock"));
+        assertEquals(List.of(0L, 1L, 0L, 1L), bucketCounts(facets));
+    }
+
+    @Test
+    void categoryCountsEtagFollowsTheCounts() {
+        String etag = index.getCategoryCounts().getEtag();
+        index.onProductChange(ProductChangeEvent.stockChanged(3L, 0));
+
+        ProductFacetIndex.CategoryCounts counts = index.getCategoryCounts();
+        assertNotEquals(etag, counts.getEtag());
+        assertEquals("Audio", counts.getCounts().get(0).get("name"));
+        assertEquals(2L, counts.getCounts().get(0).get("count"));
+        assertEquals(1L, counts.getCounts().get(0).get("inStock"));
+    }
+
+    @Test
+    void rebuildStartsOver() {
+        catalog.clear();
+        catalog.add(product(9L, "Gaming", "499.99", 2));
+        index.onProductChange(ProductChangeEvent.reloaded(new ArrayList<>(catalog)));
+
+        assertEquals(List.of("Gaming"), index.getCategorySnapshot().getNames());
+        assertEquals(1L, index.getFacets(null).get("total"));
+    }
+
+    @Test
+    void keepsCategoriesThatDifferOnlyInCaseApart() {
+        index.onProductChange(ProductChangeEvent.saved(product(5L, "audio", "20.00", 1)));
+
+        assertEquals(List.of("Audio", "Laptops", "audio"), index.getCategorySnapshot().getNames());
+        assertEquals(List.of("Audio", "Laptops", "audio"), categoryNames(index.getFacets(null)));
+        assertEquals(1L, index.getCategoryCounts().getCounts().get(2).get("count"));
+        // The category filter matches like LOWER(category) = LOWER(:category)
+        assertEquals(3L, index.getFacets("AUDIO").get("total"));
+    }
+
+    @Test
+    void readsTheDatabaseWithoutEtagsUntilLoaded() {
+        ProductFacetIndex fresh = new ProductFacetIndex(repository, List.of(new BigDecimal("100")));
+        when(repository.findAllCategories()).thenReturn(List.of("Audio", "Laptops"));
+        when(repository.findCategoryCounts()).thenReturn(List.<Object[]>of(new Object[] {"Audio", 2L, 1L}));
+
+        ProductFacetIndex.CategorySnapshot snapshot = fresh.getCategorySnapshot();
+        assertEquals(List.of("Audio", "Laptops"), snapshot.getNames());
+        assertNull(snapshot.getEtag());
+        ProductFacetIndex.CategoryCounts counts = fresh.getCategoryCounts();
+        assertEquals(2L, counts.getCounts().get(0).get("count"));
+        assertNull(counts.getEtag());
+
+        fresh.onProductChange(ProductChangeEvent.reloaded(new ArrayList<>(catalog)));
+        assertNotNull(fresh.getCategorySnapshot().getEtag());
+        assertNotNull(fresh.getCategoryCounts().getEtag());
+    }
+
+    private static Product product(Long id, String category, String price, int stock) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName("Product " + id);
+        product.setCategory(category);
+        product.setPrice(new BigDecimal(price));
+        product.setStock(stock);
+        return product;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> buckets(Map<String, Object> facets) {
+        return (List<Map<String, Object>>) facets.get("priceBuckets");
+    }
+
+    private static List<Long> bucketCounts(Map<String, Object> facets) {
+        return buckets(facets).stream().map(bucket -> (Long) bucket.get("count")).toList();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<String> categoryNames(Map<String, Object> facets) {
+        return ((List<Map<String, Object>>) facets.get("categories")).stream()
+                .map(category -> (String) category.get("name"))
+                .toList();
+    }
+}
@@ -0,0 +1,200 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.event.ProductChangeEvent;
+import com.example.ecommerce.model.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ProductSuggestIndexTest {
+    private final List<Product> catalog = new ArrayList<>();
+    private ProductSuggestIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new ProductSuggestIndex(10);
+    }
+
+    @Test
+    void completesFromEveryWordStart() {
+        load(product(1L, "MacBook Pro M2", "Laptops", 50), product(2L, "iPhone 15 Pro", "Phones", 100));
+
+        assertEquals(List.of("iPhone 15 Pro", "MacBook Pro M2"), texts("pro"));
+        assertEquals(List.of("MacBook Pro M2"), texts("  MACB "));
+        assertEquals(List.of("MacBook Pro M2"), texts("pro m"));
+        assertEquals(List.of(), texts("book"));
+        assertEquals(List.of(), texts(""));
+    }
+
+    @Test
+    void ranksByStockThenText() {
+        load(product(1L, "Pro B", null, 5), product(2L, "Pro A", null, 5), product(3L, "Pro C", null, 9));
+
+        assertEquals(List.of("Pro C", "Pro A", "Pro B"), texts("pro"));
+        assertEquals(List.of("Pro C"), texts("pro", 1));
+    }
+
+    @Test
+    void suggestsCategoriesWeighedByTheirStock() {
+        load(product(1L, "Laptop Stand", "Accessories", 3), product(2L, "Lamp", "Lighting", 1),
+                product(3L, "Light Bulb", "Lighting", 1));
+
+        List<Map<String, Object>> found = index.suggest("li", 10);
+        assertEquals("Lighting", found.get(0).get("text"));
+        assertEquals("category", found.get(0).get("type"));
+        assertEquals("Light Bulb", found.get(1).get("text"));
+        assertEquals(1L, index.suggest("laptop", 10).get(0).get("productId"));
+    }
+
+    @Test
+    void prefixesEndingInsideAnEdgeFindTheSubtree() {
+        load(product(1L, "Product", null, 1), product(2L, "Prom Dress", null, 2), product(3L, "Pro", null, 3));
+
+        assertEquals(List.of("Pro", "Prom Dress", "Product"), texts("p"));
+        assertEquals(List.of("Pro", "Prom Dress", "Product"), texts("pro"));
+        assertEquals(List.of("Product"), texts("prod"));
+        assertEquals(List.of("Product"), texts("product"));
+        assertEquals(List.of(), texts("products"));
+        assertEquals(List.of("Prom Dress"), texts("dre"));
+    }
+
+    @Test
+    void deletingPrunesTheTree() {
+        load(product(1L, "Product", null, 1), product(2L, "Prom", null, 2));
+        index.onProductChange(ProductChangeEvent.deleted(2L));
+
+        assertEquals(List.of(), texts("prom"));
+        assertEquals(List.of("Product"), texts("pro"));
+
+        index.onProductChange(ProductChangeEvent.deleted(1L));
+        assertEquals(List.of(), texts("p"));
+    }
+
+    @Test
+    void savingReplacesTheOldName() {
+        load(product(1L, "Old Name", "Misc", 1));
+        index.onProductChange(ProductChangeEvent.saved(product(1L, "New Name", "Misc", 1)));
+
+        assertEquals(List.of(), texts("old"));
+        assertEquals(List.of("New Name"), texts("new"));
+        assertEquals(List.of("New Name"), texts("name"));
+    }
+
+    @Test
+    void stockChangesWaitForTheNextApplyAndCoalesce() {
+        load(product(1L, "Pro A", null, 5), product(2L, "Pro B", null, 1));
+        index.onProductChange(ProductChangeEvent.stockChanged(2L, 3));
+        index.onProductChange(ProductChangeEvent.stockChanged(2L, 9));
+
+        assertEquals(List.of("Pro A", "Pro B"), texts("pro"));
+        index.applyStockChanges();
+        assertEquals(List.of("Pro B", "Pro A"), texts("pro"));
+    }
+
+    @Test
+    void aSaveSupersedesQueuedStockChanges() {
+        load(product(1L, "Pro A", null, 5), product(2L, "Pro B", null, 1));
+        index.onProductChange(ProductChangeEvent.stockChanged(2L, 9));
+        index.onProductChange(ProductChangeEvent.saved(product(2L, "Pro B", null, 2)));
+        index.applyStockChanges();
+
+        assertEquals(List.of("Pro A", "Pro B"), texts("pro"));
+    }
+
+    @Test
+    void matchesABruteForceScanUnderRandomEdits() {
+        index = new ProductSuggestIndex(3);
+        index.onProductChange(ProductChangeEvent.reloaded(new ArrayList<>()));
+
+        Random random = new Random(42);
+        String[] words = {"pro", "prod", "product", "pr", "p", "max", "mac", "macbook", "m", "air"};
+        Map<Long, Product> products = new HashMap<>();
+        for (int step = 0; step < 2000; step++) {
+            long id = random.nextInt(40);
+            int action = random.nextInt(8);
+            if (action < 2) {
+                products.remove(id);
+                index.onProductChange(ProductChangeEvent.deleted(id));
+            } else if (action < 4 && products.containsKey(id)) {
+                int stock = random.nextInt(10);
+                products.get(id).setStock(stock);
+                index.onProductChange(ProductChangeEvent.stockChanged(id, stock));
+                index.applyStockChanges();
+            } else {
+                String name = words[random.nextInt(words.length)] + " " + words[random.nextInt(words.length)] + " " + id;
+                Product product = product(id, name, null, random.nextInt(10));
+                products.put(id, product);
+                index.onProductChange(ProductChangeEvent.saved(product));
+            }
+            String word = words[random.nextInt(words.length)];
+            String prefix = word.substring(0, 1 + random.nextInt(word.length()));
+            assertEquals(expected(products, prefix), ids(prefix), "prefix " + prefix + " at step " + step);
+        }
+        for (String word : words) {
+            assertEquals(expected(products, word), ids(word), word);
+        }
+    }
+
+    // The three heaviest products with a word starting with the prefix, ties by name
+    private static List<Long> expected(Map<Long, Product> products, String prefix) {
+        List<Product> matches = new ArrayList<>();
+        for (Product product : products.values()) {
+            String name = product.getName().toLowerCase(Locale.ROOT);
+            for (int i = 0; i < name.length(); i++) {
+                if ((i == 0 || name.charAt(i - 1) == ' ') && name.startsWith(prefix, i)) {
+                    matches.add(product);
+                    break;
+                }
+            }
+        }
+        matches.sort(Comparator.comparing(Product::getStock).reversed().thenComparing(Product::getName));
+        List<Long> ids = new ArrayList<>();
+        for (Product product : matches.subList(0, Math.min(3, matches.size()))) {
+            ids.add(product.getId());
+        }
+        return ids;
+    }
+
+    private List<Long> ids(String prefix) {
+        List<Long> ids = new ArrayList<>();
+        for (Map<String, Object> suggestion : index.suggest(prefix, 10)) {
+            ids.add((Long) suggestion.get("productId"));
+        }
+        return ids;
+    }
+
+    private void load(Product... products) {
+        catalog.addAll(List.of(products));
+        index.onProductChange(ProductChangeEvent.reloaded(new ArrayList<>(catalog)));
+    }
+
+    private List<String> texts(String prefix) {
+        return texts(prefix, 10);
+    }
+
+    private List<String> texts(String prefix, int limit) {
+        List<String> texts = new ArrayList<>();
+        for (Map<String, Object> suggestion : index.suggest(prefix, limit)) {
+            texts.add((String) suggestion.get("text"));
+        }
+        return texts;
+    }
+
+    private static Product product(Long id, String name, String category, int stock) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName(name);
+        product.setCategory(category);
+        product.setStock(stock);
+        return product;
+    }
+}
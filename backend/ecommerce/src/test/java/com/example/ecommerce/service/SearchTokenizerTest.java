@@ -0,0 +1,45 @@
+package com.example.ecommerce.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SearchTokenizerTest {
+
+    @Test
+    void splitsOnPunctuationAndWhitespaceAndLowercases() {
+        assertEquals(List.of("apple", "macbook", "pro", "14", "m3"),
+                SearchTokenizer.tokenize("  Apple MacBook-Pro 14\" (M3) "));
+    }
+
+    @Test
+    void keepsNonAsciiLettersTogether() {
+        assertEquals(List.of("caf\u00e9", "cr\u00e8me", "br\u00fbl\u00e9e"),
+                SearchTokenizer.tokenize("Caf\u00e9/Cr\u00e8me Br\u00fbl\u00e9e"));
+    }
+
+    @Test
+    void nullAndBlankTextHaveNoTokens() {
+        assertTrue(SearchTokenizer.tokenize(null).isEmpty());
+        assertTrue(SearchTokenizer.tokenize("").isEmpty());
+        assertTrue(SearchTokenizer.tokenize(" -- ").isEmpty());
+    }
+
+    @Test
+    void distinctTokensDropRepeatsAndKeepFirstOccurrenceOrder() {
+        assertEquals(List.of("usb", "c", "cable"),
+                List.copyOf(SearchTokenizer.distinctTokens("USB-C cable, usb c CABLE")));
+        Set<String> tokens = SearchTokenizer.distinctTokens("a A a");
+        assertEquals(1, tokens.size());
+    }
+
+    @Test
+    void normalizeTrimsAndLowercasesWithoutSplitting() {
+        assertEquals("gaming laptops", SearchTokenizer.normalize("  Gaming LAPTOPS "));
+        assertEquals("", SearchTokenizer.normalize(null));
+    }
+}
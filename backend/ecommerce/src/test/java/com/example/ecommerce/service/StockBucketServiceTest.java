@@ -0,0 +1,94 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.repository.ProductStockBucketRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class StockBucketServiceTest {
+    private final ProductStockBucketRepository bucketRepository = mock(ProductStockBucketRepository.class);
+    private final StockBucketService service =
+            new StockBucketService(bucketRepository, mock(PlatformTransactionManager.class), mock(ProductCatalogVersion.class), "database", 64);
+
+    @Test
+    void spreadSplitsEvenlyWithTheRemainderUpFront() {
+        assertArrayEquals(new int[] {4, 3, 3}, StockBucketService.spread(10, 3));
+        assertArrayEquals(new int[] {5, 5}, StockBucketService.spread(10, 2));
+        assertArrayEquals(new int[] {1, 1, 0, 0}, StockBucketService.spread(2, 4));
+        assertArrayEquals(new int[] {0, 0}, StockBucketService.spread(0, 2));
+    }
+
+    @Test
+    void spreadKeepsTheTotalAndBucketsWithinOneUnit() {
+        for (int buckets = 1; buckets <= 16; buckets++) {
+            for (int total = 0; total <= 200; total++) {
+                int[] stocks = StockBucketService.spread(total, buckets);
+                assertEquals(buckets, stocks.length);
+                int sum = 0;
+                int min = Integer.MAX_VALUE;
+                int max = Integer.MIN_VALUE;
+                for (int stock : stocks) {
+                    sum += stock;
+                    min = Math.min(min, stock);
+                    max = Math.max(max, stock);
+                }
+                assertEquals(total, sum, total + " over " + buckets);
+                assertTrue(max - min <= 1, total + " over " + buckets);
+            }
+        }
+    }
+
+    @Test
+    void refreshPicksUpBucketsEnabledOnAnotherNode() {
+        when(bucketRepository.findBucketedRowStock(7L)).thenReturn(30);
+
+        assertFalse(service.isBucketed(7L));
+        assertTrue(service.refreshBucketed(7L));
+        assertTrue(service.isBucketed(7L));
+    }
+
+    @Test
+    void refreshDropsBucketsDisabledOnAnotherNode() {
+        when(bucketRepository.findBucketedRowStock(7L)).thenReturn(30);
+        service.refreshBucketed(7L);
+        when(bucketRepository.findBucketedRowStock(7L)).thenReturn(null);
+
+        assertFalse(service.refreshBucketed(7L));
+        assertFalse(service.isBucketed(7L));
+    }
+
+    @Test
+    void otherEnginesNeverRouteToBuckets() {
+        StockBucketService ledger =
+                new StockBucketService(bucketRepository, mock(PlatformTransactionManager.class), mock(ProductCatalogVersion.class), "ledger", 64);
+        when(bucketRepository.findBucketedRowStock(7L)).thenReturn(30);
+
+        assertFalse(ledger.refreshBucketed(7L));
+    }
+
+    @Test
+    void otherEnginesReloadWithoutReadingTheBucketColumn() {
+        StockBucketService ledger =
+                new StockBucketService(bucketRepository, mock(PlatformTransactionManager.class), mock(ProductCatalogVersion.class), "ledger", 64);
+        when(bucketRepository.findBucketedRowStocks()).thenThrow(new IllegalStateException("no stock_buckets column"));
+
+        ledger.reload();
+
+        assertEquals(0, ledger.getStats().get("bucketedProducts"));
+    }
+
+    @Test
+    void failedReloadDoesNotStopStartup() {
+        when(bucketRepository.findBucketedRowStocks()).thenThrow(new IllegalStateException("no stock_buckets column"));
+
+        service.reload();
+
+        assertFalse(service.isBucketed(7L));
+    }
+}
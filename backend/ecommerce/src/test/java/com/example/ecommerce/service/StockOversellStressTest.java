@@ -0,0 +1,136 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.model.Product;
+import com.example.ecommerce.repository.ProductRepository;
+import com.example.ecommerce.support.PostgresIntegrationTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 64 buyers racing for the last units of one product through the conditional
+ * decrements of the database inventory engine: exactly the available units are
+ * sold, stock never goes below zero, and orders sharing products in opposite
+ * orders neither deadlock nor lose lines.
+ */
+@EnabledIfEnvironmentVariable(named = "TEST_DATASOURCE_URL", matches = ".+")
+class StockOversellStressTest extends PostgresIntegrationTest {
+    private static final int BUYERS = 64;
+    private static final int HOT_STOCK = 40;
+    private static final int SIDE_STOCK = 1000;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private final List<Long> created = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        productRepository.deleteAllById(created);
+    }
+
+    @Test
+    void singleLineOrdersSellExactlyTheStock() throws InterruptedException {
+        Long hot = product("Hot", HOT_STOCK);
+        AtomicInteger sold = new AtomicInteger();
+        List<Throwable> unexpected = race(buyer -> {
+            productService.reduceStock(hot, 1);
+            sold.incrementAndGet();
+        });
+
+        assertEquals(List.of(), unexpected);
+        assertEquals(HOT_STOCK, sold.get());
+        assertEquals(0, productRepository.findById(hot).orElseThrow().getStock());
+    }
+
+    @Test
+    void multiLineOrdersInOppositeOrdersNeitherOversellNorDeadlock() throws InterruptedException {
+        Long hot = product("Hot", HOT_STOCK);
+        Long left = product("Left", SIDE_STOCK);
+        Long right = product("Right", SIDE_STOCK);
+        AtomicInteger sold = new AtomicInteger();
+        List<Throwable> unexpected = race(buyer -> {
+            Map<Long, Integer> order = new LinkedHashMap<>();
+            if (buyer % 2 == 0) {
+                order.put(right, 1);
+                order.put(left, 1);
+                order.put(hot, 1);
+            } else {
+                order.put(hot, 1);
+                order.put(left, 1);
+                order.put(right, 1);
+            }
+            productService.reduceStockAll(order);
+            sold.incrementAndGet();
+        });
+
+        assertEquals(List.of(), unexpected);
+        assertEquals(HOT_STOCK, sold.get());
+        assertEquals(0, productRepository.findById(hot).orElseThrow().getStock());
+        // Rejected orders roll back their other lines
+        assertEquals(SIDE_STOCK - HOT_STOCK, productRepository.findById(left).orElseThrow().getStock());
+        assertEquals(SIDE_STOCK - HOT_STOCK, productRepository.findById(right).orElseThrow().getStock());
+    }
+
+    // Runs every buyer at once; "Insufficient stock" is the only failure expected
+    private List<Throwable> race(Buyer buyer) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(BUYERS);
+        CountDownLatch start = new CountDownLatch(1);
+        ConcurrentLinkedQueue<Throwable> unexpected = new ConcurrentLinkedQueue<>();
+        for (int i = 0; i < BUYERS; i++) {
+            int id = i;
+            pool.execute(() -> {
+                try {
+                    start.await();
+                    buyer.buy(id);
+                } catch (RuntimeException e) {
+                    if (e.getMessage() == null || !e.getMessage().startsWith("Insufficient stock")) {
+                        unexpected.add(e);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    unexpected.add(e);
+                }
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(60, TimeUnit.SECONDS), "buyers did not finish");
+        return new ArrayList<>(unexpected);
+    }
+
+    private Long product(String name, int stock) {
+        Product product = new Product();
+        product.setName("Stress " + name);
+        product.setPrice(new BigDecimal("9.99"));
+        product.setImage("stress.png");
+        product.setCategory("Stress");
+        product.setStock(stock);
+        Long id = productRepository.save(product).getId();
+        created.add(id);
+        return id;
+    }
+
+    private interface Buyer {
+        void buy(int buyer) throws InterruptedException;
+    }
+}
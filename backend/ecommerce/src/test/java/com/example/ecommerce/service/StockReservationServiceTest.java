@@ -0,0 +1,200 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.config.InventoryReservationConfig;
+import com.example.ecommerce.model.Product;
+import com.example.ecommerce.model.StockReservation;
+import com.example.ecommerce.repository.ProductJdbcRepository;
+import com.example.ecommerce.repository.ProductRepository;
+import com.example.ecommerce.repository.StockReservationRepository;
+import com.example.ecommerce.support.PostgresIntegrationTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Holds are admitted by the database, not by an instance's in-memory view: a second
+ * service instance standing in for another node sees the first one's holds, and
+ * concurrent reserves split between the two never hold more than the stock. A new
+ * checkout replaces the user's previous hold, and expired rows are swept from the
+ * table whichever node took them.
+ */
+@EnabledIfEnvironmentVariable(named = "TEST_DATASOURCE_URL", matches = ".+")
+class StockReservationServiceTest extends PostgresIntegrationTest {
+    private static final int BUYERS = 64;
+    private static final int STOCK = 40;
+    // No foreign key on user_id, so the buyers need no users rows
+    private static final long BUYER = 9_000_000L;
+
+    @Autowired
+    private StockReservationService reservationService;
+
+    @Autowired
+    private StockReservationRepository reservationRepository;
+
+    @Autowired
+    private ProductJdbcRepository productJdbcRepository;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private InventoryReservationConfig config;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final List<Long> created = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        // Reservation rows go with their products
+        productRepository.deleteAllById(created);
+    }
+
+    @Test
+    void anotherNodeSeesHoldsItDidNotTake() {
+        Long productId = product(STOCK);
+        Node otherNode = new Node();
+
+        reservationService.reserve(BUYER, Map.of(productId, STOCK - 1));
+
+        assertEquals(0, otherNode.service.getHeldQuantity(productId));
+        RuntimeException error = assertThrows(RuntimeException.class, () -> otherNode.reserve(BUYER + 1, Map.of(productId, 2)));
+        assertEquals("Insufficient stock for product ID: " + productId, error.getMessage());
+        otherNode.reserve(BUYER + 1, Map.of(productId, 1));
+    }
+
+    @Test
+    void releasedHoldsFreeTheUnitsForOtherNodes() {
+        Long productId = product(STOCK);
+        Node otherNode = new Node();
+
+        String reservationId = reservationService.reserve(BUYER, Map.of(productId, STOCK));
+        assertThrows(RuntimeException.class, () -> otherNode.reserve(BUYER + 1, Map.of(productId, 1)));
+
+        reservationService.release(reservationId);
+        otherNode.reserve(BUYER + 1, Map.of(productId, STOCK));
+    }
+
+    @Test
+    void newCheckoutReplacesTheUsersPreviousHold() {
+        Long productId = product(STOCK);
+        Long otherProductId = product(STOCK);
+        Node otherNode = new Node();
+
+        reservationService.reserve(BUYER, Map.of(productId, STOCK, otherProductId, 1));
+        // The previous hold's units are available to the checkout that replaces it
+        String reservationId = otherNode.reserve(BUYER, Map.of(productId, STOCK));
+
+        List<StockReservation> rows = reservationRepository.findByUserId(BUYER);
+        assertEquals(1, rows.size());
+        assertEquals(reservationId, rows.get(0).getReservationId());
+        assertEquals(STOCK, otherNode.service.getHeldQuantity(productId));
+        otherNode.reserve(BUYER + 1, Map.of(otherProductId, STOCK));
+    }
+
+    @Test
+    void sweepDeletesExpiredRowsAnotherNodeTook() {
+        Long productId = product(STOCK);
+        Node otherNode = new Node();
+        otherNode.reserve(BUYER, Map.of(productId, STOCK));
+        List<StockReservation> rows = reservationRepository.findByUserId(BUYER);
+        for (StockReservation row : rows) {
+            row.setExpiresAt(LocalDateTime.now().minusSeconds(1));
+        }
+        reservationRepository.saveAll(rows);
+
+        reservationService.releaseExpired();
+
+        assertEquals(List.of(), reservationRepository.findByUserId(BUYER));
+        reservationService.reserve(BUYER + 1, Map.of(productId, STOCK));
+    }
+
+    @Test
+    void concurrentReservesOnTwoNodesNeverHoldMoreThanTheStock() throws InterruptedException {
+        Long productId = product(STOCK);
+        Node otherNode = new Node();
+        AtomicInteger reserved = new AtomicInteger();
+        ConcurrentLinkedQueue<Throwable> unexpected = new ConcurrentLinkedQueue<>();
+
+        ExecutorService pool = Executors.newFixedThreadPool(BUYERS);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int i = 0; i < BUYERS; i++) {
+            boolean here = i % 2 == 0;
+            long buyer = BUYER + i;
+            pool.execute(() -> {
+                try {
+                    start.await();
+                    if (here) {
+                        reservationService.reserve(buyer, Map.of(productId, 1));
+                    } else {
+                        otherNode.reserve(buyer, Map.of(productId, 1));
+                    }
+                    reserved.incrementAndGet();
+                } catch (RuntimeException e) {
+                    if (!("Insufficient stock for product ID: " + productId).equals(e.getMessage())) {
+                        unexpected.add(e);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    unexpected.add(e);
+                }
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(60, TimeUnit.SECONDS), "buyers did not finish");
+
+        assertEquals(List.of(), new ArrayList<>(unexpected));
+        assertEquals(STOCK, reserved.get());
+        assertEquals(STOCK, reservationRepository.findByExpiresAtAfter(LocalDateTime.now()).stream()
+                .filter(row -> row.getProductId().equals(productId))
+                .mapToInt(StockReservation::getQuantity)
+                .sum());
+    }
+
+    private Long product(int stock) {
+        Product product = new Product();
+        product.setName("Reserved");
+        product.setPrice(new BigDecimal("19.99"));
+        product.setImage("reserved.png");
+        product.setCategory("Stress");
+        product.setStock(stock);
+        Long id = productRepository.save(product).getId();
+        created.add(id);
+        return id;
+    }
+
+    // A second instance with its own empty in-memory view, sharing only the database
+    private final class Node {
+        private final StockReservationService service =
+                new StockReservationService(reservationRepository, productJdbcRepository, productService, config);
+        private final TransactionTemplate transactions = new TransactionTemplate(transactionManager);
+
+        private String reserve(Long userId, Map<Long, Integer> quantities) {
+            return transactions.execute(status -> service.reserve(userId, quantities));
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.event.ProductChangeEvent;
+import com.example.ecommerce.model.Product;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Spelling correction through the trigram candidates against a scan of the whole
+ * vocabulary, on a synthetic catalog. Both must pick a term at the same distance
+ * and frequency. Run with {@code ./gradlew benchmark}.
+ */
+@Tag("benchmark")
+class TrigramProductFuzzySearchBenchmarkTest {
+    private static final int PRODUCTS = 20_000;
+    private static final int QUERIES = 2_000;
+    private static final int MAX_EDITS = 2;
+
+    @Test
+    void trigramCandidatesAgainstAFullScan() {
+        Random random = new Random(2024);
+        List<String> words = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            words.add(randomWord(random));
+        }
+        List<Product> products = new ArrayList<>();
+        for (long id = 1; id <= PRODUCTS; id++) {
+            Product product = new Product();
+            product.setId(id);
+            product.setName(pick(words, random) + " " + pick(words, random));
+            product.setCategory(pick(words, random));
+            product.setDescription(pick(words, random) + " " + pick(words, random) + " " + pick(words, random));
+            products.add(product);
+        }
+        Map<String, Integer> frequency = vocabulary(products);
+
+        TrigramProductFuzzySearch fuzzy = new TrigramProductFuzzySearch(mock(ProductSearchEngine.class), MAX_EDITS);
+        fuzzy.onProductChange(ProductChangeEvent.reloaded(products));
+
+        List<String> queries = new ArrayList<>();
+        while (queries.size() < QUERIES) {
+            String query = misspell(pick(words, random), random);
+            if (query.length() >= 3 && !frequency.containsKey(query)) {
+                queries.add(query);
+            }
+        }
+
+        for (int round = 0; round < 3; round++) {
+            List<String> trigram = new ArrayList<>();
+            long start = System.nanoTime();
+            for (String query : queries) {
+                trigram.add(fuzzy.correct(query));
+            }
+            long trigramNanos = System.nanoTime() - start;
+
+            List<String> scanned = new ArrayList<>();
+            start = System.nanoTime();
+            for (String query : queries) {
+                scanned.add(scan(query, frequency));
+            }
+            long scanNanos = System.nanoTime() - start;
+
+            for (int i = 0; i < queries.size(); i++) {
+                String query = queries.get(i);
+                assertEquals(rank(query, scanned.get(i), frequency), rank(query, trigram.get(i), frequency), query);
+            }
+            System.out.printf("round %d: %d terms, %d queries, trigram %.1f us/query, scan %.1f us/query%n",
+                    round, frequency.size(), queries.size(),
+                    trigramNanos / 1000.0 / queries.size(), scanNanos / 1000.0 / queries.size());
+        }
+    }
+
+    private static Map<String, Integer> vocabulary(List<Product> products) {
+        Map<String, Integer> frequency = new HashMap<>();
+        for (Product product : products) {
+            for (String term : SearchTokenizer.distinctTokens(
+                    product.getName() + " " + product.getCategory() + " " + product.getDescription())) {
+                frequency.merge(term, 1, Integer::sum);
+            }
+        }
+        return frequency;
+    }
+
+    // Same choice as the index: smallest distance, then the most used term
+    private static String scan(String token, Map<String, Integer> frequency) {
+        int bound = token.length() <= 4 ? Math.min(1, MAX_EDITS) : MAX_EDITS;
+        String best = null;
+        int bestDistance = Integer.MAX_VALUE;
+        int bestFrequency = 0;
+        for (Map.Entry<String, Integer> term : frequency.entrySet()) {
+            int distance = TrigramProductFuzzySearch.boundedDistance(token, term.getKey(), bound);
+            if (distance <= bound && (distance < bestDistance
+                    || (distance == bestDistance && term.getValue() > bestFrequency))) {
+                best = term.getKey();
+                bestDistance = distance;
+                bestFrequency = term.getValue();
+            }
+        }
+        return best;
+    }
+
+    // Equally good terms may differ, so results are compared by distance and frequency
+    private static String rank(String query, String term, Map<String, Integer> frequency) {
+        if (term == null) {
+            return "none";
+        }
+        return TrigramProductFuzzySearch.boundedDistance(query, term, MAX_EDITS) + "/" + frequency.get(term);
+    }
+
+    private static String misspell(String word, Random random) {
+        StringBuilder misspelled = new StringBuilder(word);
+        int edits = 1 + random.nextInt(2);
+        for (int e = 0; e < edits && misspelled.length() > 1; e++) {
+            int at = random.nextInt(misspelled.length() - 1);
+            switch (random.nextInt(4)) {
+                case 0 -> misspelled.setCharAt(at, (char) ('a' + random.nextInt(26)));
+                case 1 -> misspelled.insert(at, (char) ('a' + random.nextInt(26)));
+                case 2 -> misspelled.deleteCharAt(at);
+                default -> {
+                    char c = misspelled.charAt(at);
+                    misspelled.setCharAt(at, misspelled.charAt(at + 1));
+                    misspelled.setCharAt(at + 1, c);
+                }
+            }
+        }
+        return misspelled.toString();
+    }
+
+    private static String randomWord(Random random) {
+        String consonants = "bcdfghklmnprstvz";
+        String vowels = "aeiou";
+        StringBuilder word = new StringBuilder();
+        int syllables = 2 + random.nextInt(5);
+        for (int i = 0; i < syllables; i++) {
+            word.append(consonants.charAt(random.nextInt(consonants.length())));
+            word.append(vowels.charAt(random.nextInt(vowels.length())));
+        }
+        return word.toString();
+    }
+
+    private static String pick(List<String> words, Random random) {
+        return words.get(random.nextInt(words.size()));
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.event.ProductChangeEvent;
+import com.example.ecommerce.model.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+
+class TrigramProductFuzzySearchTest {
+    private final List<Product> catalog = new ArrayList<>();
+    private TrigramProductFuzzySearch fuzzy;
+
+    @BeforeEach
+    void setUp() {
+        fuzzy = new TrigramProductFuzzySearch(mock(ProductSearchEngine.class), 2);
+    }
+
+    @Test
+    void boundedDistanceCountsSingleEdits() {
+        assertEquals(0, TrigramProductFuzzySearch.boundedDistance("iphone", "iphone", 2));
+        assertEquals(1, TrigramProductFuzzySearch.boundedDistance("iphone", "iphane", 2));
+        assertEquals(1, TrigramProductFuzzySearch.boundedDistance("iphone", "iphones", 2));
+        assertEquals(1, TrigramProductFuzzySearch.boundedDistance("iphone", "iphne", 2));
+        assertEquals(1, TrigramProductFuzzySearch.boundedDistance("", "a", 2));
+    }
+
+    @Test
+    void boundedDistanceCountsAnAdjacentTranspositionAsOneEdit() {
+        assertEquals(1, TrigramProductFuzzySearch.boundedDistance("iphnoe", "iphone", 2));
+        assertEquals(1, TrigramProductFuzzySearch.boundedDistance("paly", "play", 1));
+        assertEquals(2, TrigramProductFuzzySearch.boundedDistance("ihpnoe", "iphone", 2));
+    }
+
+    @Test
+    void boundedDistanceGivesUpPastTheBound() {
+        assertEquals(3, TrigramProductFuzzySearch.boundedDistance("laptop", "tablet", 2));
+        assertEquals(2, TrigramProductFuzzySearch.boundedDistance("abc", "xyz", 1));
+        assertEquals(1, TrigramProductFuzzySearch.boundedDistance("abcdef", "ab", 0));
+    }
+
+    @Test
+    void boundedDistanceMatchesTheUnboundedDistanceWithinTheBound() {
+        Random random = new Random(7);
+        for (int i = 0; i < 2000; i++) {
+            String a = randomWord(random);
+            String b = randomWord(random);
+            int exact = distance(a, b);
+            for (int bound = 0; bound <= 3; bound++) {
+                assertEquals(Math.min(exact, bound + 1), TrigramProductFuzzySearch.boundedDistance(a, b, bound),
+                        a + " / " + b + " within " + bound);
+            }
+        }
+    }
+
+    @Test
+    void correctsNamesCategoriesAndDescriptions() {
+        load(product(1L, "Apple iPhone", "Phones", "Aluminium body with wireless charging"));
+
+        assertEquals("iphone", fuzzy.correct("iphnoe"));
+        assertEquals("phones", fuzzy.correct("phnoes"));
+        assertEquals("wireless charging", fuzzy.correct("wirelss chargign"));
+        assertNull(fuzzy.correct("iphone"));
+        assertNull(fuzzy.correct("refrigerator"));
+    }
+
+    @Test
+    void correctsShortTokensSharingNoTrigram() {
+        load(product(1L, "Play Mat", "Toys", null));
+
+        assertEquals("play", fuzzy.correct("paly"));
+        assertEquals("toys", fuzzy.correct("tosy"));
+    }
+
+    @Test
+    void prefersTheTermUsedByMoreProducts() {
+        load(product(1L, "Cable", null, null), product(2L, "Table", null, null), product(3L, "Table Lamp", null, null));
+
+        assertEquals("table", fuzzy.correct("xable"));
+    }
+
+    @Test
+    void forgetsTermsOfDeletedAndRenamedProducts() {
+        load(product(1L, "Keyboard", null, null), product(2L, "Monitor", null, null));
+        fuzzy.onProductChange(ProductChangeEvent.deleted(1L));
+        fuzzy.onProductChange(ProductChangeEvent.saved(product(2L, "Speaker", null, null)));
+
+        assertNull(fuzzy.correct("keybaord"));
+        assertNull(fuzzy.correct("monitr"));
+        assertEquals("speaker", fuzzy.correct("speakr"));
+    }
+
+    private void load(Product... products) {
+        catalog.addAll(List.of(products));
+        fuzzy.onProductChange(ProductChangeEvent.reloaded(new ArrayList<>(catalog)));
+    }
+
+    private static String randomWord(Random random) {
+        StringBuilder word = new StringBuilder();
+        int length = random.nextInt(7);
+        for (int i = 0; i < length; i++) {
+            word.append((char) ('a' + random.nextInt(4)));
+        }
+        return word.toString();
+    }
+
+    // Full optimal string alignment table, no early exit
+    private static int distance(String a, String b) {
+        int[][] d = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) {
+            d[i][0] = i;
+        }
+        for (int j = 0; j <= b.length(); j++) {
+            d[0][j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                d[i][j] = Math.min(Math.min(d[i - 1][j] + 1, d[i][j - 1] + 1), d[i - 1][j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    d[i][j] = Math.min(d[i][j], d[i - 2][j - 2] + 1);
+                }
+            }
+        }
+        return d[a.length()][b.length()];
+    }
+
+    private static Product product(Long id, String name, String category, String description) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName(name);
+        product.setCategory(category);
+        product.setDescription(description);
+        return product;
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.ecommerce.support;
+
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+/**
+ * Base for tests that need PostgreSQL itself (full-text search, FOR UPDATE SKIP LOCKED,
+ * UPDATE ... FROM, RETURNING), which the H2 test database cannot stand in for.
+ * The schema and seed data come from the Liquibase changelog, as in production.
+ *
+ * Point TEST_DATASOURCE_URL (and optionally TEST_DATASOURCE_USERNAME and
+ * TEST_DATASOURCE_PASSWORD) at a scratch database; subclasses are annotated with
+ * {@code @EnabledIfEnvironmentVariable(named = "TEST_DATASOURCE_URL", matches = ".+")}
+ * so they are skipped without one.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+public abstract class PostgresIntegrationTest {
+
+    @DynamicPropertySource
+    static void postgres(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> System.getenv("TEST_DATASOURCE_URL"));
+        registry.add("spring.datasource.driver-class-name", () -> "org.postgresql.Driver");
+        registry.add("spring.datasource.username", () -> env("TEST_DATASOURCE_USERNAME", "postgres"));
+        registry.add("spring.datasource.password", () -> env("TEST_DATASOURCE_PASSWORD", ""));
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "none");
+        registry.add("spring.jpa.properties.hibernate.dialect", () -> "org.hibernate.dialect.PostgreSQLDialect");
+        registry.add("spring.liquibase.enabled", () -> "true");
+    }
+
+    private static String env(String name, String defaultValue) {
+        String value = System.getenv(name);
+        return value != null ? value : defaultValue;
+    }
+}